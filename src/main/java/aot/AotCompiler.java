@@ -0,0 +1,140 @@
+package aot;
+
+import classfile.ClassWriter;
+import classfile.Code;
+import compiler.Compiler;
+import lexer.Lexer;
+import parser.Parser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Compiles Monkey scripts ahead of time into classes of the form
+//
+//   public final class Name {
+//       private static final compiler.Bytecode BYTECODE = ScriptRuntime.decode(...);
+//       public static object.Object run(object.Environment env) { return ScriptRuntime.run(BYTECODE, env); }
+//   }
+//
+// Lexing, parsing and compiling happen here, at build time; loading the class only decodes the
+// embedded VM bytecode.
+public final class AotCompiler {
+    private static final String BYTECODE = "Lcompiler/Bytecode;";
+    // Modified UTF-8 needs up to two bytes per char and a constant holds at most 65535 bytes.
+    private static final int CHUNK = 32767;
+
+    private AotCompiler() {
+    }
+
+    // className is an internal name, e.g. "rules/Discount". Parser and compiler errors are thrown.
+    public static byte[] compile(String className, String source) {
+        Parser parser = new Parser(new Lexer(source));
+        ast.Program program = parser.parseProgram();
+        if (!parser.errors().isEmpty()) {
+            throw new IllegalArgumentException("parser errors: " + String.join("; ", parser.errors()));
+        }
+        Compiler compiler = new Compiler();
+        compiler.compile(program);
+        if (!compiler.errors().isEmpty()) {
+            throw new IllegalArgumentException("compiler errors: " + String.join("; ", compiler.errors()));
+        }
+        String encoded = new String(BytecodeFormat.write(compiler.bytecode()), StandardCharsets.ISO_8859_1);
+
+        ClassWriter writer = new ClassWriter(className, "java/lang/Object");
+        var pool = writer.pool;
+        writer.field(ClassWriter.ACC_PRIVATE | ClassWriter.ACC_STATIC | ClassWriter.ACC_FINAL, "BYTECODE", BYTECODE);
+
+        Code init = new Code(0);
+        int chunks = (encoded.length() + CHUNK - 1) / CHUNK;
+        init.pushInt(chunks, pool);
+        init.op(Code.ANEWARRAY, pool.classRef("java/lang/String"), 0);
+        for (int i = 0; i < chunks; i++) {
+            init.op(Code.DUP, 1);
+            init.pushInt(i, pool);
+            init.op(Code.LDC_W, pool.string(encoded.substring(i * CHUNK, Math.min(encoded.length(), (i + 1) * CHUNK))), 1);
+            init.op(Code.AASTORE, -3);
+        }
+        init.op(Code.INVOKESTATIC, pool.methodRef("aot/ScriptRuntime", "decode", "([Ljava/lang/String;)" + BYTECODE), 0);
+        init.op(Code.PUTSTATIC, pool.fieldRef(className, "BYTECODE", BYTECODE), -1);
+        init.op(Code.RETURN, 0);
+        writer.method(ClassWriter.ACC_STATIC, "<clinit>", "()V", init);
+
+        Code run = new Code(1);
+        run.op(Code.GETSTATIC, pool.fieldRef(className, "BYTECODE", BYTECODE), 1);
+        run.local(Code.ALOAD, 0, 1);
+        run.op(Code.INVOKESTATIC, pool.methodRef("aot/ScriptRuntime", "run",
+                "(" + BYTECODE + "Lobject/Environment;)Lobject/Object;"), -1);
+        run.op(Code.ARETURN, -1);
+        writer.method(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, "run", "(Lobject/Environment;)Lobject/Object;",
+                run);
+        return writer.toByteArray();
+    }
+
+    // "discount-rules.monkey" becomes DiscountRules.
+    static String className(Path script) {
+        String name = script.getFileName().toString().replaceFirst("\\.monkey$", "");
+        StringBuilder out = new StringBuilder();
+        boolean upper = true;
+        for (char c : name.toCharArray()) {
+            if (!Character.isJavaIdentifierPart(c)) {
+                upper = true;
+            } else if (upper) {
+                out.append(Character.toUpperCase(c));
+                upper = false;
+            } else {
+                out.append(c);
+            }
+        }
+        if (out.isEmpty() || !Character.isJavaIdentifierStart(out.charAt(0))) {
+            out.insert(0, '_');
+        }
+        return out.toString();
+    }
+
+    // Usage: java aot.AotCompiler [--package=a.b] <output directory> <script.monkey or directory>...
+    public static void main(String[] args) throws IOException {
+        String packageName = "";
+        List<String> paths = new ArrayList<>();
+        for (var arg : args) {
+            if (arg.startsWith("--package=")) {
+                packageName = arg.substring("--package=".length());
+            } else {
+                paths.add(arg);
+            }
+        }
+        if (paths.size() < 2) {
+            System.err.println("Usage: java aot.AotCompiler [--package=a.b] <output directory> <script.monkey or directory>...");
+            System.exit(2);
+        }
+        Path output = Path.of(paths.get(0));
+        String prefix = packageName.isEmpty() ? "" : packageName.replace('.', '/') + "/";
+        boolean failed = false;
+        for (var path : paths.subList(1, paths.size())) {
+            List<Path> scripts;
+            try (Stream<Path> files = Files.walk(Path.of(path))) {
+                scripts = files.filter(p -> p.toString().endsWith(".monkey")).sorted().toList();
+            }
+            for (var script : scripts) {
+                String className = prefix + className(script);
+                try {
+                    byte[] bytes = compile(className, Files.readString(script));
+                    Path target = output.resolve(className + ".class");
+                    Files.createDirectories(target.getParent());
+                    Files.write(target, bytes);
+                    System.out.println(script + " -> " + target);
+                } catch (IllegalArgumentException e) {
+                    System.err.println(script + ": " + e.getMessage());
+                    failed = true;
+                }
+            }
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
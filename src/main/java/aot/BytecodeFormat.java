@@ -0,0 +1,114 @@
+package aot;
+
+import compiler.Bytecode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// The compiler's output as bytes. Constants are the only objects compiler.Compiler emits:
+// integers, strings and compiled functions.
+final class BytecodeFormat {
+    private static final int INTEGER = 0;
+    private static final int STRING = 1;
+    private static final int FUNCTION = 2;
+
+    private BytecodeFormat() {
+    }
+
+    static byte[] write(Bytecode bytecode) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeBytes(out, bytecode.instructions());
+            out.writeInt(bytecode.constants().size());
+            for (var constant : bytecode.constants()) {
+                switch (constant) {
+                    case object.Integer actual -> {
+                        out.writeByte(INTEGER);
+                        out.writeInt(actual.value());
+                    }
+                    case object.String actual -> {
+                        out.writeByte(STRING);
+                        writeString(out, actual.value());
+                    }
+                    case object.CompiledFunction actual -> {
+                        out.writeByte(FUNCTION);
+                        writeBytes(out, actual.instructions());
+                        out.writeInt(actual.numLocals());
+                        out.writeInt(actual.numParameters());
+                        out.writeInt(actual.cells().length);
+                        for (int link : actual.cells()) {
+                            out.writeInt(link);
+                        }
+                    }
+                    default -> throw new IllegalStateException("Unexpected value: " + constant);
+                }
+            }
+            out.writeInt(bytecode.globalNames().size());
+            for (var name : bytecode.globalNames()) {
+                writeString(out, name);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Bytecode read(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] instructions = readBytes(in);
+            int numConstants = in.readInt();
+            List<object.Object> constants = new ArrayList<>(numConstants);
+            for (int i = 0; i < numConstants; i++) {
+                constants.add(switch (in.readByte()) {
+                    case INTEGER -> new object.Integer(in.readInt());
+                    case STRING -> new object.String(readString(in));
+                    case FUNCTION -> new object.CompiledFunction(readBytes(in), in.readInt(), in.readInt(), readInts(in));
+                    default -> throw new IllegalStateException("corrupt bytecode");
+                });
+            }
+            int numGlobals = in.readInt();
+            List<String> globalNames = new ArrayList<>(numGlobals);
+            for (int i = 0; i < numGlobals; i++) {
+                globalNames.add(readString(in));
+            }
+            return new Bytecode(instructions, constants, globalNames);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        int[] ints = new int[in.readInt()];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = in.readInt();
+        }
+        return ints;
+    }
+
+    // writeUTF is limited to 64K, string literals are not.
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,36 @@
+package aot;
+
+import compiler.Bytecode;
+import object.Environment;
+import vm.VM;
+
+import java.nio.charset.StandardCharsets;
+
+// Called by the classes AotCompiler generates.
+public final class ScriptRuntime {
+    private ScriptRuntime() {
+    }
+
+    // The bytecode is embedded as string constants, one char per byte.
+    public static Bytecode decode(String[] chunks) {
+        return BytecodeFormat.read(String.join("", chunks).getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    // Globals the script reads come from env, and the ones it binds are written back to it.
+    public static object.Object run(Bytecode bytecode, Environment env) {
+        var names = bytecode.globalNames();
+        object.Object[] initial = new object.Object[names.size()];
+        for (int i = 0; i < initial.length; i++) {
+            initial[i] = env.get(names.get(i));
+        }
+        object.Object[] globals = initial.clone();
+        VM vm = new VM(bytecode, globals);
+        object.Error error = vm.run();
+        for (int i = 0; i < globals.length; i++) {
+            if (globals[i] != null && globals[i] != initial[i]) {
+                env.set(names.get(i), globals[i]);
+            }
+        }
+        return error != null ? error : vm.lastPoppedStackElem();
+    }
+}
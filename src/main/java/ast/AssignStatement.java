@@ -0,0 +1,24 @@
+package ast;
+
+import token.Token;
+
+// name = value; rebinds the name where it is already bound, it never declares it.
+public record AssignStatement(Token token, Identifier name, Expression value) implements Statement {
+
+    @Override
+    public String tokenLiteral() {
+        return token.literal();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buffer = new StringBuilder();
+        buffer.append(name)
+                .append(" = ");
+        if (value != null) {
+            buffer.append(value);
+        }
+        buffer.append(";");
+        return String.valueOf(buffer);
+    }
+}
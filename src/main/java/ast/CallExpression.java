@@ -4,8 +4,11 @@ import token.Token;
 
 import java.util.List;
 
-public record CallExpression(Token token, Expression function, List<Expression> arguments) implements Expression {
-
+public record CallExpression(Token token, Expression function, List<Expression> arguments,
+                             Slot slot) implements Expression {
+    public CallExpression(Token token, Expression function, List<Expression> arguments) {
+        this(token, function, arguments, new Slot());
+    }
 
     @SuppressWarnings("unused")
     @Override
@@ -0,0 +1,17 @@
+package ast;
+
+import token.Token;
+
+public record ForInStatement(Token token, Identifier name, Expression iterable, BlockStatement body)
+        implements Statement {
+
+    @Override
+    public String tokenLiteral() {
+        return token.literal();
+    }
+
+    @Override
+    public String toString() {
+        return "for(" + name + " in " + iterable + ") " + body;
+    }
+}
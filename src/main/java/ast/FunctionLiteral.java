@@ -4,7 +4,11 @@ import token.Token;
 
 import java.util.List;
 
-public record FunctionLiteral(Token token, List<Identifier> parameters, BlockStatement body) implements Expression {
+public record FunctionLiteral(Token token, List<Identifier> parameters, BlockStatement body,
+                              Slot slot) implements Expression {
+    public FunctionLiteral(Token token, List<Identifier> parameters, BlockStatement body) {
+        this(token, parameters, body, new Slot());
+    }
 
     @Override
     public String tokenLiteral() {
@@ -4,7 +4,10 @@ import token.Token;
 
 import java.util.Map;
 
-public record HashLiteral(Token token, Map<Expression, Expression> pairs) implements Expression {
+public record HashLiteral(Token token, Map<Expression, Expression> pairs, Slot slot) implements Expression {
+    public HashLiteral(Token token, Map<Expression, Expression> pairs) {
+        this(token, pairs, new Slot());
+    }
 
     @SuppressWarnings("unused")
     @Override
@@ -2,7 +2,10 @@ package ast;
 
 import token.Token;
 
-public record Identifier(Token token, String value) implements Expression {
+public record Identifier(Token token, String value, Slot slot) implements Expression {
+    public Identifier(Token token, String value) {
+        this(token, value, new Slot());
+    }
 
     @Override
     public String tokenLiteral() {
@@ -2,7 +2,11 @@ package ast;
 
 import token.Token;
 
-public record IndexExpression(Token token, Expression left, Expression index) implements Expression {
+public record IndexExpression(Token token, Expression left, Expression index,
+                              Slot slot) implements Expression {
+    public IndexExpression(Token token, Expression left, Expression index) {
+        this(token, left, index, new Slot());
+    }
 
     @SuppressWarnings("unused")
     @Override
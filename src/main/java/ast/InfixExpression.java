@@ -2,7 +2,11 @@ package ast;
 
 import token.Token;
 
-public record InfixExpression(Token token, Expression left, String operator, Expression right) implements Expression {
+public record InfixExpression(Token token, Expression left, String operator, Expression right,
+                              Slot slot) implements Expression {
+    public InfixExpression(Token token, Expression left, String operator, Expression right) {
+        this(token, left, operator, right, new Slot());
+    }
 
     @SuppressWarnings("unused")
     @Override
@@ -2,7 +2,11 @@ package ast;
 
 import token.Token;
 
-public record IntegerLiteral(Token token, int value) implements Expression {
+// Carries its value as an object.Integer, built once, so evaluating the literal allocates nothing.
+public record IntegerLiteral(Token token, int value, object.Integer constant) implements Expression {
+    public IntegerLiteral(Token token, int value) {
+        this(token, value, object.Integer.valueOf(value));
+    }
 
     @Override
     public String tokenLiteral() {
@@ -0,0 +1,40 @@
+package ast;
+
+// Room on a node for what an engine keeps about it, such as an inline cache or the result of an
+// analysis. The tree does not know what goes in, and the contents take no part in comparing trees.
+// A program can run on several threads at once, so whatever is stored must be safe to share.
+public final class Slot {
+    private volatile java.lang.Object value;
+
+    public java.lang.Object get() {
+        return value;
+    }
+
+    public void set(java.lang.Object value) {
+        this.value = value;
+    }
+
+    // Stores value if the slot is empty. Returns what the slot holds afterwards, so threads racing
+    // to fill it all end up with the same object.
+    public synchronized java.lang.Object fill(java.lang.Object value) {
+        if (this.value == null) {
+            this.value = value;
+        }
+        return this.value;
+    }
+
+    @Override
+    public boolean equals(java.lang.Object o) {
+        return o instanceof Slot;
+    }
+
+    @Override
+    public int hashCode() {
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Slot";
+    }
+}
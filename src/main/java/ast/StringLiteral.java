@@ -2,7 +2,11 @@ package ast;
 
 import token.Token;
 
-public record StringLiteral(Token token, String value) implements Expression {
+// Like IntegerLiteral, carries its object.String; strings are immutable so every evaluation can share it.
+public record StringLiteral(Token token, String value, object.String constant) implements Expression {
+    public StringLiteral(Token token, String value) {
+        this(token, value, new object.String(value));
+    }
 
     @SuppressWarnings("unused")
     @Override
@@ -0,0 +1,16 @@
+package ast;
+
+import token.Token;
+
+public record WhileStatement(Token token, Expression condition, BlockStatement body) implements Statement {
+
+    @Override
+    public String tokenLiteral() {
+        return token.literal();
+    }
+
+    @Override
+    public String toString() {
+        return "while" + condition + " " + body;
+    }
+}
@@ -0,0 +1,43 @@
+package benchmark;
+
+import ast.Program;
+import engine.EngineKind;
+import lexer.Lexer;
+import parser.Parser;
+
+// Usage: java benchmark.Benchmark [n]
+// Runs the classic recursive fib(n) on every engine and reports the best of a few runs.
+public class Benchmark {
+    private static final String FIB = """
+            let fibonacci = fn(x) {
+              if (x == 0) {
+                0
+              } else {
+                if (x == 1) {
+                  return 1;
+                } else {
+                  fibonacci(x - 1) + fibonacci(x - 2);
+                }
+              }
+            };
+            fibonacci(%d);
+            """;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 25;
+        Parser parser = new Parser(new Lexer(FIB.formatted(n)));
+        Program program = parser.parseProgram();
+        for (EngineKind kind : EngineKind.values()) {
+            long best = Long.MAX_VALUE;
+            object.Object result = null;
+            for (int i = 0; i < RUNS; i++) {
+                long start = System.nanoTime();
+                result = kind.create().run(program);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            assert result != null;
+            System.out.printf("engine=%s, result=%s, duration=%dms%n", kind, result.inspect(), best / 1_000_000);
+        }
+    }
+}
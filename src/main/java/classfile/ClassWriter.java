@@ -0,0 +1,101 @@
+package classfile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Writes a minimal class file. Version 49 predates StackMapTable, so the methods are checked by
+// the type-inferencing verifier and branches need no frame bookkeeping.
+public class ClassWriter {
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_PRIVATE = 0x0002;
+    public static final int ACC_STATIC = 0x0008;
+    public static final int ACC_FINAL = 0x0010;
+    public static final int ACC_SUPER = 0x0020;
+    private static final int VERSION = 49;
+
+    public final ConstantPool pool = new ConstantPool();
+    private final String name;
+    private final String superName;
+    private final String[] interfaces;
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<byte[]> methods = new ArrayList<>();
+
+    public ClassWriter(String name, String superName, String... interfaces) {
+        this.name = name;
+        this.superName = superName;
+        this.interfaces = interfaces;
+    }
+
+    public void field(int access, String fieldName, String descriptor) {
+        int nameIndex = pool.utf8(fieldName);
+        int descriptorIndex = pool.utf8(descriptor);
+        fields.add(new byte[]{
+                (byte) (access >>> 8), (byte) access,
+                (byte) (nameIndex >>> 8), (byte) nameIndex,
+                (byte) (descriptorIndex >>> 8), (byte) descriptorIndex,
+                0, 0 // attributes
+        });
+    }
+
+    public void method(int access, String methodName, String descriptor, Code code) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            byte[] instructions = code.bytes();
+            out.writeShort(access);
+            out.writeShort(pool.utf8(methodName));
+            out.writeShort(pool.utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(pool.utf8("Code"));
+            out.writeInt(12 + instructions.length);
+            out.writeShort(code.maxStack());
+            out.writeShort(code.maxLocals);
+            out.writeInt(instructions.length);
+            out.write(instructions);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        methods.add(bytes.toByteArray());
+    }
+
+    public byte[] toByteArray() {
+        int thisClass = pool.classRef(name);
+        int superClass = pool.classRef(superName);
+        int[] interfaceIndexes = new int[interfaces.length];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaceIndexes[i] = pool.classRef(interfaces[i]);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(pool.count());
+            out.write(pool.bytes());
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaceIndexes.length);
+            for (int index : interfaceIndexes) {
+                out.writeShort(index);
+            }
+            out.writeShort(fields.size());
+            for (byte[] field : fields) {
+                out.write(field);
+            }
+            out.writeShort(methods.size());
+            for (byte[] method : methods) {
+                out.write(method);
+            }
+            out.writeShort(0); // attributes
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
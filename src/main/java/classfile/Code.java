@@ -0,0 +1,149 @@
+package classfile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// The body of a Code attribute, tracking the operand stack depth to compute max_stack.
+public class Code {
+    public static final int ICONST_0 = 0x03;
+    public static final int ICONST_1 = 0x04;
+    public static final int BIPUSH = 0x10;
+    public static final int SIPUSH = 0x11;
+    public static final int LDC_W = 0x13;
+    public static final int ILOAD = 0x15;
+    public static final int ALOAD = 0x19;
+    public static final int AALOAD = 0x32;
+    public static final int AASTORE = 0x53;
+    public static final int ISTORE = 0x36;
+    public static final int POP = 0x57;
+    public static final int DUP = 0x59;
+    public static final int IADD = 0x60;
+    public static final int ISUB = 0x64;
+    public static final int IMUL = 0x68;
+    public static final int IDIV = 0x6c;
+    public static final int INEG = 0x74;
+    public static final int IXOR = 0x82;
+    public static final int IFEQ = 0x99;
+    public static final int IF_ICMPEQ = 0x9f;
+    public static final int IF_ICMPNE = 0xa0;
+    public static final int IF_ICMPLT = 0xa1;
+    public static final int IF_ICMPGE = 0xa2;
+    public static final int IF_ICMPGT = 0xa3;
+    public static final int IF_ICMPLE = 0xa4;
+    public static final int GOTO = 0xa7;
+    public static final int IRETURN = 0xac;
+    public static final int ARETURN = 0xb0;
+    public static final int RETURN = 0xb1;
+    public static final int GETSTATIC = 0xb2;
+    public static final int PUTSTATIC = 0xb3;
+    public static final int INVOKEVIRTUAL = 0xb6;
+    public static final int INVOKESPECIAL = 0xb7;
+    public static final int INVOKESTATIC = 0xb8;
+    public static final int NEW = 0xbb;
+    public static final int ANEWARRAY = 0xbd;
+    public static final int CHECKCAST = 0xc0;
+
+    private final List<Label> labels = new ArrayList<>();
+    private byte[] bytes = new byte[64];
+    private int length;
+    private int stack;
+    private int maxStack;
+    public int maxLocals;
+
+    public Code(int maxLocals) {
+        this.maxLocals = maxLocals;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int maxStack() {
+        return maxStack;
+    }
+
+    // Jump offsets are patched in once every label has a position.
+    public byte[] bytes() {
+        for (Label label : labels) {
+            for (int[] fixup : label.fixups) {
+                int offset = label.position - fixup[0];
+                bytes[fixup[1]] = (byte) (offset >>> 8);
+                bytes[fixup[1] + 1] = (byte) offset;
+            }
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+
+    public void op(int opcode, int stackDelta) {
+        u1(opcode);
+        adjust(stackDelta);
+    }
+
+    public void op(int opcode, int operand, int stackDelta) {
+        u1(opcode);
+        u2(operand);
+        adjust(stackDelta);
+    }
+
+    public void pushInt(int value, ConstantPool pool) {
+        if (value >= -1 && value <= 5) {
+            op(ICONST_0 + value, 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            u1(BIPUSH);
+            u1(value);
+            adjust(1);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            op(SIPUSH, value & 0xFFFF, 1);
+        } else {
+            op(LDC_W, pool.integer(value), 1);
+        }
+    }
+
+    public void local(int opcode, int index, int stackDelta) {
+        u1(opcode);
+        u1(index);
+        adjust(stackDelta);
+        maxLocals = Math.max(maxLocals, index + 1);
+    }
+
+    public void jump(int opcode, Label target, int stackDelta) {
+        int position = length;
+        u1(opcode);
+        target.fixups.add(new int[]{position, length});
+        u2(0);
+        adjust(stackDelta);
+        target.stack = stack;
+    }
+
+    // Code after an unconditional jump or return is only reachable through a label.
+    public void unreachable() {
+        stack = 0;
+    }
+
+    public void mark(Label label) {
+        labels.add(label);
+        label.position = length;
+        if (label.stack >= 0) {
+            stack = label.stack;
+        }
+    }
+
+
+    private void adjust(int stackDelta) {
+        stack += stackDelta;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private void u1(int value) {
+        if (length == bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        bytes[length++] = (byte) value;
+    }
+
+    private void u2(int value) {
+        u1(value >>> 8);
+        u1(value);
+    }
+}
@@ -0,0 +1,108 @@
+package classfile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ConstantPool {
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int STRING = 8;
+    private static final int CLASS = 7;
+    private static final int FIELDREF = 9;
+    private static final int METHODREF = 10;
+    private static final int INTERFACE_METHODREF = 11;
+    private static final int NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private final Map<String, Integer> entries = new HashMap<>();
+    private int count = 1;
+
+    public int utf8(String value) {
+        return entry("U" + value, () -> {
+            out.writeByte(UTF8);
+            out.writeUTF(value);
+        });
+    }
+
+    public int integer(int value) {
+        return entry("I" + value, () -> {
+            out.writeByte(INTEGER);
+            out.writeInt(value);
+        });
+    }
+
+    public int string(String value) {
+        int utf8 = utf8(value);
+        return entry("S" + value, () -> {
+            out.writeByte(STRING);
+            out.writeShort(utf8);
+        });
+    }
+
+    public int classRef(String internalName) {
+        int name = utf8(internalName);
+        return entry("C" + internalName, () -> {
+            out.writeByte(CLASS);
+            out.writeShort(name);
+        });
+    }
+
+    public int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(FIELDREF, owner, name, descriptor);
+    }
+
+    public int methodRef(String owner, String name, String descriptor) {
+        return memberRef(METHODREF, owner, name, descriptor);
+    }
+
+    public int interfaceMethodRef(String owner, String name, String descriptor) {
+        return memberRef(INTERFACE_METHODREF, owner, name, descriptor);
+    }
+
+    int count() {
+        return count;
+    }
+
+    byte[] bytes() {
+        return bytes.toByteArray();
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = entry("N" + name + " " + descriptor, () -> {
+            out.writeByte(NAME_AND_TYPE);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+        return entry(tag + owner + "." + name + " " + descriptor, () -> {
+            out.writeByte(tag);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    private int entry(String key, Writer writer) {
+        Integer index = entries.get(key);
+        if (index != null) {
+            return index;
+        }
+        try {
+            writer.write();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        entries.put(key, count);
+        return count++;
+    }
+
+    private interface Writer {
+        void write() throws IOException;
+    }
+}
@@ -0,0 +1,10 @@
+package classfile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Label {
+    final List<int[]> fixups = new ArrayList<>(); // {opcode position, operand position}
+    int position = -1;
+    int stack = -1;
+}
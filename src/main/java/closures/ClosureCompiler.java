@@ -0,0 +1,420 @@
+package closures;
+
+import evaluator.Builtins;
+import evaluator.Captures;
+import evaluator.Evaluator;
+import inference.Operands;
+import object.Environment;
+import object.ObjectType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import static evaluator.Evaluator.NULL;
+import static evaluator.Evaluator.evalIndexExpression;
+import static evaluator.Evaluator.evalInfixExpression;
+import static evaluator.Evaluator.evalPrefixExpression;
+import static evaluator.Evaluator.isError;
+import static evaluator.Evaluator.isTruthy;
+import static evaluator.Evaluator.nativeBoolToBooleanObject;
+import static evaluator.Evaluator.newError;
+
+// Walks the AST once and turns every node into a lambda that captures its already compiled
+// children, so node types and operators are dispatched at compile time instead of on every
+// evaluation. The result holds no environment and can be executed against any number of them.
+public class ClosureCompiler {
+    private ClosureCompiler() {
+    }
+
+    @FunctionalInterface
+    private interface IntInfix {
+        object.Object apply(int left, int right);
+    }
+
+    public static Executable compile(ast.Program program) {
+        Executable[] statements = compileAll(program.statements());
+        return env -> {
+            object.Object result = null;
+            for (Executable statement : statements) {
+                result = statement.execute(env);
+                if (result instanceof object.ReturnValue returnValue) {
+                    return returnValue.value();
+                }
+                if (result instanceof object.Error error) {
+                    return error;
+                }
+            }
+            return result;
+        };
+    }
+
+    private static Executable compile(ast.Node node) {
+        switch (node) {
+            // Statements
+            case ast.BlockStatement actual -> {
+                return compileBlock(actual);
+            }
+            case ast.ExpressionStatement actual -> {
+                return compile(actual.expression());
+            }
+            case ast.ReturnStatement actual -> {
+                Executable value = compile(actual.returnValue());
+                return env -> {
+                    object.Object val = value.execute(env);
+                    if (isError(val)) {
+                        return val;
+                    }
+                    return new object.ReturnValue(val);
+                };
+            }
+            case ast.LetStatement actual -> {
+                Executable value = compile(actual.value());
+                String name = actual.name().value();
+                return env -> {
+                    object.Object val = value.execute(env);
+                    if (isError(val)) {
+                        return val;
+                    }
+                    env.set(name, val);
+                    return null;
+                };
+            }
+            case ast.AssignStatement actual -> {
+                Executable value = compile(actual.value());
+                String name = actual.name().value();
+                return env -> {
+                    object.Object val = value.execute(env);
+                    if (isError(val)) {
+                        return val;
+                    }
+                    if (!env.assign(name, val)) {
+                        return newError("identifier not found: " + name);
+                    }
+                    return null;
+                };
+            }
+            case ast.WhileStatement actual -> {
+                return compileWhile(actual);
+            }
+            case ast.ForInStatement actual -> {
+                return compileForIn(actual);
+            }
+            // Expressions
+            case ast.IntegerLiteral actual -> {
+                object.Integer value = actual.constant();
+                return env -> value;
+            }
+            case ast.StringLiteral actual -> {
+                object.String value = actual.constant();
+                return env -> value;
+            }
+            case ast.Boolean actual -> {
+                object.Boolean value = nativeBoolToBooleanObject(actual.value());
+                return env -> value;
+            }
+            case ast.PrefixExpression actual -> {
+                return compilePrefix(actual.operator(), compile(actual.right()));
+            }
+            case ast.InfixExpression actual -> {
+                Executable left = compile(actual.left());
+                Executable right = compile(actual.right());
+                if (Operands.of(actual).integers()) {
+                    return compileProvenInfix(actual.operator(), left, right);
+                }
+                return compileInfix(actual.operator(), left, right);
+            }
+            case ast.IfExpression actual -> {
+                return compileIf(actual);
+            }
+            case ast.Identifier actual -> {
+                return compileIdentifier(actual.value());
+            }
+            case ast.FunctionLiteral actual -> {
+                String[] parameters = actual.parameters().stream().map(ast.Identifier::value).toArray(String[]::new);
+                Executable body = compileBlock(actual.body());
+                BiFunction<ast.FunctionLiteral, Environment, object.Object> create =
+                        (literal, captured) -> new LambdaFunction(literal, parameters, body, captured);
+                Captures captures = Captures.of(actual);
+                return env -> captures.closure(actual, env, create);
+            }
+            case ast.CallExpression actual -> {
+                return compileCall(compile(actual.function()), compileAll(actual.arguments()));
+            }
+            case ast.ArrayLiteral actual -> {
+                Executable[] elements = compileAll(actual.elements());
+                return env -> {
+                    List<object.Object> values = new ArrayList<>(elements.length);
+                    for (Executable element : elements) {
+                        object.Object value = element.execute(env);
+                        if (isError(value)) {
+                            return value;
+                        }
+                        values.add(value);
+                    }
+                    return new object.Array(values);
+                };
+            }
+            case ast.IndexExpression actual -> {
+                Executable left = compile(actual.left());
+                Executable index = compile(actual.index());
+                return env -> {
+                    object.Object l = left.execute(env);
+                    if (isError(l)) {
+                        return l;
+                    }
+                    object.Object i = index.execute(env);
+                    if (isError(i)) {
+                        return i;
+                    }
+                    return evalIndexExpression(l, i);
+                };
+            }
+            case ast.HashLiteral actual -> {
+                return compileHash(actual);
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + node);
+        }
+    }
+
+    private static Executable[] compileAll(List<? extends ast.Node> nodes) {
+        Executable[] result = new Executable[nodes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = compile(nodes.get(i));
+        }
+        return result;
+    }
+
+    private static Executable compileWhile(ast.WhileStatement loop) {
+        Executable condition = compile(loop.condition());
+        Executable body = compileBlock(loop.body());
+        return env -> {
+            while (true) {
+                object.Object cond = condition.execute(env);
+                if (isError(cond)) {
+                    return cond;
+                }
+                if (!isTruthy(cond)) {
+                    return null;
+                }
+                object.Object result = body.execute(env);
+                if (result != null) {
+                    ObjectType type = result.type();
+                    if (type == ObjectType.RETURN_VALUE_OBJ || type == ObjectType.ERROR_OBJ) {
+                        return result;
+                    }
+                }
+            }
+        };
+    }
+
+    private static Executable compileForIn(ast.ForInStatement loop) {
+        String name = loop.name().value();
+        Executable iterable = compile(loop.iterable());
+        Executable body = compileBlock(loop.body());
+        return env -> {
+            object.Object value = iterable.execute(env);
+            if (isError(value)) {
+                return value;
+            }
+            object.Object cursor = Evaluator.cursor(value);
+            if (isError(cursor)) {
+                return cursor;
+            }
+            for (object.Cursor elements = (object.Cursor) cursor; elements.hasNext(); ) {
+                env.set(name, elements.next());
+                object.Object result = body.execute(env);
+                if (result != null) {
+                    ObjectType type = result.type();
+                    if (type == ObjectType.RETURN_VALUE_OBJ || type == ObjectType.ERROR_OBJ) {
+                        return result;
+                    }
+                }
+            }
+            return null;
+        };
+    }
+
+    private static Executable compileBlock(ast.BlockStatement block) {
+        Executable[] statements = compileAll(block.statements());
+        return env -> {
+            object.Object result = null;
+            for (Executable statement : statements) {
+                result = statement.execute(env);
+                if (result != null) {
+                    ObjectType type = result.type();
+                    if (type == ObjectType.RETURN_VALUE_OBJ || type == ObjectType.ERROR_OBJ) {
+                        return result;
+                    }
+                }
+            }
+            return result;
+        };
+    }
+
+    private static Executable compilePrefix(String operator, Executable right) {
+        if (operator.equals("-")) {
+            return env -> {
+                object.Object value = right.execute(env);
+                if (value instanceof object.Integer integer) {
+                    return object.Integer.valueOf(-integer.value());
+                }
+                if (isError(value)) {
+                    return value;
+                }
+                return evalPrefixExpression(operator, value);
+            };
+        }
+        return env -> {
+            object.Object value = right.execute(env);
+            if (isError(value)) {
+                return value;
+            }
+            return evalPrefixExpression(operator, value);
+        };
+    }
+
+    private static Executable compileInfix(String operator, Executable left, Executable right) {
+        return switch (operator) {
+            case "+" -> integerInfix(operator, left, right, (a, b) -> object.Integer.valueOf(a + b));
+            case "-" -> integerInfix(operator, left, right, (a, b) -> object.Integer.valueOf(a - b));
+            case "*" -> integerInfix(operator, left, right, (a, b) -> object.Integer.valueOf(a * b));
+            case "/" -> integerInfix(operator, left, right, (a, b) -> object.Integer.valueOf(a / b));
+            case "<" -> integerInfix(operator, left, right, (a, b) -> nativeBoolToBooleanObject(a < b));
+            case ">" -> integerInfix(operator, left, right, (a, b) -> nativeBoolToBooleanObject(a > b));
+            case "==" -> integerInfix(operator, left, right, (a, b) -> nativeBoolToBooleanObject(a == b));
+            case "!=" -> integerInfix(operator, left, right, (a, b) -> nativeBoolToBooleanObject(a != b));
+            default -> env -> {
+                object.Object l = left.execute(env);
+                if (isError(l)) {
+                    return l;
+                }
+                object.Object r = right.execute(env);
+                if (isError(r)) {
+                    return r;
+                }
+                return evalInfixExpression(operator, l, r);
+            };
+        };
+    }
+
+    // Two integers take the pre-selected operation, every other combination goes through the
+    // evaluator to keep its semantics and error messages.
+    private static Executable integerInfix(String operator, Executable left, Executable right, IntInfix op) {
+        return env -> {
+            object.Object l = left.execute(env);
+            if (isError(l)) {
+                return l;
+            }
+            object.Object r = right.execute(env);
+            if (isError(r)) {
+                return r;
+            }
+            if (l instanceof object.Integer a && r instanceof object.Integer b) {
+                return op.apply(a.value(), b.value());
+            }
+            return evalInfixExpression(operator, l, r);
+        };
+    }
+
+    // Operands inference.TypeInference proved to be integers: neither can be an error, and they are
+    // unboxed without looking at their type. The operator is one of the eight the parser produces.
+    private static Executable compileProvenInfix(String operator, Executable left, Executable right) {
+        IntInfix op = switch (operator) {
+            case "+" -> (a, b) -> object.Integer.valueOf(a + b);
+            case "-" -> (a, b) -> object.Integer.valueOf(a - b);
+            case "*" -> (a, b) -> object.Integer.valueOf(a * b);
+            case "/" -> (a, b) -> object.Integer.valueOf(a / b);
+            case "<" -> (a, b) -> nativeBoolToBooleanObject(a < b);
+            case ">" -> (a, b) -> nativeBoolToBooleanObject(a > b);
+            case "==" -> (a, b) -> nativeBoolToBooleanObject(a == b);
+            default -> (a, b) -> nativeBoolToBooleanObject(a != b);
+        };
+        return env -> op.apply(((object.Integer) left.execute(env)).value(),
+                ((object.Integer) right.execute(env)).value());
+    }
+
+    private static Executable compileIf(ast.IfExpression node) {
+        Executable condition = compile(node.condition());
+        Executable consequence = compileBlock(node.consequence());
+        Executable alternative = node.alternative() != null ? compileBlock(node.alternative()) : env -> NULL;
+        return env -> {
+            object.Object value = condition.execute(env);
+            if (isError(value)) {
+                return value;
+            }
+            return isTruthy(value) ? consequence.execute(env) : alternative.execute(env);
+        };
+    }
+
+    private static Executable compileIdentifier(String name) {
+        object.Builtin builtin = Builtins.lookup(name);
+        if (builtin != null) {
+            return env -> {
+                object.Object value = env.get(name);
+                return value != null ? value : builtin;
+            };
+        }
+        return env -> {
+            object.Object value = env.get(name);
+            if (value != null) {
+                return value;
+            }
+            return newError("identifier not found: " + name);
+        };
+    }
+
+    private static Executable compileCall(Executable function, Executable[] arguments) {
+        return env -> {
+            object.Object fn = function.execute(env);
+            if (isError(fn)) {
+                return fn;
+            }
+            object.Object[] args = new object.Object[arguments.length];
+            for (int i = 0; i < args.length; i++) {
+                object.Object arg = arguments[i].execute(env);
+                if (isError(arg)) {
+                    return arg;
+                }
+                args[i] = arg;
+            }
+            return switch (fn) {
+                case LambdaFunction actual -> actual.call(args);
+                case object.Builtin actual -> actual.fn().exec(args);
+                default -> newError("not a function: %s", fn.type());
+            };
+        };
+    }
+
+    private static Executable compileHash(ast.HashLiteral node) {
+        int size = node.pairs().size();
+        Executable[] keys = new Executable[size];
+        Executable[] values = new Executable[size];
+        int i = 0;
+        for (var pair : node.pairs().entrySet()) {
+            keys[i] = compile(pair.getKey());
+            values[i] = compile(pair.getValue());
+            i++;
+        }
+        return env -> {
+            Map<object.HashKey, object.HashPair> pairs = new HashMap<>();
+            for (int j = 0; j < size; j++) {
+                object.Object key = keys[j].execute(env);
+                if (isError(key)) {
+                    return key;
+                }
+                if (!(key instanceof object.HashTable hashKey)) {
+                    return newError("unusable as hash key: %s", key.type().literal());
+                }
+                object.Object value = values[j].execute(env);
+                if (isError(value)) {
+                    return value;
+                }
+                pairs.put(hashKey.hashKey(), new object.HashPair(key, value));
+            }
+            return new object.Hash(pairs);
+        };
+    }
+}
@@ -0,0 +1,7 @@
+package closures;
+
+// A piece of a program already compiled by ClosureCompiler, runnable against any environment.
+@FunctionalInterface
+public interface Executable {
+    object.Object execute(object.Environment env);
+}
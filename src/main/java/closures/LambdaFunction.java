@@ -0,0 +1,38 @@
+package closures;
+
+import object.Environment;
+import object.ObjectType;
+
+import java.util.List;
+
+// A function value created by a compiled function literal: the compiled body plus the bindings it captured.
+public record LambdaFunction(ast.FunctionLiteral literal, String[] parameters, Executable body,
+                             Environment env) implements object.Object {
+    @Override
+    public ObjectType type() {
+        return ObjectType.FUNCTION_OBJ;
+    }
+
+    @Override
+    public String inspect() {
+        List<String> params = literal.parameters().stream().map(ast.Identifier::toString).toList();
+        return "fn(" + String.join(", ", params) + ") {\n" + literal.body() + "\n}";
+    }
+
+    object.Object call(object.Object[] args) {
+        Environment callEnv = Environment.newCallEnvironment(env);
+        for (int i = 0; i < parameters.length; i++) {
+            callEnv.set(parameters[i], args[i]);
+        }
+        object.Object evaluated;
+        try {
+            evaluated = body.execute(callEnv);
+        } finally {
+            callEnv.release();
+        }
+        if (evaluated instanceof object.ReturnValue returnValue) {
+            return returnValue.value();
+        }
+        return evaluated;
+    }
+}
@@ -0,0 +1,73 @@
+package code;
+
+public class Instructions {
+    private Instructions() {
+    }
+
+    public static byte[] make(Opcode op, int... operands) {
+        int[] widths = op.operandWidths();
+        int length = 1;
+        for (int w : widths) {
+            length += w;
+        }
+        byte[] instruction = new byte[length];
+        instruction[0] = op.code();
+        int offset = 1;
+        for (int i = 0; i < operands.length; i++) {
+            int width = widths[i];
+            switch (width) {
+                case 2 -> putUint16(instruction, offset, operands[i]);
+                case 1 -> instruction[offset] = (byte) operands[i];
+                default -> throw new IllegalStateException("Unexpected width: " + width);
+            }
+            offset += width;
+        }
+        return instruction;
+    }
+
+    public static int[] readOperands(Opcode op, byte[] ins, int offset) {
+        int[] widths = op.operandWidths();
+        int[] operands = new int[widths.length];
+        for (int i = 0; i < widths.length; i++) {
+            switch (widths[i]) {
+                case 2 -> operands[i] = readUint16(ins, offset);
+                case 1 -> operands[i] = readUint8(ins, offset);
+                default -> throw new IllegalStateException("Unexpected width: " + widths[i]);
+            }
+            offset += widths[i];
+        }
+        return operands;
+    }
+
+    public static int readUint16(byte[] ins, int offset) {
+        return ((ins[offset] & 0xFF) << 8) | (ins[offset + 1] & 0xFF);
+    }
+
+    public static int readUint8(byte[] ins, int offset) {
+        return ins[offset] & 0xFF;
+    }
+
+    public static void putUint16(byte[] ins, int offset, int value) {
+        ins[offset] = (byte) (value >>> 8);
+        ins[offset + 1] = (byte) value;
+    }
+
+    public static String toString(byte[] ins) {
+        StringBuilder buffer = new StringBuilder();
+        int i = 0;
+        while (i < ins.length) {
+            Opcode op = Opcode.lookup(ins[i]);
+            int[] operands = readOperands(op, ins, i + 1);
+            buffer.append("%04d %s".formatted(i, op));
+            for (int operand : operands) {
+                buffer.append(" ").append(operand);
+            }
+            buffer.append("\n");
+            i += 1;
+            for (int w : op.operandWidths()) {
+                i += w;
+            }
+        }
+        return String.valueOf(buffer);
+    }
+}
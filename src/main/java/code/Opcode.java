@@ -0,0 +1,64 @@
+package code;
+
+public enum Opcode {
+    CONSTANT(2),
+    ADD,
+    POP,
+    SUB,
+    MUL,
+    DIV,
+    TRUE,
+    FALSE,
+    EQUAL,
+    NOT_EQUAL,
+    GREATER_THAN,
+    LESS_THAN,
+    MINUS,
+    BANG,
+    JUMP_NOT_TRUTHY(2),
+    JUMP(2),
+    NULL,
+    GET_GLOBAL(2),
+    SET_GLOBAL(2),
+    ARRAY(2),
+    HASH(2),
+    INDEX,
+    CALL(1),
+    RETURN_VALUE,
+    RETURN,
+    GET_LOCAL(1),
+    SET_LOCAL(1),
+    GET_BUILTIN(1),
+    CLOSURE(2, 1),
+    GET_FREE(1, 2),
+    ITER,
+    FOR_ITER(2),
+    GET_CELL(1, 2),
+    SET_CELL(1),
+    ASSIGN_GLOBAL(2),
+    ASSIGN_CELL(1, 2),
+    CATCH_RETURN(2),
+    END_CATCH,
+    RETURN_LAST,
+    ASSIGN_FREE(1, 2);
+
+    // values() clones the array on every call, the VM decodes an opcode per instruction.
+    private static final Opcode[] VALUES = values();
+    private final int[] operandWidths;
+
+    Opcode(int... operandWidths) {
+        this.operandWidths = operandWidths;
+    }
+
+    public static Opcode lookup(byte op) {
+        return VALUES[op & 0xFF];
+    }
+
+    public int[] operandWidths() {
+        return operandWidths;
+    }
+
+    public byte code() {
+        return (byte) ordinal();
+    }
+}
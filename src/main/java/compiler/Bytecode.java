@@ -0,0 +1,7 @@
+package compiler;
+
+import java.util.List;
+
+// globalNames maps global slots back to names, the VM needs them to report unbound identifiers.
+public record Bytecode(byte[] instructions, List<object.Object> constants, List<String> globalNames) {
+}
@@ -0,0 +1,24 @@
+package compiler;
+
+import java.util.Arrays;
+
+class CompilationScope {
+    byte[] instructions = new byte[64];
+    int size;
+    EmittedInstruction lastInstruction;
+    EmittedInstruction previousInstruction;
+
+    int add(byte[] ins) {
+        int pos = size;
+        if (size + ins.length > instructions.length) {
+            instructions = Arrays.copyOf(instructions, Math.max(instructions.length * 2, size + ins.length));
+        }
+        System.arraycopy(ins, 0, instructions, size, ins.length);
+        size += ins.length;
+        return pos;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(instructions, size);
+    }
+}
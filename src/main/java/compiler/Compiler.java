@@ -0,0 +1,367 @@
+package compiler;
+
+import code.Instructions;
+import code.Opcode;
+import evaluator.Builtins;
+import evaluator.Captures;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static code.Opcode.*;
+
+public class Compiler {
+    private final List<object.Object> constants;
+    private final List<CompilationScope> scopes = new ArrayList<>();
+    private final List<String> errors = new ArrayList<>();
+    // Constant index of each name GET_CELL, GET_FREE, ASSIGN_CELL and ASSIGN_FREE refer to.
+    private final Map<String, Integer> names = new HashMap<>();
+    private SymbolTable symbolTable;
+    private int scopeIndex;
+
+    public Compiler() {
+        this(newGlobalSymbolTable(), new ArrayList<>());
+    }
+
+    // Used by the REPL to keep globals and constants across lines.
+    public Compiler(SymbolTable symbolTable, List<object.Object> constants) {
+        this.symbolTable = symbolTable;
+        this.constants = constants;
+        this.scopes.add(new CompilationScope());
+    }
+
+    public static SymbolTable newGlobalSymbolTable() {
+        SymbolTable symbolTable = new SymbolTable();
+        for (int i = 0; i < Builtins.names.size(); i++) {
+            symbolTable.defineBuiltin(i, Builtins.names.get(i));
+        }
+        return symbolTable;
+    }
+
+    public List<String> errors() {
+        return errors;
+    }
+
+    public Bytecode bytecode() {
+        return new Bytecode(currentScope().toByteArray(), constants, symbolTable.outermost().globalNames());
+    }
+
+    public void compile(ast.Node node) {
+        switch (node) {
+            // Statements
+            case ast.Program actual -> {
+                for (var s : actual.statements()) {
+                    compile(s);
+                }
+            }
+            case ast.BlockStatement actual -> {
+                for (var s : actual.statements()) {
+                    compile(s);
+                }
+            }
+            case ast.ExpressionStatement actual -> {
+                if (actual.expression() instanceof ast.IfExpression ifExpression) {
+                    compileIfExpression(ifExpression);
+                } else {
+                    compile(actual.expression());
+                }
+                emit(POP);
+            }
+            case ast.ReturnStatement actual -> {
+                compile(actual.returnValue());
+                emit(RETURN_VALUE);
+            }
+            case ast.LetStatement actual -> {
+                // The value is compiled before the name is defined, so "let x = x + 1;" in a function
+                // still sees the outer x, just as the evaluator does.
+                compile(actual.value());
+                storeSymbol(symbolTable.define(actual.name().value()));
+            }
+            case ast.AssignStatement actual -> compileAssignStatement(actual);
+            case ast.WhileStatement actual -> {
+                int startPos = currentScope().size;
+                compile(actual.condition());
+                int jumpNotTruthyPos = emit(JUMP_NOT_TRUTHY, 9999);
+                compile(actual.body());
+                emit(JUMP, startPos);
+                changeOperand(jumpNotTruthyPos, currentScope().size);
+            }
+            case ast.ForInStatement actual -> {
+                compile(actual.iterable());
+                emit(ITER);
+                int startPos = currentScope().size;
+                int forIterPos = emit(FOR_ITER, 9999);
+                storeSymbol(symbolTable.define(actual.name().value()));
+                compile(actual.body());
+                emit(JUMP, startPos);
+                changeOperand(forIterPos, currentScope().size);
+            }
+            // Expressions
+            case ast.IntegerLiteral actual -> emit(CONSTANT, addConstant(actual.constant()));
+            case ast.StringLiteral actual -> emit(CONSTANT, addConstant(actual.constant()));
+            case ast.Boolean actual -> emit(actual.value() ? TRUE : FALSE);
+            case ast.PrefixExpression actual -> {
+                compile(actual.right());
+                switch (actual.operator()) {
+                    case "!" -> emit(BANG);
+                    case "-" -> emit(MINUS);
+                    default -> errors.add("unknown operator %s".formatted(actual.operator()));
+                }
+            }
+            case ast.InfixExpression actual -> {
+                compile(actual.left());
+                compile(actual.right());
+                switch (actual.operator()) {
+                    case "+" -> emit(ADD);
+                    case "-" -> emit(SUB);
+                    case "*" -> emit(MUL);
+                    case "/" -> emit(DIV);
+                    case ">" -> emit(GREATER_THAN);
+                    case "<" -> emit(LESS_THAN);
+                    case "==" -> emit(EQUAL);
+                    case "!=" -> emit(NOT_EQUAL);
+                    default -> errors.add("unknown operator %s".formatted(actual.operator()));
+                }
+            }
+            case ast.IfExpression actual -> compileValueIfExpression(actual);
+            case ast.Identifier actual -> {
+                Symbol symbol = symbolTable.resolve(actual.value());
+                if (symbol == null) {
+                    // Unknown names become globals that may be bound later; reading an unbound one
+                    // is reported by the VM as "identifier not found", like the evaluator.
+                    symbolTable.outermost().define(actual.value());
+                    symbol = symbolTable.resolve(actual.value());
+                }
+                loadSymbol(symbol);
+            }
+            case ast.FunctionLiteral actual -> compileFunctionLiteral(actual);
+            case ast.CallExpression actual -> {
+                compile(actual.function());
+                for (var arg : actual.arguments()) {
+                    compile(arg);
+                }
+                emit(CALL, actual.arguments().size());
+            }
+            case ast.ArrayLiteral actual -> {
+                for (var element : actual.elements()) {
+                    compile(element);
+                }
+                emit(ARRAY, actual.elements().size());
+            }
+            case ast.IndexExpression actual -> {
+                compile(actual.left());
+                compile(actual.index());
+                emit(INDEX);
+            }
+            case ast.HashLiteral actual -> {
+                // Same iteration order as Evaluator.evalHashLiteral, so side effects happen in the same order.
+                for (var pair : actual.pairs().entrySet()) {
+                    compile(pair.getKey());
+                    compile(pair.getValue());
+                }
+                emit(HASH, actual.pairs().size() * 2);
+            }
+            default -> errors.add("unsupported node: %s".formatted(node));
+        }
+    }
+
+    private void compileAssignStatement(ast.AssignStatement node) {
+        String name = node.name().value();
+        compile(node.value());
+        Symbol symbol = symbolTable.resolve(name);
+        if (symbol == null) {
+            symbolTable.outermost().define(name);
+            symbol = symbolTable.resolve(name);
+        }
+        switch (symbol.scope()) {
+            case GLOBAL -> emit(ASSIGN_GLOBAL, symbol.index());
+            case LOCAL -> emit(SET_LOCAL, symbol.index());
+            case CELL -> emit(ASSIGN_CELL, symbol.index(), nameConstant(name));
+            case FREE -> emit(ASSIGN_FREE, symbol.index(), nameConstant(name));
+            case BUILTIN -> errors.add("cannot assign to builtin %s".formatted(name));
+        }
+    }
+
+    // A return inside an if used as a value only ends the if, which takes the returned value wrapped
+    // in an object.ReturnValue, as in Evaluator. The VM catches such returns between CATCH_RETURN and
+    // END_CATCH, along with statements whose value is a wrapped return.
+    private void compileValueIfExpression(ast.IfExpression node) {
+        if (!endsEarly(node.consequence(), true) && !endsEarly(node.alternative(), true)) {
+            compileIfExpression(node);
+            return;
+        }
+        int catchPos = emit(CATCH_RETURN, 9999);
+        compileIfExpression(node);
+        emit(END_CATCH);
+        changeOperand(catchPos, currentScope().size);
+    }
+
+    // Whether the block has a return or drops the value of an expression, which may be a wrapped
+    // return. The value of its last statement is kept when valued is set.
+    private static boolean endsEarly(ast.BlockStatement block, boolean valued) {
+        if (block == null) {
+            return false;
+        }
+        List<ast.Statement> statements = block.statements();
+        for (int i = 0; i < statements.size(); i++) {
+            boolean last = valued && i == statements.size() - 1;
+            boolean ends = switch (statements.get(i)) {
+                case ast.ReturnStatement ignored -> true;
+                case ast.ExpressionStatement actual -> !last || actual.expression() instanceof ast.IfExpression inner
+                        && (endsEarly(inner.consequence(), true) || endsEarly(inner.alternative(), true));
+                case ast.WhileStatement actual -> endsEarly(actual.body(), false);
+                case ast.ForInStatement actual -> endsEarly(actual.body(), false);
+                default -> false;
+            };
+            if (ends) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void compileIfExpression(ast.IfExpression node) {
+        compile(node.condition());
+        int jumpNotTruthyPos = emit(JUMP_NOT_TRUTHY, 9999);
+        compileBranch(node.consequence());
+        int jumpPos = emit(JUMP, 9999);
+        changeOperand(jumpNotTruthyPos, currentScope().size);
+        if (node.alternative() == null) {
+            emit(NULL);
+        } else {
+            compileBranch(node.alternative());
+        }
+        changeOperand(jumpPos, currentScope().size);
+    }
+
+    // A branch leaves exactly one value on the stack: its last expression, or null.
+    private void compileBranch(ast.BlockStatement block) {
+        compile(block);
+        if (lastInstructionIs(POP)) {
+            removeLastPop();
+        } else {
+            emit(NULL);
+        }
+    }
+
+    // The names the function's closures use live in cells, so that a later let or assignment on
+    // either side is seen by the other, as with Environment. A cell that is not bound falls through
+    // to the enclosing function's cell of the same name, then to the global.
+    private void compileFunctionLiteral(ast.FunctionLiteral node) {
+        enterScope();
+        for (var p : node.parameters()) {
+            symbolTable.define(p.value());
+        }
+        String[] cellNames = Captures.of(node).cells();
+        int[] cells = new int[cellNames.length];
+        for (int i = 0; i < cellNames.length; i++) {
+            Symbol outer = symbolTable.resolve(cellNames[i]);
+            Symbol cell = symbolTable.defineCell(cellNames[i]);
+            cells[i] = outer != null && outer.scope() == SymbolScope.FREE ? outer.index() : -1;
+            if (outer != null && outer.scope() == SymbolScope.LOCAL) {
+                emit(GET_LOCAL, outer.index());
+                emit(SET_CELL, cell.index());
+            }
+        }
+        compile(node.body());
+        if (lastInstructionIs(POP)) {
+            replaceLastPopWithReturn();
+        }
+        if (!lastInstructionIs(RETURN_VALUE) && !lastInstructionIs(RETURN_LAST)) {
+            emit(RETURN);
+        }
+        List<Symbol> freeSymbols = symbolTable.freeSymbols();
+        int numLocals = symbolTable.numDefinitions();
+        byte[] instructions = leaveScope();
+        object.CompiledFunction compiledFn = new object.CompiledFunction(instructions, numLocals,
+                node.parameters().size(), cells);
+        emit(CLOSURE, addConstant(compiledFn), freeSymbols.size());
+        for (var s : freeSymbols) {
+            loadSymbol(s);
+        }
+    }
+
+    private void loadSymbol(Symbol s) {
+        switch (s.scope()) {
+            case GLOBAL -> emit(GET_GLOBAL, s.index());
+            case LOCAL -> emit(GET_LOCAL, s.index());
+            case BUILTIN -> emit(GET_BUILTIN, s.index());
+            case FREE -> emit(GET_FREE, s.index(), nameConstant(s.name()));
+            case CELL -> emit(GET_CELL, s.index(), nameConstant(s.name()));
+        }
+    }
+
+    private void storeSymbol(Symbol s) {
+        switch (s.scope()) {
+            case GLOBAL -> emit(SET_GLOBAL, s.index());
+            case CELL -> emit(SET_CELL, s.index());
+            default -> emit(SET_LOCAL, s.index());
+        }
+    }
+
+    private int nameConstant(String name) {
+        return names.computeIfAbsent(name, n -> addConstant(new object.String(n)));
+    }
+
+    private int addConstant(object.Object obj) {
+        constants.add(obj);
+        return constants.size() - 1;
+    }
+
+    private int emit(Opcode op, int... operands) {
+        byte[] ins = Instructions.make(op, operands);
+        int pos = currentScope().add(ins);
+        CompilationScope scope = currentScope();
+        scope.previousInstruction = scope.lastInstruction;
+        scope.lastInstruction = new EmittedInstruction(op, pos);
+        return pos;
+    }
+
+    private CompilationScope currentScope() {
+        return scopes.get(scopeIndex);
+    }
+
+    private boolean lastInstructionIs(Opcode op) {
+        CompilationScope scope = currentScope();
+        if (scope.size == 0) {
+            return false;
+        }
+        return scope.lastInstruction.opcode() == op;
+    }
+
+    private void removeLastPop() {
+        CompilationScope scope = currentScope();
+        scope.size = scope.lastInstruction.position();
+        scope.lastInstruction = scope.previousInstruction;
+    }
+
+    private void replaceLastPopWithReturn() {
+        CompilationScope scope = currentScope();
+        int lastPos = scope.lastInstruction.position();
+        scope.instructions[lastPos] = RETURN_LAST.code();
+        scope.lastInstruction = new EmittedInstruction(RETURN_LAST, lastPos);
+    }
+
+    private void changeOperand(int opPos, int operand) {
+        CompilationScope scope = currentScope();
+        Opcode op = Opcode.lookup(scope.instructions[opPos]);
+        byte[] newInstruction = Instructions.make(op, operand);
+        System.arraycopy(newInstruction, 0, scope.instructions, opPos, newInstruction.length);
+    }
+
+    private void enterScope() {
+        scopes.add(new CompilationScope());
+        scopeIndex++;
+        symbolTable = new SymbolTable(symbolTable);
+    }
+
+    private byte[] leaveScope() {
+        byte[] instructions = currentScope().toByteArray();
+        scopes.remove(scopeIndex);
+        scopeIndex--;
+        symbolTable = symbolTable.outer();
+        return instructions;
+    }
+}
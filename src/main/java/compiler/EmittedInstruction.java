@@ -0,0 +1,6 @@
+package compiler;
+
+import code.Opcode;
+
+record EmittedInstruction(Opcode opcode, int position) {
+}
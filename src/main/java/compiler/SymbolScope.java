@@ -0,0 +1,9 @@
+package compiler;
+
+public enum SymbolScope {
+    GLOBAL,
+    LOCAL,
+    BUILTIN,
+    FREE,
+    CELL
+}
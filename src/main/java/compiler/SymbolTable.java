@@ -0,0 +1,98 @@
+package compiler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SymbolTable {
+    private final SymbolTable outer;
+    private final Map<String, Symbol> store = new HashMap<>();
+    private final List<Symbol> freeSymbols = new ArrayList<>();
+    // Only the outermost table records names, see Bytecode.
+    private final List<String> globalNames = new ArrayList<>();
+    private int numDefinitions;
+    private int numCells;
+
+    public SymbolTable() {
+        this(null);
+    }
+
+    public SymbolTable(SymbolTable outer) {
+        this.outer = outer;
+    }
+
+    public SymbolTable outer() {
+        return outer;
+    }
+
+    public SymbolTable outermost() {
+        SymbolTable table = this;
+        while (table.outer != null) {
+            table = table.outer;
+        }
+        return table;
+    }
+
+    public List<Symbol> freeSymbols() {
+        return freeSymbols;
+    }
+
+    public int numDefinitions() {
+        return numDefinitions;
+    }
+
+    public List<String> globalNames() {
+        return globalNames;
+    }
+
+    public Symbol define(String name) {
+        SymbolScope scope = outer == null ? SymbolScope.GLOBAL : SymbolScope.LOCAL;
+        // Rebinding a name reuses its slot, like Environment.set() overwriting the same key.
+        // A name the function's closures share is bound in its cell.
+        Symbol existing = store.get(name);
+        if (existing != null && (existing.scope() == scope || existing.scope() == SymbolScope.CELL)) {
+            return existing;
+        }
+        Symbol symbol = new Symbol(name, scope, numDefinitions++);
+        store.put(name, symbol);
+        if (scope == SymbolScope.GLOBAL) {
+            globalNames.add(name);
+        }
+        return symbol;
+    }
+
+    public Symbol defineBuiltin(int index, String name) {
+        Symbol symbol = new Symbol(name, SymbolScope.BUILTIN, index);
+        store.put(name, symbol);
+        return symbol;
+    }
+
+    public Symbol defineCell(String name) {
+        Symbol symbol = new Symbol(name, SymbolScope.CELL, numCells++);
+        store.put(name, symbol);
+        return symbol;
+    }
+
+    private Symbol defineFree(Symbol original) {
+        freeSymbols.add(original);
+        Symbol symbol = new Symbol(original.name(), SymbolScope.FREE, freeSymbols.size() - 1);
+        store.put(original.name(), symbol);
+        return symbol;
+    }
+
+    public Symbol resolve(String name) {
+        Symbol symbol = store.get(name);
+        if (symbol == null && outer != null) {
+            symbol = outer.resolve(name);
+            if (symbol == null) {
+                return null;
+            }
+            if (symbol.scope() == SymbolScope.GLOBAL || symbol.scope() == SymbolScope.BUILTIN) {
+                return symbol;
+            }
+            return defineFree(symbol);
+        }
+        return symbol;
+    }
+}
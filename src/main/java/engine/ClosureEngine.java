@@ -0,0 +1,15 @@
+package engine;
+
+import closures.ClosureCompiler;
+import inference.TypeInference;
+import object.Environment;
+
+public class ClosureEngine implements Engine {
+    private final Environment env = Environment.newEnvironment();
+
+    @Override
+    public object.Object run(ast.Program program) {
+        TypeInference.infer(program);
+        return ClosureCompiler.compile(program).execute(env);
+    }
+}
@@ -0,0 +1,6 @@
+package engine;
+
+// An execution engine keeps its global state between runs, so a REPL can feed it one line at a time.
+public interface Engine {
+    object.Object run(ast.Program program);
+}
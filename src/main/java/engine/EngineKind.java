@@ -0,0 +1,29 @@
+package engine;
+
+import java.util.Locale;
+
+public enum EngineKind {
+    EVALUATOR,
+    STACK,
+    FRAME,
+    NODES,
+    CLOSURES,
+    REGISTER,
+    VM;
+
+    public static EngineKind lookup(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+
+    public Engine create() {
+        return switch (this) {
+            case EVALUATOR -> new EvaluatorEngine();
+            case STACK -> new StackEngine();
+            case FRAME -> new FrameEngine();
+            case NODES -> new NodeEngine();
+            case CLOSURES -> new ClosureEngine();
+            case REGISTER -> new RegisterEngine();
+            case VM -> new VmEngine();
+        };
+    }
+}
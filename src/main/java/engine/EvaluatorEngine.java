@@ -0,0 +1,15 @@
+package engine;
+
+import evaluator.Evaluator;
+import inference.TypeInference;
+import object.Environment;
+
+public class EvaluatorEngine implements Engine {
+    private final Environment env = Environment.newEnvironment();
+
+    @Override
+    public object.Object run(ast.Program program) {
+        TypeInference.infer(program);
+        return Evaluator.eval(program, env);
+    }
+}
@@ -0,0 +1,18 @@
+package engine;
+
+import evaluator.FrameEvaluator;
+import object.Frame;
+import resolver.Resolver;
+
+public class FrameEngine implements Engine {
+    private final Resolver resolver = new Resolver();
+    private final FrameEvaluator evaluator = new FrameEvaluator(resolver);
+    private final Frame globals = new Frame(0, null);
+
+    @Override
+    public object.Object run(ast.Program program) {
+        resolver.resolve(program);
+        globals.ensureCapacity(resolver.globalSize());
+        return evaluator.eval(program, globals);
+    }
+}
@@ -0,0 +1,18 @@
+package engine;
+
+import nodes.NodeBuilder;
+import object.Frame;
+import resolver.Resolver;
+
+public class NodeEngine implements Engine {
+    private final Resolver resolver = new Resolver();
+    private final NodeBuilder builder = new NodeBuilder(resolver);
+    private final Frame globals = new Frame(0, null);
+
+    @Override
+    public object.Object run(ast.Program program) {
+        resolver.resolve(program);
+        globals.ensureCapacity(resolver.globalSize());
+        return builder.build(program).execute(globals);
+    }
+}
@@ -0,0 +1,27 @@
+package engine;
+
+import object.Frame;
+import regvm.Lowering;
+import regvm.Prototype;
+import regvm.RegisterVM;
+import resolver.Resolver;
+
+public class RegisterEngine implements Engine {
+    private final Resolver resolver = new Resolver();
+    private final Frame globals = new Frame(0, null);
+
+    @Override
+    public object.Object run(ast.Program program) {
+        resolver.resolve(program);
+        Prototype main = Lowering.lower(resolver, program);
+        globals.ensureCapacity(main.numRegisters());
+        try {
+            return RegisterVM.execute(main, globals);
+        } finally {
+            // The program's temporaries sit above the globals; a later line may declare names there.
+            for (int i = resolver.globalSize(); i < main.numRegisters(); i++) {
+                globals.set(i, null);
+            }
+        }
+    }
+}
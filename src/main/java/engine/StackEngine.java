@@ -0,0 +1,13 @@
+package engine;
+
+import evaluator.StackEvaluator;
+import object.Environment;
+
+public class StackEngine implements Engine {
+    private final Environment env = Environment.newEnvironment();
+
+    @Override
+    public object.Object run(ast.Program program) {
+        return StackEvaluator.eval(program, env);
+    }
+}
@@ -0,0 +1,31 @@
+package engine;
+
+import compiler.Compiler;
+import compiler.SymbolTable;
+import vm.VM;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static evaluator.Evaluator.newError;
+
+public class VmEngine implements Engine {
+    private final SymbolTable symbolTable = Compiler.newGlobalSymbolTable();
+    private final List<object.Object> constants = new ArrayList<>();
+    private final object.Object[] globals = new object.Object[VM.GLOBALS_SIZE];
+
+    @Override
+    public object.Object run(ast.Program program) {
+        Compiler compiler = new Compiler(symbolTable, constants);
+        compiler.compile(program);
+        if (compiler.errors().size() != 0) {
+            return newError("%s", compiler.errors().get(0));
+        }
+        VM machine = new VM(compiler.bytecode(), globals);
+        object.Error error = machine.run();
+        if (error != null) {
+            return error;
+        }
+        return machine.lastPoppedStackElem();
+    }
+}
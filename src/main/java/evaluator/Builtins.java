@@ -13,21 +13,22 @@ import static evaluator.Evaluator.NULL;
 import static evaluator.Evaluator.newError;
 
 public class Builtins {
+    // Fixed order, compiled code refers to builtins by their index in this list.
+    public static final List<String> names = List.of("len", "puts", "first", "last", "rest", "push", "range");
     static final Map<String, Builtin> builtins = Map.ofEntries(
-            Map.entry("len", new Builtin((Object... args) -> {
-                if (args.length != 1) {
-                    return newError("wrong number of arguments. got=%d, want=1", args.length);
-                }
-                switch (args[0]) {
+            Map.entry("len", new Builtin((Unary) arg -> {
+                switch (arg) {
                     case Array actual -> {
-                        return new object.Integer(actual.elements().size());
+                        return object.Integer.valueOf(actual.elements().size());
                     }
                     case object.String actual -> {
-                        return new object.Integer(actual.value().length());
+                        return object.Integer.valueOf(actual.value().length());
+                    }
+                    case object.Range actual -> {
+                        return object.Integer.valueOf(actual.size());
                     }
                     default -> {
-                        return newError("argument to `len` not supported, got %s",
-                                args[0].type().literal());
+                        return newError("argument to `len` not supported, got %s", arg.type().literal());
                     }
                 }
             })),
@@ -37,63 +38,97 @@ public class Builtins {
                 }
                 return NULL;
             })),
-            Map.entry("first", new Builtin((Object... args) -> {
-                if (args.length != 1) {
-                    return newError("wrong number of arguments. got=%d, want=1", args.length);
-                }
-                if (args[0].type() != ObjectType.ARRAY_OBJ) {
-                    return newError("argument to `first` must be ARRAY, got %s",
-                            args[0].type().literal());
+            Map.entry("first", new Builtin((Unary) arg -> {
+                if (arg.type() != ObjectType.ARRAY_OBJ) {
+                    return newError("argument to `first` must be ARRAY, got %s", arg.type().literal());
                 }
-                Array arr = (Array) args[0];
+                Array arr = (Array) arg;
                 int length = arr.elements().size();
                 if (length > 0) {
                     return arr.elements().get(0);
                 }
                 return NULL;
             })),
-            Map.entry("last", new Builtin((Object... args) -> {
-                if (args.length != 1) {
-                    return newError("wrong number of arguments. got=%d, want=1", args.length);
+            Map.entry("last", new Builtin((Unary) arg -> {
+                if (arg.type() != ObjectType.ARRAY_OBJ) {
+                    return newError("argument to `last` must be ARRAY, got %s", arg.type().literal());
                 }
-                if (args[0].type() != ObjectType.ARRAY_OBJ) {
-                    return newError("argument to `last` must be ARRAY, got %s",
-                            args[0].type().literal());
-                }
-                Array arr = (Array) args[0];
+                Array arr = (Array) arg;
                 int length = arr.elements().size();
                 if (length > 0) {
                     return arr.elements().get(length - 1);
                 }
                 return NULL;
             })),
-            Map.entry("rest", new Builtin((Object... args) -> {
-                if (args.length != 1) {
-                    return newError("wrong number of arguments. got=%d, want=1", args.length);
-                }
-                if (args[0].type() != ObjectType.ARRAY_OBJ) {
-                    return newError("argument to `rest` must be ARRAY, got %s",
-                            args[0].type().literal());
+            Map.entry("rest", new Builtin((Unary) arg -> {
+                if (arg.type() != ObjectType.ARRAY_OBJ) {
+                    return newError("argument to `rest` must be ARRAY, got %s", arg.type().literal());
                 }
-                Array arr = (Array) args[0];
+                Array arr = (Array) arg;
                 int length = arr.elements().size();
                 if (length > 0) {
                     return new Array(arr.elements().subList(1, length));
                 }
                 return NULL;
             })),
-            Map.entry("push", new Builtin((Object... args) -> {
-                if (args.length != 2) {
-                    return newError("wrong number of arguments. got=%d, want=1", args.length);
+            Map.entry("push", new Builtin((Binary) (array, element) -> {
+                if (array.type() != ObjectType.ARRAY_OBJ) {
+                    return newError("argument to `push` must be ARRAY, got %s", array.type().literal());
                 }
-                if (args[0].type() != ObjectType.ARRAY_OBJ) {
-                    return newError("argument to `push` must be ARRAY, got %s",
-                            args[0].type().literal());
-                }
-                Array arr = (Array) args[0];
-                List<Object> newElements = new ArrayList<>(arr.elements());
-                newElements.add(args[1]);
+                Array arr = (Array) array;
+                List<Object> newElements = new ArrayList<>(arr.elements().size() + 1);
+                newElements.addAll(arr.elements());
+                newElements.add(element);
                 return new Array(newElements);
+            })),
+            // range(end) or range(start, end), iterated by for-in without building an array.
+            Map.entry("range", new Builtin((Object... args) -> {
+                if (args.length != 1 && args.length != 2) {
+                    return newError("wrong number of arguments. got=%d, want=1 or 2", args.length);
+                }
+                for (var arg : args) {
+                    if (arg.type() != ObjectType.INTEGER_OBJ) {
+                        return newError("argument to `range` must be INTEGER, got %s", arg.type().literal());
+                    }
+                }
+                if (args.length == 1) {
+                    return new object.Range(0, ((object.Integer) args[0]).value());
+                }
+                return new object.Range(((object.Integer) args[0]).value(), ((object.Integer) args[1]).value());
             }))
     );
-}
\ No newline at end of file
+
+    // A builtin taking exactly one argument, written as exec1; calls with another count are an error.
+    @FunctionalInterface
+    private interface Unary extends object.BuiltinFunction {
+        @Override
+        Object exec1(Object arg);
+
+        @Override
+        default Object exec(Object... args) {
+            if (args.length != 1) {
+                return newError("wrong number of arguments. got=%d, want=1", args.length);
+            }
+            return exec1(args[0]);
+        }
+    }
+
+    // The same for exactly two arguments, written as exec2.
+    @FunctionalInterface
+    private interface Binary extends object.BuiltinFunction {
+        @Override
+        Object exec2(Object first, Object second);
+
+        @Override
+        default Object exec(Object... args) {
+            if (args.length != 2) {
+                return newError("wrong number of arguments. got=%d, want=2", args.length);
+            }
+            return exec2(args[0], args[1]);
+        }
+    }
+
+    public static Builtin lookup(String name) {
+        return builtins.get(name);
+    }
+}
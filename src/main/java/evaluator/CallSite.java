@@ -0,0 +1,64 @@
+package evaluator;
+
+import java.util.Arrays;
+
+// Inline cache of one ast.CallExpression, kept in its slot. Functions are keyed by their body, so
+// every closure created from the same literal shares an entry along with its parameter names;
+// builtins are keyed by identity. After MAX_ENTRIES different callees the site is megamorphic and
+// stops caching. The entry array is replaced as a whole, a racing record only costs a later miss.
+final class CallSite {
+    static final int MAX_ENTRIES = 4;
+
+    // parameters is null for a builtin.
+    record Entry(java.lang.Object key, String[] parameters) {
+    }
+
+    private static final Entry[] EMPTY = new Entry[0];
+
+    // Null once the site is megamorphic.
+    private volatile Entry[] entries = EMPTY;
+
+    // Returns the entry for the callee, null on a miss.
+    Entry lookup(object.Object fn) {
+        Entry[] entries = this.entries;
+        if (entries == null) {
+            return null;
+        }
+        java.lang.Object key = fn instanceof object.Function function ? function.body() : fn;
+        for (Entry entry : entries) {
+            if (entry.key() == key) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    // Returns the new entry, null if the callee cannot be cached.
+    Entry record(object.Object fn) {
+        Entry[] entries = this.entries;
+        if (entries == null) {
+            return null;
+        }
+        if (entries.length == MAX_ENTRIES) {
+            this.entries = null;
+            return null;
+        }
+        Entry entry = switch (fn) {
+            case object.Function function -> new Entry(function.body(),
+                    function.parameters().stream().map(ast.Identifier::value).toArray(String[]::new));
+            case object.Builtin builtin -> new Entry(builtin, null);
+            default -> null;
+        };
+        if (entry != null) {
+            Entry[] grown = Arrays.copyOf(entries, entries.length + 1);
+            grown[entries.length] = entry;
+            this.entries = grown;
+        }
+        return entry;
+    }
+
+    static CallSite of(ast.CallExpression node) {
+        java.lang.Object site = node.slot().get();
+        return (CallSite) (site != null ? site : node.slot().fill(new CallSite()));
+    }
+}
@@ -0,0 +1,166 @@
+package evaluator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+// Free variables of one ast.FunctionLiteral, worked out the first time a closure is created from
+// it and kept in its slot: every name its body reads or assigns, its nested literals' included,
+// except its parameters. Lets stay in, a read before the let still falls through to the enclosing
+// scopes.
+//
+// Reads of a name that no enclosing function binds either can only find a global, they are marked
+// on the identifier's GlobalSite.
+//
+// A literal is lifted when none of its free variables is bound by an enclosing function, so every
+// name it uses is global. It then needs nothing from the scope it is created in, and all
+// evaluations share one closure: no environment if it uses no names, the global one otherwise.
+public final class Captures {
+    // The shared closure with the globals it was made for, so threads never mix up their globals.
+    private record Shared(object.Environment env,
+                          BiFunction<ast.FunctionLiteral, object.Environment, object.Object> create,
+                          object.Object closure) {
+    }
+
+    private final String[] names;
+    private final String[] cells;
+    // The names the literal binds itself and the literals directly inside its body.
+    private final Set<String> bound = new LinkedHashSet<>();
+    private final List<ast.FunctionLiteral> nested = new ArrayList<>();
+    // The identifiers read directly in the body, outside nested literals.
+    private final List<ast.Identifier> reads = new ArrayList<>();
+    // Set once the enclosing literals are known, top down from a literal created at top level.
+    private volatile boolean placed;
+    private volatile boolean lifted;
+    private volatile Shared shared;
+
+    private Captures(ast.FunctionLiteral literal) {
+        Set<String> free = new LinkedHashSet<>();
+        collect(literal.body(), free);
+        for (ast.Identifier parameter : literal.parameters()) {
+            free.remove(parameter.value());
+            bound.add(parameter.value());
+        }
+        names = free.toArray(String[]::new);
+        Set<String> used = new HashSet<>();
+        for (ast.FunctionLiteral child : nested) {
+            used.addAll(List.of(Captures.of(child).names()));
+        }
+        cells = bound.stream().filter(used::contains).toArray(String[]::new);
+    }
+
+    public static Captures of(ast.FunctionLiteral literal) {
+        java.lang.Object captures = literal.slot().get();
+        return (Captures) (captures != null ? captures : literal.slot().fill(new Captures(literal)));
+    }
+
+    public String[] names() {
+        return names;
+    }
+
+    // The names the literal binds that a literal inside it uses, which its closures must share.
+    public String[] cells() {
+        return cells;
+    }
+
+    // The closure for the literal evaluated in env: made by create from the environment it should
+    // capture, or the shared one when the literal is lifted. An engine passes the same create for
+    // every evaluation, the shared closure is only reused for the engine that made it.
+    public object.Object closure(ast.FunctionLiteral literal, object.Environment env,
+                                 BiFunction<ast.FunctionLiteral, object.Environment, object.Object> create) {
+        if (!placed && env == env.root()) {
+            place(literal, Set.of());
+        }
+        if (names.length > 0 && !lifted) {
+            return create.apply(literal, env.capture(names));
+        }
+        object.Environment global = names.length == 0 ? null : env.root();
+        Shared shared = this.shared;
+        if (shared == null || shared.env() != global || shared.create() != create) {
+            shared = new Shared(global, create, create.apply(literal, global));
+            this.shared = shared;
+        }
+        return shared.closure();
+    }
+
+    private void place(ast.FunctionLiteral literal, Set<String> enclosing) {
+        boolean lifted = true;
+        for (String name : names) {
+            lifted &= !enclosing.contains(name);
+        }
+        this.lifted = lifted;
+        placed = true;
+        Set<String> inner = new HashSet<>(enclosing);
+        inner.addAll(bound);
+        for (ast.Identifier read : reads) {
+            GlobalSite.of(read).global = !inner.contains(read.value());
+        }
+        for (ast.FunctionLiteral child : nested) {
+            Captures.of(child).place(child, inner);
+        }
+    }
+
+    private void collect(ast.Node node, Set<String> names) {
+        switch (node) {
+            case null -> {
+            }
+            case ast.BlockStatement actual -> actual.statements().forEach(s -> collect(s, names));
+            case ast.ExpressionStatement actual -> collect(actual.expression(), names);
+            case ast.ReturnStatement actual -> collect(actual.returnValue(), names);
+            case ast.LetStatement actual -> {
+                bound.add(actual.name().value());
+                collect(actual.value(), names);
+            }
+            case ast.AssignStatement actual -> {
+                names.add(actual.name().value());
+                collect(actual.value(), names);
+            }
+            case ast.WhileStatement actual -> {
+                collect(actual.condition(), names);
+                collect(actual.body(), names);
+            }
+            case ast.ForInStatement actual -> {
+                bound.add(actual.name().value());
+                collect(actual.iterable(), names);
+                collect(actual.body(), names);
+            }
+            case ast.Identifier actual -> {
+                names.add(actual.value());
+                reads.add(actual);
+            }
+            case ast.PrefixExpression actual -> collect(actual.right(), names);
+            case ast.InfixExpression actual -> {
+                collect(actual.left(), names);
+                collect(actual.right(), names);
+            }
+            case ast.IfExpression actual -> {
+                collect(actual.condition(), names);
+                collect(actual.consequence(), names);
+                collect(actual.alternative(), names);
+            }
+            case ast.FunctionLiteral actual -> {
+                nested.add(actual);
+                names.addAll(List.of(Captures.of(actual).names()));
+            }
+            case ast.CallExpression actual -> {
+                collect(actual.function(), names);
+                actual.arguments().forEach(arg -> collect(arg, names));
+            }
+            case ast.ArrayLiteral actual -> actual.elements().forEach(e -> collect(e, names));
+            case ast.IndexExpression actual -> {
+                collect(actual.left(), names);
+                collect(actual.index(), names);
+            }
+            case ast.HashLiteral actual -> actual.pairs().forEach((key, value) -> {
+                collect(key, names);
+                collect(value, names);
+            });
+            default -> {
+                // Literals use no names.
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package evaluator;
+
+// A Monkey error on its way out of Evaluator.eval, which hands the object.Error back as the result.
+// Errors end the whole program, so nothing catches it in between and it needs no stack trace.
+final class EvalError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    final object.Error error;
+
+    EvalError(object.Error error) {
+        super(null, null, false, false);
+        this.error = error;
+    }
+}
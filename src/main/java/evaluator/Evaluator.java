@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiFunction;
 
 import static evaluator.Builtins.builtins;
 
@@ -16,7 +17,23 @@ public class Evaluator {
     public static final object.Boolean FALSE = new object.Boolean(false);
 
 
+    // The result of a return statement. The value itself is in the return slot of the environment
+    // the statement ran in, which is the frame of the call it returns from.
+    private static final object.ReturnValue RETURNED = new object.ReturnValue(NULL);
+    // evalInt's result for a value that is not an integer; every int result fits in an int.
+    private static final long SPILLED = Long.MIN_VALUE;
+    private static final java.lang.Object UNSHAPED = new java.lang.Object();
+
     public static object.Object eval(ast.Node node, object.Environment env) {
+        try {
+            return unwrapReturnValue(evalNode(node, env), env);
+        } catch (EvalError e) {
+            return e.error;
+        }
+    }
+
+    // Errors are thrown as EvalError, so a result is never an object.Error and needs no check.
+    private static object.Object evalNode(ast.Node node, object.Environment env) {
         switch (node) {
             // Statements
             case ast.Program actual -> {
@@ -26,94 +43,77 @@ public class Evaluator {
                 return evalBlockStatement(actual, env);
             }
             case ast.ExpressionStatement actual -> {
-                return eval(actual.expression(), env);
+                if (actual.expression() instanceof ast.IfExpression ifExpression) {
+                    return evalIfExpression(ifExpression, env);
+                }
+                return evalNode(actual.expression(), env);
             }
             case ast.ReturnStatement actual -> {
-                object.Object val = eval(actual.returnValue(), env);
-                if (isError(val)) {
-                    return val;
-                }
-                return new object.ReturnValue(val);
+                env.setReturned(evalNode(actual.returnValue(), env));
+                return RETURNED;
             }
-            case ast.LetStatement actual -> {
-                object.Object val = eval(actual.value(), env);
-                if (isError(val)) {
-                    return val;
+            case ast.LetStatement actual -> env.set(actual.name().value(), evalNode(actual.value(), env));
+            case ast.AssignStatement actual -> {
+                if (!env.assign(actual.name().value(), evalNode(actual.value(), env))) {
+                    throw error("identifier not found: " + actual.name().value());
                 }
-                env.set(actual.name().value(), val);
+            }
+            case ast.WhileStatement actual -> {
+                return evalWhileStatement(actual, env);
+            }
+            case ast.ForInStatement actual -> {
+                return evalForInStatement(actual, env);
             }
             // Expressions
             case ast.IntegerLiteral actual -> {
-                return new object.Integer(actual.value());
+                return actual.constant();
             }
             case ast.StringLiteral actual -> {
-                return new object.String(actual.value());
+                return actual.constant();
             }
             case ast.Boolean actual -> {
                 return nativeBoolToBooleanObject(actual.value());
             }
             case ast.PrefixExpression actual -> {
-                object.Object right = eval(actual.right(), env);
-                if (isError(right)) {
-                    return right;
-                }
-                return evalPrefixExpression(actual.operator(), right);
+                return check(evalPrefixExpression(actual.operator(), evalNode(actual.right(), env)));
             }
             case ast.InfixExpression actual -> {
-                object.Object left = eval(actual.left(), env);
-                if (isError(left)) {
-                    return left;
+                if (inference.Operands.of(actual).integers()) {
+                    return evalIntegerInfixExpression(actual.operator(), provenInt(actual.left(), env),
+                            provenInt(actual.right(), env));
                 }
-                object.Object right = eval(actual.right(), env);
-                if (isError(right)) {
-                    return right;
+                if (isArithmetic(actual.left()) || isArithmetic(actual.right())) {
+                    return evalIntegerTree(actual, env);
                 }
-                // Speechlessly, IDEA warns that left may be null, but does not warn right!
-                // noinspection ConstantConditions
-                return evalInfixExpression(actual.operator(), left, right);
+                object.Object left = evalNode(actual.left(), env);
+                object.Object right = evalNode(actual.right(), env);
+                return check(evalInfixExpression(actual.operator(), left, right));
             }
             case ast.IfExpression actual -> {
-                return evalIfExpression(actual, env);
+                // A return inside an if used as a value does not leave the function, it becomes the value.
+                object.Object result = evalIfExpression(actual, env);
+                return result == RETURNED ? new object.ReturnValue(env.takeReturned()) : result;
             }
             case ast.Identifier actual -> {
                 return evalIdentifier(actual, env);
             }
             case ast.FunctionLiteral actual -> {
-                List<ast.Identifier> params = actual.parameters();
-                ast.BlockStatement body = actual.body();
-                return new object.Function(params, body, env);
+                return Captures.of(actual).closure(actual, env, NEW_FUNCTION);
             }
             case ast.CallExpression actual -> {
-                object.Object function = eval(actual.function(), env);
-                if (isError(function)) {
-                    return function;
-                }
-                List<object.Object> args = evalExpressions(actual.arguments(), env);
-                // Error will be returned as an Object in List.
-                if (args.size() == 1 && isError(args.get(0))) {
-                    return args.get(0);
-                }
-                assert function != null;
-                return applyFunction(function, args);
+                return evalCallExpression(actual, env, false);
             }
             case ast.ArrayLiteral actual -> {
-                List<object.Object> elements = evalExpressions(actual.elements(), env);
-                if (elements.size() == 1 && isError(elements.get(0))) {
-                    return elements.get(0);
-                }
-                return new object.Array(elements);
+                return new object.Array(evalExpressions(actual.elements(), env));
             }
             case ast.IndexExpression actual -> {
-                object.Object left = eval(actual.left(), env);
-                if (isError(left)) {
-                    return left;
+                object.Object left = evalNode(actual.left(), env);
+                if (actual.index() instanceof ast.StringLiteral key && left instanceof object.Hash hash
+                        && hash.shape() != null) {
+                    return evalShapedIndexExpression(IndexSite.of(actual), hash, key.constant());
                 }
-                object.Object index = eval(actual.index(), env);
-                if (isError(index)) {
-                    return index;
-                }
-                assert left != null;
-                return evalIndexExpression(left, index);
+                object.Object index = evalNode(actual.index(), env);
+                return check(evalIndexExpression(IndexSite.of(actual), left, index));
             }
             case ast.HashLiteral actual -> {
                 return evalHashLiteral(actual, env);
@@ -126,28 +126,72 @@ public class Evaluator {
     }
 
     private static object.Object evalHashLiteral(ast.HashLiteral node, object.Environment env) {
-
+        object.Shape shape = shape(node);
+        if (shape != null) {
+            // The keys are string literals, only the values need evaluating.
+            object.Object[] fields = new object.Object[shape.size()];
+            int i = 0;
+            for (ast.Expression value : node.pairs().values()) {
+                fields[i++] = evalNode(value, env);
+            }
+            return new object.Hash(shape, fields);
+        }
         Map<object.HashKey, object.HashPair> pairs = new HashMap<>();
         for (var n : node.pairs().entrySet()) {
-            object.Object key = eval(n.getKey(), env);
-            if (isError(key)) {
-                return key;
-            }
+            object.Object key = evalNode(n.getKey(), env);
             if (!(key instanceof object.HashTable hashKey)) {
-                assert key != null;
-                return newError("unusable as hash key: %s", key.type().literal());
-            }
-            object.Object value = eval(n.getValue(), env);
-            if (isError(value)) {
-                return value;
+                throw error("unusable as hash key: %s", key.type().literal());
             }
+            object.Object value = evalNode(n.getValue(), env);
             object.HashKey hashed = hashKey.hashKey();
             pairs.put(hashed, new object.HashPair(key, value));
         }
         return new object.Hash(pairs);
     }
 
-    private static object.Object evalIndexExpression(object.Object left, object.Object index) {
+    // The object.Shape every hash of the literal shares, null unless all its keys are string
+    // literals. Worked out once and kept in the literal's slot, UNSHAPED marks a literal without one.
+    private static object.Shape shape(ast.HashLiteral node) {
+        java.lang.Object shape = node.slot().get();
+        if (shape == null) {
+            List<object.String> keys = new ArrayList<>(node.pairs().size());
+            for (ast.Expression key : node.pairs().keySet()) {
+                if (key instanceof ast.StringLiteral literal) {
+                    keys.add(literal.constant());
+                }
+            }
+            object.Shape made = keys.size() == node.pairs().size() ? object.Shape.of(keys) : null;
+            shape = node.slot().fill(made != null ? made : UNSHAPED);
+        }
+        return shape instanceof object.Shape actual ? actual : null;
+    }
+
+    private static object.Object evalIndexExpression(IndexSite site, object.Object left, object.Object index) {
+        if (site.receiver == ObjectType.ARRAY_OBJ) {
+            if (left instanceof object.Array && index instanceof object.Integer) {
+                return evalArrayIndexExpression(left, index);
+            }
+        } else if (site.receiver == ObjectType.HASH_OBJ) {
+            if (left instanceof object.Hash) {
+                return evalHashIndexExpression(left, index);
+            }
+        }
+        site.receiver = left.type();
+        return evalIndexExpression(left, index);
+    }
+
+    // A literal key into a hash with a shape: while the site sees the same shape, the offset it
+    // found for the key last time still holds.
+    private static object.Object evalShapedIndexExpression(IndexSite site, object.Hash hash, object.String key) {
+        IndexSite.Field field = site.field;
+        if (field == null || field.shape() != hash.shape()) {
+            field = new IndexSite.Field(hash.shape(), hash.shape().offset(key.hashKey()));
+            site.field = field;
+        }
+        return field.offset() < 0 ? NULL : hash.field(field.offset());
+    }
+
+    public static object.Object evalIndexExpression(object.Object left, object.Object index) {
         if (left.type() == ObjectType.ARRAY_OBJ && index.type() == ObjectType.INTEGER_OBJ) {
             return evalArrayIndexExpression(left, index);
         } else if (left.type() == ObjectType.HASH_OBJ) {
@@ -182,12 +226,9 @@ public class Evaluator {
     private static object.Object evalProgram(ast.Program program, object.Environment env) {
         object.Object result = null;
         for (var statement : program.statements()) {
-            result = eval(statement, env);
-            if (result instanceof object.ReturnValue returnValue) {
-                return returnValue.value();
-            }
-            if (result instanceof object.Error error) {
-                return error;
+            result = evalNode(statement, env);
+            if (result instanceof object.ReturnValue) {
+                return result;
             }
         }
         return result;
@@ -196,25 +237,67 @@ public class Evaluator {
     private static object.Object evalBlockStatement(ast.BlockStatement block, object.Environment env) {
         object.Object result = null;
         for (var statement : block.statements()) {
-            result = eval(statement, env);
-            if (result != null) {
-                ObjectType type = result.type();
-                if (type == ObjectType.RETURN_VALUE_OBJ || type == ObjectType.ERROR_OBJ) {
+            result = evalNode(statement, env);
+            if (result instanceof object.ReturnValue) {
+                return result;
+            }
+        }
+        return result;
+    }
+
+    // evalBlockStatement for a function body and the blocks its value comes from. With last set the
+    // block's value is the function's result. A call that is returned, or that gives that result,
+    // comes back as a TailCall instead of being made.
+    private static object.Object evalTailBlock(ast.BlockStatement block, object.Environment env, boolean last) {
+        object.Object result = null;
+        List<ast.Statement> statements = block.statements();
+        for (int i = 0; i < statements.size(); i++) {
+            ast.Statement statement = statements.get(i);
+            boolean tail = last && i == statements.size() - 1;
+            if (statement instanceof ast.ReturnStatement actual
+                    && actual.returnValue() instanceof ast.CallExpression call) {
+                result = evalCallExpression(call, env, true);
+                if (result instanceof TailCall) {
                     return result;
                 }
+                env.setReturned(result);
+                return RETURNED;
+            }
+            if (statement instanceof ast.ExpressionStatement actual
+                    && actual.expression() instanceof ast.IfExpression ifExpression) {
+                result = evalTailIfExpression(ifExpression, env, tail);
+            } else if (tail && statement instanceof ast.ExpressionStatement actual
+                    && actual.expression() instanceof ast.CallExpression call) {
+                return evalCallExpression(call, env, true);
+            } else {
+                result = evalNode(statement, env);
+            }
+            if (result instanceof object.ReturnValue || result instanceof TailCall) {
+                return result;
             }
         }
         return result;
     }
 
-    private static object.Boolean nativeBoolToBooleanObject(boolean input) {
+    private static object.Object evalTailIfExpression(ast.IfExpression ie, object.Environment env, boolean last) {
+        object.Object condition = evalNode(ie.condition(), env);
+        if (isTruthy(condition)) {
+            return evalTailBlock(ie.consequence(), env, last);
+        } else if (ie.alternative() != null) {
+            return evalTailBlock(ie.alternative(), env, last);
+        } else {
+            return NULL;
+        }
+    }
+
+    public static object.Boolean nativeBoolToBooleanObject(boolean input) {
         if (input) {
             return TRUE;
         }
         return FALSE;
     }
 
-    private static object.Object evalPrefixExpression(String operator, object.Object right) {
+    public static object.Object evalPrefixExpression(String operator, object.Object right) {
         return switch (operator) {
             case "!" -> evalBangOperatorExpression(right);
             case "-" -> evalMinusPrefixOperatorExpression(right);
@@ -222,7 +305,7 @@ public class Evaluator {
         };
     }
 
-    private static object.Object evalInfixExpression(String operator, object.Object left, object.Object right) {
+    public static object.Object evalInfixExpression(String operator, object.Object left, object.Object right) {
         if (left.type() == ObjectType.INTEGER_OBJ && right.type() == ObjectType.INTEGER_OBJ) {
             return evalIntegerInfixExpression(operator, left, right);
         } else if (left.type() == ObjectType.STRING_OBJ && right.type() == ObjectType.STRING_OBJ) {
@@ -257,22 +340,106 @@ public class Evaluator {
             return newError("unknown operator: -%s", right.type().literal());
         }
         int value = ((object.Integer) right).value();
-        return new object.Integer(-value);
+        return object.Integer.valueOf(-value);
+    }
+
+    // An infix expression with arithmetic below it. The operands are worked out as ints by evalInt,
+    // so only the value of the whole expression is boxed, as long as they all turn out to be integers.
+    private static object.Object evalIntegerTree(ast.InfixExpression node, object.Environment env) {
+        long left = evalInt(node.left(), env);
+        object.Object boxedLeft = left == SPILLED ? env.takeSpilled() : null;
+        long right = evalInt(node.right(), env);
+        if (boxedLeft == null && right != SPILLED) {
+            return check(evalIntegerInfixExpression(node.operator(), (int) left, (int) right));
+        }
+        object.Object l = boxedLeft != null ? boxedLeft : object.Integer.valueOf((int) left);
+        object.Object r = right == SPILLED ? env.takeSpilled() : object.Integer.valueOf((int) right);
+        return check(evalInfixExpression(node.operator(), l, r));
+    }
+
+    // The value of an expression as an int, or SPILLED with its value in env's spill slot when it
+    // is not an integer. Arithmetic nodes are worked out without boxing anything.
+    private static long evalInt(ast.Expression node, object.Environment env) {
+        if (node instanceof ast.IntegerLiteral literal) {
+            return literal.value();
+        }
+        if (!isArithmetic(node)) {
+            object.Object value = evalNode(node, env);
+            if (value instanceof object.Integer integer) {
+                return integer.value();
+            }
+            env.spill(value);
+            return SPILLED;
+        }
+        ast.InfixExpression infix = (ast.InfixExpression) node;
+        long left = evalInt(infix.left(), env);
+        object.Object boxedLeft = left == SPILLED ? env.takeSpilled() : null;
+        long right = evalInt(infix.right(), env);
+        if (boxedLeft == null && right != SPILLED) {
+            int l = (int) left;
+            int r = (int) right;
+            return switch (infix.operator()) {
+                case "+" -> l + r;
+                case "-" -> l - r;
+                case "*" -> l * r;
+                default -> l / r;
+            };
+        }
+        object.Object l = boxedLeft != null ? boxedLeft : object.Integer.valueOf((int) left);
+        object.Object r = right == SPILLED ? env.takeSpilled() : object.Integer.valueOf((int) right);
+        object.Object value = check(evalInfixExpression(infix.operator(), l, r));
+        if (value instanceof object.Integer integer) {
+            return integer.value();
+        }
+        env.spill(value);
+        return SPILLED;
+    }
+
+    // An expression inference.TypeInference proved to be an integer, taken as an int without any check.
+    private static int provenInt(ast.Expression node, object.Environment env) {
+        if (node instanceof ast.IntegerLiteral literal) {
+            return literal.value();
+        }
+        if (isArithmetic(node) && inference.Operands.of((ast.InfixExpression) node).integers()) {
+            ast.InfixExpression infix = (ast.InfixExpression) node;
+            int l = provenInt(infix.left(), env);
+            int r = provenInt(infix.right(), env);
+            return switch (infix.operator()) {
+                case "+" -> l + r;
+                case "-" -> l - r;
+                case "*" -> l * r;
+                default -> l / r;
+            };
+        }
+        return ((object.Integer) evalNode(node, env)).value();
+    }
+
+    private static boolean isArithmetic(ast.Expression node) {
+        if (node instanceof ast.InfixExpression infix) {
+            return switch (infix.operator()) {
+                case "+", "-", "*", "/" -> true;
+                default -> false;
+            };
+        }
+        return false;
     }
 
     private static object.Object evalIntegerInfixExpression(String operator, object.Object left, object.Object right) {
-        int leftVal = ((object.Integer) left).value();
-        int rightVal = ((object.Integer) right).value();
+        return evalIntegerInfixExpression(operator, ((object.Integer) left).value(), ((object.Integer) right).value());
+    }
+
+    private static object.Object evalIntegerInfixExpression(String operator, int leftVal, int rightVal) {
         return switch (operator) {
-            case "+" -> new object.Integer(leftVal + rightVal);
-            case "-" -> new object.Integer(leftVal - rightVal);
-            case "*" -> new object.Integer(leftVal * rightVal);
-            case "/" -> new object.Integer(leftVal / rightVal);
+            case "+" -> object.Integer.valueOf(leftVal + rightVal);
+            case "-" -> object.Integer.valueOf(leftVal - rightVal);
+            case "*" -> object.Integer.valueOf(leftVal * rightVal);
+            case "/" -> object.Integer.valueOf(leftVal / rightVal);
             case "<" -> nativeBoolToBooleanObject(leftVal < rightVal);
             case ">" -> nativeBoolToBooleanObject(leftVal > rightVal);
             case "==" -> nativeBoolToBooleanObject(leftVal == rightVal);
             case "!=" -> nativeBoolToBooleanObject(leftVal != rightVal);
-            default -> newError("unknown operator: %s %s %s", left.type().literal(), operator, right.type().literal());
+            default -> newError("unknown operator: %s %s %s", ObjectType.INTEGER_OBJ.literal(), operator,
+                    ObjectType.INTEGER_OBJ.literal());
         };
     }
 
@@ -285,22 +452,58 @@ public class Evaluator {
         return new object.String(leftVal + rightVal);
     }
 
-    private static object.Object evalIfExpression(ast.IfExpression ie, object.Environment env) {
-        object.Object condition = eval(ie.condition(), env);
-        if (isError(condition)) {
-            return condition;
+    // The loop itself has no value, only a return from its body leaves it early.
+    private static object.Object evalWhileStatement(ast.WhileStatement ws, object.Environment env) {
+        while (isTruthy(evalNode(ws.condition(), env))) {
+            object.Object result = evalBlockStatement(ws.body(), env);
+            if (result instanceof object.ReturnValue) {
+                return result;
+            }
         }
+        return null;
+    }
+
+    private static object.Object evalForInStatement(ast.ForInStatement fs, object.Environment env) {
+        object.Cursor elements = (object.Cursor) check(cursor(evalNode(fs.iterable(), env)));
+        String name = fs.name().value();
+        while (elements.hasNext()) {
+            env.set(name, elements.next());
+            object.Object result = evalBlockStatement(fs.body(), env);
+            if (result instanceof object.ReturnValue) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    // A fresh object.Cursor over the value, or an error when for-in cannot step through it.
+    public static object.Object cursor(object.Object value) {
+        if (value instanceof object.Iterable iterable) {
+            return iterable.cursor();
+        }
+        return newError("not iterable: %s", value.type().literal());
+    }
+
+    private static object.Object evalIfExpression(ast.IfExpression ie, object.Environment env) {
+        object.Object condition = evalNode(ie.condition(), env);
         if (isTruthy(condition)) {
-            return eval(ie.consequence(), env);
+            return evalBlockStatement(ie.consequence(), env);
         } else if (ie.alternative() != null) {
-            return eval(ie.alternative(), env);
+            return evalBlockStatement(ie.alternative(), env);
         } else {
             return NULL;
         }
     }
 
     private static object.Object evalIdentifier(ast.Identifier node, object.Environment env) {
-        object.Object val = env.get(node.value());
+        object.Environment root = env.root();
+        object.Object val;
+        GlobalSite site = root != null ? GlobalSite.of(node) : null;
+        if (site != null && (env == root || site.global)) {
+            val = site.cell(root, node.value()).value();
+        } else {
+            val = env.get(node.value());
+        }
         if (val != null) {
             return val;
         }
@@ -308,10 +511,10 @@ public class Evaluator {
         if (builtin != null) {
             return builtin;
         }
-        return newError("identifier not found: " + node.value());
+        throw error("identifier not found: " + node.value());
     }
 
-    private static boolean isTruthy(object.Object obj) {
+    public static boolean isTruthy(object.Object obj) {
         if (obj == TRUE) {
             return true;
         } else if (obj == FALSE) {
@@ -325,7 +528,19 @@ public class Evaluator {
         return new object.Error(String.format(format, args));
     }
 
-    private static boolean isError(object.Object obj) {
+    private static EvalError error(String format, Object... args) {
+        return new EvalError(newError(format, args));
+    }
+
+    // Errors from the helpers shared with the other engines come back as values, here they are thrown.
+    private static object.Object check(object.Object result) {
+        if (result instanceof object.Error error) {
+            throw new EvalError(error);
+        }
+        return result;
+    }
+
+    public static boolean isError(object.Object obj) {
         if (obj != null) {
             return obj.type() == ObjectType.ERROR_OBJ;
         }
@@ -333,43 +548,125 @@ public class Evaluator {
     }
 
     private static List<object.Object> evalExpressions(List<ast.Expression> exps, object.Environment env) {
-        List<object.Object> result = new ArrayList<>();
+        List<object.Object> result = new ArrayList<>(exps.size());
         for (ast.Expression expr : exps) {
-            object.Object evaluated = eval(expr, env);
-            if (isError(evaluated)) {
-                return List.of(evaluated);
-            }
-            result.add(evaluated);
+            result.add(evalNode(expr, env));
         }
         return result;
     }
 
-    private static object.Object applyFunction(object.Object fn, List<object.Object> args) {
+    private static object.Object evalCallExpression(ast.CallExpression node, object.Environment env, boolean tail) {
+        object.Object function = evalNode(node.function(), env);
+        List<ast.Expression> arguments = node.arguments();
+        if (function instanceof object.Builtin builtin && arguments.size() <= 2) {
+            return applyBuiltin(builtin.fn(), arguments, env);
+        }
+        // Arguments go straight into the array a builtin receives, no intermediate List.
+        object.Object[] args = new object.Object[arguments.size()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = evalNode(arguments.get(i), env);
+        }
+        assert function != null;
+        if (tail && function instanceof object.Function actual) {
+            CallSite.Entry entry = site(CallSite.of(node), actual);
+            String[] parameters = entry != null ? entry.parameters()
+                    : actual.parameters().stream().map(ast.Identifier::value).toArray(String[]::new);
+            return new TailCall(actual, parameters, args);
+        }
+        return applyFunction(CallSite.of(node), function, args);
+    }
+
+    // Calls with up to two arguments take the builtin's fixed-arity entry and build no array.
+    private static object.Object applyBuiltin(object.BuiltinFunction fn, List<ast.Expression> arguments,
+                                              object.Environment env) {
+        return check(switch (arguments.size()) {
+            case 0 -> fn.exec0();
+            case 1 -> fn.exec1(evalNode(arguments.get(0), env));
+            default -> {
+                object.Object first = evalNode(arguments.get(0), env);
+                yield fn.exec2(first, evalNode(arguments.get(1), env));
+            }
+        });
+    }
+
+    private static CallSite.Entry site(CallSite site, object.Object fn) {
+        CallSite.Entry entry = site.lookup(fn);
+        if (entry == null) {
+            entry = site.record(fn);
+        }
+        return entry;
+    }
+
+    private static object.Object applyFunction(CallSite site, object.Object fn, object.Object[] args) {
+        CallSite.Entry entry = site(site, fn);
+        if (entry != null) {
+            // A hit already knows the callee's kind and, for functions, its parameter names.
+            String[] parameters = entry.parameters();
+            if (parameters != null) {
+                return applyFunction((object.Function) fn, parameters, args);
+            }
+            return check(((object.Builtin) fn).fn().exec(args));
+        }
         switch (fn) {
             case object.Function actual -> {
-                object.Environment extendedEnv = extendFunctionEnv(actual, args);
-                object.Object evaluated = eval(actual.body(), extendedEnv);
-                return unwrapReturnValue(evaluated);
+                String[] parameters = actual.parameters().stream().map(ast.Identifier::value).toArray(String[]::new);
+                return applyFunction(actual, parameters, args);
             }
             case object.Builtin actual -> {
-                // This is ugly!!!
-                return actual.fn().exec(args.toArray(new object.Object[]{}));
+                return check(actual.fn().exec(args));
             }
-            default -> {
-                return newError("not a function: %s", fn.type());
+            default -> throw error("not a function: %s", fn.type());
+        }
+    }
+
+    // Tail calls made by the body come back as a TailCall and run in this loop, in place of the
+    // call that returned them, so tail recursion needs neither Java stack nor a chain of environments.
+    private static object.Object applyFunction(object.Function fn, String[] parameters, object.Object[] args) {
+        while (true) {
+            object.Object compiled = jit.Jit.invoke(fn, args);
+            if (compiled != null) {
+                return compiled;
+            }
+            jit.Profile profile = fn.profile();
+            object.Object evaluated;
+            object.Environment extendedEnv = extendFunctionEnv(fn, parameters, args);
+            profile.enter();
+            try {
+                evaluated = unwrapReturnValue(evalTailBlock(fn.body(), extendedEnv, true), extendedEnv);
+            } finally {
+                profile.exit();
+                extendedEnv.release();
             }
+            if (!(evaluated instanceof TailCall call)) {
+                return evaluated;
+            }
+            fn = call.fn();
+            parameters = call.parameters();
+            args = call.args();
         }
     }
 
-    private static object.Environment extendFunctionEnv(object.Function fn, List<object.Object> args) {
-        object.Environment env = object.Environment.newEnclosedEnvironment(fn.env());
-        for (int i = 0; i < fn.parameters().size(); i++) {
-            env.set(fn.parameters().get(i).value(), args.get(i));
+    // What Evaluator and StackEvaluator hand to Captures.closure, one object so they share closures.
+    static final BiFunction<ast.FunctionLiteral, object.Environment, object.Object> NEW_FUNCTION =
+            Evaluator::newFunction;
+
+    private static object.Object newFunction(ast.FunctionLiteral literal, object.Environment env) {
+        return new object.Function(literal.parameters(), literal.body(), env);
+    }
+
+    private static object.Environment extendFunctionEnv(object.Function fn, String[] parameters,
+                                                        object.Object[] args) {
+        object.Environment env = object.Environment.newCallEnvironment(fn.env());
+        for (int i = 0; i < parameters.length; i++) {
+            env.set(parameters[i], args[i]);
         }
         return env;
     }
 
-    private static object.Object unwrapReturnValue(object.Object obj) {
+    private static object.Object unwrapReturnValue(object.Object obj, object.Environment env) {
+        if (obj == RETURNED) {
+            return env.takeReturned();
+        }
         if (obj instanceof object.ReturnValue object) {
             return object.value();
         }
@@ -0,0 +1,284 @@
+package evaluator;
+
+import object.Frame;
+import object.ObjectType;
+import resolver.Binding;
+import resolver.Resolver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static evaluator.Evaluator.NULL;
+import static evaluator.Evaluator.evalIndexExpression;
+import static evaluator.Evaluator.evalInfixExpression;
+import static evaluator.Evaluator.evalPrefixExpression;
+import static evaluator.Evaluator.isError;
+import static evaluator.Evaluator.isTruthy;
+import static evaluator.Evaluator.nativeBoolToBooleanObject;
+import static evaluator.Evaluator.newError;
+
+// Same semantics as Evaluator, but names are read from Object[] frames at the (depth, slot)
+// computed by the Resolver instead of walking a chain of HashMaps.
+public class FrameEvaluator {
+    private final Resolver resolver;
+
+    public FrameEvaluator(Resolver resolver) {
+        this.resolver = resolver;
+    }
+
+    public object.Object eval(ast.Node node, Frame frame) {
+        switch (node) {
+            // Statements
+            case ast.Program actual -> {
+                return evalProgram(actual, frame);
+            }
+            case ast.BlockStatement actual -> {
+                return evalBlockStatement(actual, frame);
+            }
+            case ast.ExpressionStatement actual -> {
+                return eval(actual.expression(), frame);
+            }
+            case ast.ReturnStatement actual -> {
+                object.Object val = eval(actual.returnValue(), frame);
+                if (isError(val)) {
+                    return val;
+                }
+                return new object.ReturnValue(val);
+            }
+            case ast.LetStatement actual -> {
+                object.Object val = eval(actual.value(), frame);
+                if (isError(val)) {
+                    return val;
+                }
+                frame.set(resolver.binding(actual.name()).slots()[0], val);
+            }
+            case ast.AssignStatement actual -> {
+                object.Object val = eval(actual.value(), frame);
+                if (isError(val)) {
+                    return val;
+                }
+                if (!resolver.binding(actual.name()).assign(frame, val)) {
+                    return newError("identifier not found: " + actual.name().value());
+                }
+            }
+            case ast.WhileStatement actual -> {
+                return evalWhileStatement(actual, frame);
+            }
+            case ast.ForInStatement actual -> {
+                return evalForInStatement(actual, frame);
+            }
+            // Expressions
+            case ast.IntegerLiteral actual -> {
+                return actual.constant();
+            }
+            case ast.StringLiteral actual -> {
+                return actual.constant();
+            }
+            case ast.Boolean actual -> {
+                return nativeBoolToBooleanObject(actual.value());
+            }
+            case ast.PrefixExpression actual -> {
+                object.Object right = eval(actual.right(), frame);
+                if (isError(right)) {
+                    return right;
+                }
+                return evalPrefixExpression(actual.operator(), right);
+            }
+            case ast.InfixExpression actual -> {
+                object.Object left = eval(actual.left(), frame);
+                if (isError(left)) {
+                    return left;
+                }
+                object.Object right = eval(actual.right(), frame);
+                if (isError(right)) {
+                    return right;
+                }
+                return evalInfixExpression(actual.operator(), left, right);
+            }
+            case ast.IfExpression actual -> {
+                object.Object condition = eval(actual.condition(), frame);
+                if (isError(condition)) {
+                    return condition;
+                }
+                if (isTruthy(condition)) {
+                    return eval(actual.consequence(), frame);
+                } else if (actual.alternative() != null) {
+                    return eval(actual.alternative(), frame);
+                } else {
+                    return NULL;
+                }
+            }
+            case ast.Identifier actual -> {
+                Binding binding = resolver.binding(actual);
+                object.Object val = binding.lookup(frame);
+                if (val != null) {
+                    return val;
+                }
+                return newError("identifier not found: " + actual.value());
+            }
+            case ast.FunctionLiteral actual -> {
+                return new object.FrameFunction(actual.parameters(), actual.body(), resolver.frameSize(actual), frame);
+            }
+            case ast.CallExpression actual -> {
+                object.Object function = eval(actual.function(), frame);
+                if (isError(function)) {
+                    return function;
+                }
+                List<object.Object> args = evalExpressions(actual.arguments(), frame);
+                if (args.size() == 1 && isError(args.get(0))) {
+                    return args.get(0);
+                }
+                return applyFunction(function, args);
+            }
+            case ast.ArrayLiteral actual -> {
+                List<object.Object> elements = evalExpressions(actual.elements(), frame);
+                if (elements.size() == 1 && isError(elements.get(0))) {
+                    return elements.get(0);
+                }
+                return new object.Array(elements);
+            }
+            case ast.IndexExpression actual -> {
+                object.Object left = eval(actual.left(), frame);
+                if (isError(left)) {
+                    return left;
+                }
+                object.Object index = eval(actual.index(), frame);
+                if (isError(index)) {
+                    return index;
+                }
+                return evalIndexExpression(left, index);
+            }
+            case ast.HashLiteral actual -> {
+                return evalHashLiteral(actual, frame);
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + node);
+        }
+        return null;
+    }
+
+    private object.Object evalProgram(ast.Program program, Frame frame) {
+        object.Object result = null;
+        for (var statement : program.statements()) {
+            result = eval(statement, frame);
+            if (result instanceof object.ReturnValue returnValue) {
+                return returnValue.value();
+            }
+            if (result instanceof object.Error error) {
+                return error;
+            }
+        }
+        return result;
+    }
+
+    private object.Object evalBlockStatement(ast.BlockStatement block, Frame frame) {
+        object.Object result = null;
+        for (var statement : block.statements()) {
+            result = eval(statement, frame);
+            if (result != null) {
+                ObjectType type = result.type();
+                if (type == ObjectType.RETURN_VALUE_OBJ || type == ObjectType.ERROR_OBJ) {
+                    return result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private object.Object evalWhileStatement(ast.WhileStatement loop, Frame frame) {
+        while (true) {
+            object.Object condition = eval(loop.condition(), frame);
+            if (isError(condition)) {
+                return condition;
+            }
+            if (!isTruthy(condition)) {
+                return null;
+            }
+            object.Object result = evalBlockStatement(loop.body(), frame);
+            if (result != null) {
+                ObjectType type = result.type();
+                if (type == ObjectType.RETURN_VALUE_OBJ || type == ObjectType.ERROR_OBJ) {
+                    return result;
+                }
+            }
+        }
+    }
+
+    private object.Object evalForInStatement(ast.ForInStatement loop, Frame frame) {
+        object.Object iterable = eval(loop.iterable(), frame);
+        if (isError(iterable)) {
+            return iterable;
+        }
+        object.Object cursor = Evaluator.cursor(iterable);
+        if (isError(cursor)) {
+            return cursor;
+        }
+        int slot = resolver.binding(loop.name()).slots()[0];
+        for (object.Cursor elements = (object.Cursor) cursor; elements.hasNext(); ) {
+            frame.set(slot, elements.next());
+            object.Object result = evalBlockStatement(loop.body(), frame);
+            if (result != null) {
+                ObjectType type = result.type();
+                if (type == ObjectType.RETURN_VALUE_OBJ || type == ObjectType.ERROR_OBJ) {
+                    return result;
+                }
+            }
+        }
+        return null;
+    }
+
+    private object.Object evalHashLiteral(ast.HashLiteral node, Frame frame) {
+        Map<object.HashKey, object.HashPair> pairs = new HashMap<>();
+        for (var n : node.pairs().entrySet()) {
+            object.Object key = eval(n.getKey(), frame);
+            if (isError(key)) {
+                return key;
+            }
+            if (!(key instanceof object.HashTable hashKey)) {
+                assert key != null;
+                return newError("unusable as hash key: %s", key.type().literal());
+            }
+            object.Object value = eval(n.getValue(), frame);
+            if (isError(value)) {
+                return value;
+            }
+            pairs.put(hashKey.hashKey(), new object.HashPair(key, value));
+        }
+        return new object.Hash(pairs);
+    }
+
+    private List<object.Object> evalExpressions(List<ast.Expression> exps, Frame frame) {
+        List<object.Object> result = new ArrayList<>(exps.size());
+        for (ast.Expression expr : exps) {
+            object.Object evaluated = eval(expr, frame);
+            if (isError(evaluated)) {
+                return List.of(evaluated);
+            }
+            result.add(evaluated);
+        }
+        return result;
+    }
+
+    private object.Object applyFunction(object.Object fn, List<object.Object> args) {
+        switch (fn) {
+            case object.FrameFunction actual -> {
+                Frame frame = new Frame(actual.frameSize(), actual.frame());
+                for (int i = 0; i < actual.parameters().size(); i++) {
+                    frame.set(i, args.get(i));
+                }
+                object.Object evaluated = eval(actual.body(), frame);
+                if (evaluated instanceof object.ReturnValue returnValue) {
+                    return returnValue.value();
+                }
+                return evaluated;
+            }
+            case object.Builtin actual -> {
+                return actual.fn().exec(args.toArray(new object.Object[0]));
+            }
+            default -> {
+                return newError("not a function: %s", fn.type());
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package evaluator;
+
+// Cache of one ast.Identifier that can only read a global, kept in its slot: one at the top level,
+// or one in a function where neither that function nor any enclosing one binds the name, which
+// Captures marks. The name's object.Global is looked up once per global environment, reads then
+// skip Environment.get.
+final class GlobalSite {
+    // Replaced as a whole, so a cell is never paired with another thread's environment.
+    private record Entry(object.Environment root, object.Global cell) {
+    }
+
+    volatile boolean global;
+    private volatile Entry entry;
+
+    object.Global cell(object.Environment root, String name) {
+        Entry entry = this.entry;
+        if (entry == null || entry.root() != root) {
+            entry = new Entry(root, root.global(name));
+            this.entry = entry;
+        }
+        return entry.cell();
+    }
+
+    static GlobalSite of(ast.Identifier node) {
+        java.lang.Object site = node.slot().get();
+        return (GlobalSite) (site != null ? site : node.slot().fill(new GlobalSite()));
+    }
+}
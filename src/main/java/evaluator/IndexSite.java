@@ -0,0 +1,20 @@
+package evaluator;
+
+import object.ObjectType;
+
+// Inline cache of one ast.IndexExpression, kept in its slot: the receiver type seen last. While it
+// keeps matching, the index is looked up directly instead of going through evalIndexExpression's
+// type tests.
+final class IndexSite {
+    record Field(object.Shape shape, int offset) {
+    }
+
+    volatile ObjectType receiver;
+    // For a string literal key: the shape of the hash seen last and the key's offset in it.
+    volatile Field field;
+
+    static IndexSite of(ast.IndexExpression node) {
+        java.lang.Object site = node.slot().get();
+        return (IndexSite) (site != null ? site : node.slot().fill(new IndexSite()));
+    }
+}
@@ -0,0 +1,469 @@
+package evaluator;
+
+import object.ObjectType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static evaluator.Evaluator.NULL;
+import static evaluator.Evaluator.evalIndexExpression;
+import static evaluator.Evaluator.evalInfixExpression;
+import static evaluator.Evaluator.evalPrefixExpression;
+import static evaluator.Evaluator.isError;
+import static evaluator.Evaluator.isTruthy;
+import static evaluator.Evaluator.nativeBoolToBooleanObject;
+import static evaluator.Evaluator.newError;
+
+// Same semantics as Evaluator, but the pending work lives in a growable array of tasks on the heap
+// instead of on the Java stack, so deep non-tail recursion cannot overflow the thread. Each task
+// is one node being evaluated and remembers how far it got; the value of the child it waited for
+// is in the value field when it runs again. Literals and names are evaluated on the spot.
+//
+// Calls nest at most maxDepth deep, the call that would go further gives an error instead. Calls
+// in tail position, as Evaluator defines it, replace the frame of the function they return from.
+public final class StackEvaluator {
+    private static int maxDepth = Integer.getInteger("jmonkey.stack.maxDepth", 1_000_000);
+
+    // How a block or if treats the statements that may give its function's result.
+    private static final int NONE = 0;
+    private static final int RETURNS = 1;
+    private static final int LAST = 2;
+    // A call whose result is returned from the function that makes it.
+    private static final int TAIL = 3;
+
+    private static final class Task {
+        final ast.Node node;
+        final object.Environment env;
+        final int mode;
+        int step;
+        int index;
+        object.Object saved;
+        object.Object[] args;
+        List<object.Object> elements;
+        List<Map.Entry<ast.Expression, ast.Expression>> entries;
+        Map<object.HashKey, object.HashPair> pairs;
+        int callerBase;
+
+        Task(ast.Node node, object.Environment env, int mode) {
+            this.node = node;
+            this.env = env;
+            this.mode = mode;
+        }
+    }
+
+    private Task[] stack = new Task[64];
+    private int size;
+    // Index of the call task whose body is running, -1 at top level.
+    private int base = -1;
+    private int depth;
+    private object.Object value;
+
+    private StackEvaluator() {
+    }
+
+    public static void setMaxDepth(int maxDepth) {
+        StackEvaluator.maxDepth = maxDepth;
+    }
+
+    public static object.Object eval(ast.Node node, object.Environment env) {
+        StackEvaluator evaluator = new StackEvaluator();
+        evaluator.descend(node, env, NONE);
+        while (evaluator.size > 0) {
+            evaluator.step(evaluator.stack[evaluator.size - 1]);
+        }
+        return evaluator.value;
+    }
+
+    private void push(Task task) {
+        if (size == stack.length) {
+            Task[] grown = new Task[size * 2];
+            System.arraycopy(stack, 0, grown, 0, size);
+            stack = grown;
+        }
+        stack[size++] = task;
+    }
+
+    private void finish(object.Object result) {
+        stack[--size] = null;
+        value = result;
+    }
+
+    // The current task is done once node is, so node takes its place.
+    private void replace(ast.Node node, object.Environment env, int mode) {
+        stack[--size] = null;
+        descend(node, env, mode);
+    }
+
+    private void descend(ast.Node node, object.Environment env, int mode) {
+        switch (node) {
+            case ast.IntegerLiteral actual -> value = actual.constant();
+            case ast.StringLiteral actual -> value = actual.constant();
+            case ast.Boolean actual -> value = nativeBoolToBooleanObject(actual.value());
+            case ast.Identifier actual -> value = evalIdentifier(actual, env);
+            case ast.FunctionLiteral actual -> value = Captures.of(actual).closure(actual, env, Evaluator.NEW_FUNCTION);
+            default -> push(new Task(node, env, mode));
+        }
+    }
+
+    private void step(Task task) {
+        switch (task.node) {
+            // Statements
+            case ast.Program actual -> stepProgram(task, actual);
+            case ast.BlockStatement actual -> stepBlockStatement(task, actual);
+            case ast.ExpressionStatement actual -> replace(actual.expression(), task.env, NONE);
+            case ast.ReturnStatement actual -> {
+                if (task.step == 0) {
+                    task.step = 1;
+                    descend(actual.returnValue(), task.env, task.mode);
+                } else {
+                    finish(isError(value) ? value : new object.ReturnValue(value));
+                }
+            }
+            case ast.LetStatement actual -> {
+                if (task.step == 0) {
+                    task.step = 1;
+                    descend(actual.value(), task.env, NONE);
+                } else if (isError(value)) {
+                    finish(value);
+                } else {
+                    task.env.set(actual.name().value(), value);
+                    finish(null);
+                }
+            }
+            case ast.AssignStatement actual -> {
+                if (task.step == 0) {
+                    task.step = 1;
+                    descend(actual.value(), task.env, NONE);
+                } else if (isError(value)) {
+                    finish(value);
+                } else if (!task.env.assign(actual.name().value(), value)) {
+                    finish(newError("identifier not found: " + actual.name().value()));
+                } else {
+                    finish(null);
+                }
+            }
+            case ast.WhileStatement actual -> stepWhileStatement(task, actual);
+            case ast.ForInStatement actual -> stepForInStatement(task, actual);
+            // Expressions
+            case ast.PrefixExpression actual -> {
+                if (task.step == 0) {
+                    task.step = 1;
+                    descend(actual.right(), task.env, NONE);
+                } else {
+                    finish(isError(value) ? value : evalPrefixExpression(actual.operator(), value));
+                }
+            }
+            case ast.InfixExpression actual -> stepInfixExpression(task, actual);
+            case ast.IfExpression actual -> stepIfExpression(task, actual);
+            case ast.CallExpression actual -> stepCallExpression(task, actual);
+            case ast.ArrayLiteral actual -> stepArrayLiteral(task, actual);
+            case ast.IndexExpression actual -> stepIndexExpression(task, actual);
+            case ast.HashLiteral actual -> stepHashLiteral(task, actual);
+            default -> throw new IllegalStateException("Unexpected value: " + task.node);
+        }
+    }
+
+    private void stepProgram(Task task, ast.Program program) {
+        if (task.step == 1) {
+            if (value instanceof object.ReturnValue returnValue) {
+                finish(returnValue.value());
+                return;
+            }
+            if (value instanceof object.Error error) {
+                finish(error);
+                return;
+            }
+            task.saved = value;
+        }
+        List<ast.Statement> statements = program.statements();
+        if (task.index == statements.size()) {
+            finish(task.saved);
+            return;
+        }
+        task.step = 1;
+        descend(statements.get(task.index++), task.env, NONE);
+    }
+
+    // Mirrors Evaluator.evalTailBlock for function bodies and evalBlockStatement for the rest.
+    private void stepBlockStatement(Task task, ast.BlockStatement block) {
+        if (task.step == 1) {
+            if (value != null) {
+                ObjectType type = value.type();
+                if (type == ObjectType.RETURN_VALUE_OBJ || type == ObjectType.ERROR_OBJ) {
+                    finish(value);
+                    return;
+                }
+            }
+            task.saved = value;
+        }
+        List<ast.Statement> statements = block.statements();
+        if (task.index == statements.size()) {
+            finish(task.saved);
+            return;
+        }
+        ast.Statement statement = statements.get(task.index++);
+        task.step = 1;
+        if (task.mode == NONE) {
+            descend(statement, task.env, NONE);
+            return;
+        }
+        boolean last = task.mode == LAST && task.index == statements.size();
+        if (statement instanceof ast.ReturnStatement actual && actual.returnValue() instanceof ast.CallExpression) {
+            push(new Task(statement, task.env, TAIL));
+        } else if (statement instanceof ast.ExpressionStatement actual
+                && actual.expression() instanceof ast.IfExpression ifExpression) {
+            descend(ifExpression, task.env, last ? LAST : RETURNS);
+        } else if (last && statement instanceof ast.ExpressionStatement actual
+                && actual.expression() instanceof ast.CallExpression call) {
+            descend(call, task.env, TAIL);
+        } else {
+            descend(statement, task.env, NONE);
+        }
+    }
+
+    private void stepWhileStatement(Task task, ast.WhileStatement node) {
+        if (task.step == 2 && value != null) {
+            // The body has run.
+            ObjectType type = value.type();
+            if (type == ObjectType.RETURN_VALUE_OBJ || type == ObjectType.ERROR_OBJ) {
+                finish(value);
+                return;
+            }
+        }
+        if (task.step != 1) {
+            task.step = 1;
+            descend(node.condition(), task.env, NONE);
+        } else if (isError(value)) {
+            finish(value);
+        } else if (!isTruthy(value)) {
+            finish(null);
+        } else {
+            task.step = 2;
+            descend(node.body(), task.env, NONE);
+        }
+    }
+
+    // The cursor is kept in task.saved between iterations.
+    private void stepForInStatement(Task task, ast.ForInStatement node) {
+        switch (task.step) {
+            case 0 -> {
+                task.step = 1;
+                descend(node.iterable(), task.env, NONE);
+                return;
+            }
+            case 1 -> {
+                object.Object cursor = isError(value) ? value : Evaluator.cursor(value);
+                if (isError(cursor)) {
+                    finish(cursor);
+                    return;
+                }
+                task.saved = cursor;
+            }
+            default -> {
+                if (value != null) {
+                    ObjectType type = value.type();
+                    if (type == ObjectType.RETURN_VALUE_OBJ || type == ObjectType.ERROR_OBJ) {
+                        finish(value);
+                        return;
+                    }
+                }
+            }
+        }
+        object.Cursor cursor = (object.Cursor) task.saved;
+        if (!cursor.hasNext()) {
+            finish(null);
+            return;
+        }
+        task.env.set(node.name().value(), cursor.next());
+        task.step = 2;
+        descend(node.body(), task.env, NONE);
+    }
+
+    private void stepInfixExpression(Task task, ast.InfixExpression node) {
+        switch (task.step) {
+            case 0 -> {
+                task.step = 1;
+                descend(node.left(), task.env, NONE);
+            }
+            case 1 -> {
+                if (isError(value)) {
+                    finish(value);
+                    return;
+                }
+                task.saved = value;
+                task.step = 2;
+                descend(node.right(), task.env, NONE);
+            }
+            default -> finish(isError(value) ? value : evalInfixExpression(node.operator(), task.saved, value));
+        }
+    }
+
+    private void stepIfExpression(Task task, ast.IfExpression node) {
+        if (task.step == 0) {
+            task.step = 1;
+            descend(node.condition(), task.env, NONE);
+        } else if (isError(value)) {
+            finish(value);
+        } else if (isTruthy(value)) {
+            replace(node.consequence(), task.env, task.mode);
+        } else if (node.alternative() != null) {
+            replace(node.alternative(), task.env, task.mode);
+        } else {
+            finish(NULL);
+        }
+    }
+
+    private void stepCallExpression(Task task, ast.CallExpression node) {
+        List<ast.Expression> arguments = node.arguments();
+        switch (task.step) {
+            case 0 -> {
+                task.step = 1;
+                descend(node.function(), task.env, NONE);
+                return;
+            }
+            case 1 -> {
+                if (isError(value)) {
+                    finish(value);
+                    return;
+                }
+                task.saved = value;
+                task.args = new object.Object[arguments.size()];
+                task.step = 2;
+            }
+            case 2 -> {
+                if (isError(value)) {
+                    finish(value);
+                    return;
+                }
+                task.args[task.index++] = value;
+            }
+            default -> {
+                // The body has returned.
+                base = task.callerBase;
+                depth--;
+                finish(value instanceof object.ReturnValue returnValue ? returnValue.value() : value);
+                return;
+            }
+        }
+        if (task.index < arguments.size()) {
+            descend(arguments.get(task.index), task.env, NONE);
+            return;
+        }
+        switch (task.saved) {
+            case object.Function fn -> {
+                object.Environment env = object.Environment.newEnclosedEnvironment(fn.env());
+                List<ast.Identifier> parameters = fn.parameters();
+                for (int i = 0; i < parameters.size(); i++) {
+                    env.set(parameters.get(i).value(), task.args[i]);
+                }
+                if (task.mode == TAIL) {
+                    // Everything above the calling function's frame only passes its result on.
+                    while (size > base + 1) {
+                        stack[--size] = null;
+                    }
+                } else if (depth == maxDepth) {
+                    finish(newError("stack overflow: more than %d nested calls", maxDepth));
+                    return;
+                } else {
+                    task.step = 3;
+                    task.callerBase = base;
+                    base = size - 1;
+                    depth++;
+                }
+                push(new Task(fn.body(), env, LAST));
+            }
+            case object.Builtin fn -> finish(fn.fn().exec(task.args));
+            default -> finish(newError("not a function: %s", task.saved.type()));
+        }
+    }
+
+    private void stepArrayLiteral(Task task, ast.ArrayLiteral node) {
+        List<ast.Expression> elements = node.elements();
+        if (task.step == 0) {
+            task.step = 1;
+            task.elements = new ArrayList<>();
+        } else if (isError(value)) {
+            finish(value);
+            return;
+        } else {
+            task.elements.add(value);
+        }
+        if (task.elements.size() < elements.size()) {
+            descend(elements.get(task.elements.size()), task.env, NONE);
+        } else {
+            finish(new object.Array(task.elements));
+        }
+    }
+
+    private void stepIndexExpression(Task task, ast.IndexExpression node) {
+        switch (task.step) {
+            case 0 -> {
+                task.step = 1;
+                descend(node.left(), task.env, NONE);
+            }
+            case 1 -> {
+                if (isError(value)) {
+                    finish(value);
+                    return;
+                }
+                task.saved = value;
+                task.step = 2;
+                descend(node.index(), task.env, NONE);
+            }
+            default -> finish(isError(value) ? value : evalIndexExpression(task.saved, value));
+        }
+    }
+
+    private void stepHashLiteral(Task task, ast.HashLiteral node) {
+        switch (task.step) {
+            case 0 -> {
+                task.entries = new ArrayList<>(node.pairs().entrySet());
+                task.pairs = new HashMap<>();
+            }
+            // A key has been evaluated.
+            case 1 -> {
+                if (isError(value)) {
+                    finish(value);
+                    return;
+                }
+                if (!(value instanceof object.HashTable)) {
+                    finish(newError("unusable as hash key: %s", value.type().literal()));
+                    return;
+                }
+                task.saved = value;
+                task.step = 2;
+                descend(task.entries.get(task.index).getValue(), task.env, NONE);
+                return;
+            }
+            // Its value has been evaluated.
+            default -> {
+                if (isError(value)) {
+                    finish(value);
+                    return;
+                }
+                task.pairs.put(((object.HashTable) task.saved).hashKey(), new object.HashPair(task.saved, value));
+                task.index++;
+            }
+        }
+        if (task.index == task.entries.size()) {
+            finish(new object.Hash(task.pairs));
+            return;
+        }
+        task.step = 1;
+        descend(task.entries.get(task.index).getKey(), task.env, NONE);
+    }
+
+    private static object.Object evalIdentifier(ast.Identifier node, object.Environment env) {
+        object.Object val = env.get(node.value());
+        if (val != null) {
+            return val;
+        }
+        object.Builtin builtin = Builtins.lookup(node.value());
+        if (builtin != null) {
+            return builtin;
+        }
+        return newError("identifier not found: " + node.value());
+    }
+}
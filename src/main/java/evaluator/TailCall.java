@@ -0,0 +1,17 @@
+package evaluator;
+
+import object.ObjectType;
+
+// A call in tail position that has not been made yet. Evaluator hands it back to the
+// applyFunction loop of the function it would return from; it never reaches a script.
+record TailCall(object.Function fn, String[] parameters, object.Object[] args) implements object.Object {
+    @Override
+    public ObjectType type() {
+        return ObjectType.TAIL_CALL_OBJ;
+    }
+
+    @Override
+    public String inspect() {
+        return "tail call";
+    }
+}
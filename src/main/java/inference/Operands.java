@@ -0,0 +1,16 @@
+package inference;
+
+// Operand types of one ast.InfixExpression as proven by TypeInference, kept in its slot.
+public record Operands(Type left, Type right) {
+    private static final Operands UNPROVEN = new Operands(Type.ANY, Type.ANY);
+
+    // What TypeInference proved for the node, ANY for both until it has run.
+    public static Operands of(ast.InfixExpression node) {
+        return node.slot().get() instanceof Operands operands ? operands : UNPROVEN;
+    }
+
+    // Both operands are always integers, so they need no type check before they are unboxed.
+    public boolean integers() {
+        return left == Type.INTEGER && right == Type.INTEGER;
+    }
+}
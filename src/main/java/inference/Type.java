@@ -0,0 +1,20 @@
+package inference;
+
+// What TypeInference can prove about a value. NONE is no value seen yet, ANY is nothing proven.
+public enum Type {
+    NONE,
+    INTEGER,
+    BOOLEAN,
+    STRING,
+    ARRAY,
+    HASH,
+    FUNCTION,
+    ANY;
+
+    Type join(Type other) {
+        if (this == other || other == NONE) {
+            return this;
+        }
+        return this == NONE ? other : ANY;
+    }
+}
@@ -0,0 +1,236 @@
+package inference;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Proves the operand types of infix expressions and stores them as Operands in their slots.
+//
+// Only names local to a function are typed. A global can be rebound by any later REPL line and a
+// builtin shadowed by one, so both stay ANY. A local gets the join of every value it is bound or
+// assigned to, worked out optimistically until nothing changes. A read only has that type once a
+// let of the name has run on every path to it; before that it can still fall through to the
+// enclosing scopes. Parameters and for-in names are ANY.
+// Only final proofs are stored, never the optimistic types of an unfinished pass.
+public final class TypeInference {
+    // The names one function literal binds and the types proven for them so far.
+    private static final class Frame {
+        final Frame parent;
+        final Set<String> locals = new HashSet<>();
+        final Map<String, Type> types = new HashMap<>();
+
+        Frame(Frame parent) {
+            this.parent = parent;
+        }
+
+        Type type(String name) {
+            return types.getOrDefault(name, Type.NONE);
+        }
+    }
+
+    private final Map<ast.FunctionLiteral, Frame> frames = new IdentityHashMap<>();
+    private final Map<ast.InfixExpression, Operands> proofs = new IdentityHashMap<>();
+    private boolean changed;
+    // Return statements seen so far, a block that adds to it may end in a return value.
+    private int returns;
+
+    private TypeInference() {
+    }
+
+    public static void infer(ast.Program program) {
+        TypeInference inference = new TypeInference();
+        do {
+            inference.changed = false;
+            Set<String> assigned = new HashSet<>();
+            for (ast.Statement statement : program.statements()) {
+                inference.statement(statement, null, assigned);
+            }
+        } while (inference.changed);
+        inference.proofs.forEach((node, operands) -> node.slot().set(operands));
+    }
+
+    private void statement(ast.Statement node, Frame frame, Set<String> assigned) {
+        switch (node) {
+            case ast.LetStatement actual -> {
+                Type type = expression(actual.value(), frame, assigned);
+                if (frame != null) {
+                    bind(frame, actual.name().value(), type);
+                    assigned.add(actual.name().value());
+                }
+            }
+            case ast.AssignStatement actual -> {
+                // It rebinds whichever enclosing scope has the name bound at the time.
+                Type type = expression(actual.value(), frame, assigned);
+                for (Frame f = frame; f != null; f = f.parent) {
+                    if (f.locals.contains(actual.name().value())) {
+                        bind(f, actual.name().value(), type);
+                    }
+                }
+            }
+            case ast.ReturnStatement actual -> {
+                returns++;
+                expression(actual.returnValue(), frame, assigned);
+            }
+            case ast.ExpressionStatement actual -> expression(actual.expression(), frame, assigned);
+            case ast.BlockStatement actual -> block(actual, frame, assigned);
+            case ast.WhileStatement actual -> {
+                expression(actual.condition(), frame, assigned);
+                block(actual.body(), frame, new HashSet<>(assigned));
+            }
+            case ast.ForInStatement actual -> {
+                expression(actual.iterable(), frame, assigned);
+                if (frame != null) {
+                    bind(frame, actual.name().value(), Type.ANY);
+                }
+                Set<String> body = new HashSet<>(assigned);
+                body.add(actual.name().value());
+                block(actual.body(), frame, body);
+            }
+            default -> {
+            }
+        }
+    }
+
+    // The type of the block's value: its last expression, unless a return may end it first.
+    private Type block(ast.BlockStatement node, Frame frame, Set<String> assigned) {
+        int before = returns;
+        Type type = Type.ANY;
+        for (ast.Statement statement : node.statements()) {
+            if (statement instanceof ast.ExpressionStatement actual) {
+                type = expression(actual.expression(), frame, assigned);
+            } else {
+                statement(statement, frame, assigned);
+                type = Type.ANY;
+            }
+        }
+        return returns == before ? type : Type.ANY;
+    }
+
+    // Lets inside an expression only ever sit in an if's blocks, which work on copies, so
+    // expressions leave the assigned names as they found them.
+    private Type expression(ast.Expression node, Frame frame, Set<String> assigned) {
+        return switch (node) {
+            case null -> Type.ANY;
+            case ast.IntegerLiteral ignored -> Type.INTEGER;
+            case ast.StringLiteral ignored -> Type.STRING;
+            case ast.Boolean ignored -> Type.BOOLEAN;
+            case ast.Identifier actual -> {
+                String name = actual.value();
+                if (frame != null && frame.locals.contains(name) && assigned.contains(name)) {
+                    yield frame.type(name);
+                }
+                yield Type.ANY;
+            }
+            case ast.PrefixExpression actual -> {
+                Type right = expression(actual.right(), frame, assigned);
+                if (actual.operator().equals("!")) {
+                    yield Type.BOOLEAN;
+                }
+                yield right == Type.NONE || right == Type.INTEGER ? right : Type.ANY;
+            }
+            case ast.InfixExpression actual -> {
+                Type left = expression(actual.left(), frame, assigned);
+                Type right = expression(actual.right(), frame, assigned);
+                proofs.put(actual, new Operands(left, right));
+                yield infix(actual.operator(), left, right);
+            }
+            case ast.IfExpression actual -> {
+                expression(actual.condition(), frame, assigned);
+                Type consequence = block(actual.consequence(), frame, new HashSet<>(assigned));
+                if (actual.alternative() == null) {
+                    yield Type.ANY;
+                }
+                yield consequence.join(block(actual.alternative(), frame, new HashSet<>(assigned)));
+            }
+            case ast.FunctionLiteral actual -> {
+                function(actual, frame);
+                yield Type.FUNCTION;
+            }
+            case ast.CallExpression actual -> {
+                expression(actual.function(), frame, assigned);
+                actual.arguments().forEach(arg -> expression(arg, frame, assigned));
+                yield Type.ANY;
+            }
+            case ast.ArrayLiteral actual -> {
+                actual.elements().forEach(e -> expression(e, frame, assigned));
+                yield Type.ARRAY;
+            }
+            case ast.IndexExpression actual -> {
+                expression(actual.left(), frame, assigned);
+                expression(actual.index(), frame, assigned);
+                yield Type.ANY;
+            }
+            case ast.HashLiteral actual -> {
+                actual.pairs().forEach((key, value) -> {
+                    expression(key, frame, assigned);
+                    expression(value, frame, assigned);
+                });
+                yield Type.HASH;
+            }
+            default -> Type.ANY;
+        };
+    }
+
+    private static Type infix(String operator, Type left, Type right) {
+        if (left == Type.NONE || right == Type.NONE) {
+            return Type.NONE;
+        }
+        boolean integers = left == Type.INTEGER && right == Type.INTEGER;
+        return switch (operator) {
+            case "+" -> integers ? Type.INTEGER : left == Type.STRING && right == Type.STRING ? Type.STRING : Type.ANY;
+            case "-", "*", "/" -> integers ? Type.INTEGER : Type.ANY;
+            case "<", ">" -> integers ? Type.BOOLEAN : Type.ANY;
+            case "==", "!=" -> Type.BOOLEAN;
+            default -> Type.ANY;
+        };
+    }
+
+    private void function(ast.FunctionLiteral literal, Frame enclosing) {
+        Frame frame = frames.get(literal);
+        if (frame == null) {
+            frame = new Frame(enclosing);
+            for (ast.Identifier parameter : literal.parameters()) {
+                frame.locals.add(parameter.value());
+                frame.types.put(parameter.value(), Type.ANY);
+            }
+            declare(literal.body(), frame);
+            frames.put(literal, frame);
+        }
+        int before = returns;
+        block(literal.body(), frame, new HashSet<>());
+        returns = before;
+    }
+
+    // Lets and for-in names anywhere in the body bind in the function's own scope.
+    private static void declare(ast.Node node, Frame frame) {
+        switch (node) {
+            case ast.BlockStatement actual -> actual.statements().forEach(s -> declare(s, frame));
+            case ast.LetStatement actual -> frame.locals.add(actual.name().value());
+            case ast.ForInStatement actual -> {
+                frame.locals.add(actual.name().value());
+                declare(actual.body(), frame);
+            }
+            case ast.WhileStatement actual -> declare(actual.body(), frame);
+            case ast.ExpressionStatement actual -> declare(actual.expression(), frame);
+            case ast.IfExpression actual -> {
+                declare(actual.consequence(), frame);
+                if (actual.alternative() != null) {
+                    declare(actual.alternative(), frame);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void bind(Frame frame, String name, Type type) {
+        Type old = frame.type(name);
+        Type joined = old.join(type);
+        if (joined != old) {
+            frame.types.put(name, joined);
+            changed = true;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package jit;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Two tiers: the Evaluator interprets every function first, and once a function's invocation or
+// back-edge counter crosses its threshold it is queued for the compiler thread. The interpreter
+// keeps running it meanwhile; the compiled code is published through a volatile field and used
+// from the next call on. Evaluator.applyFunction asks invoke() first and interprets the function
+// itself whenever it returns null.
+public final class Jit {
+    private static boolean enabled = Boolean.parseBoolean(System.getProperty("jmonkey.jit", "true"));
+    private static boolean background = Boolean.parseBoolean(System.getProperty("jmonkey.jit.background", "true"));
+    private static int threshold = Integer.getInteger("jmonkey.jit.threshold", 1000);
+    private static int backEdgeThreshold = Integer.getInteger("jmonkey.jit.backEdgeThreshold", 2000);
+    private static final ExecutorService compiler = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "jmonkey-jit");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Jit() {
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Jit.enabled = enabled;
+    }
+
+    // With background compilation off, a hot function is compiled on the spot, before its next call.
+    public static void setBackground(boolean background) {
+        Jit.background = background;
+    }
+
+    // Number of calls from outside the function before it is compiled.
+    public static void setThreshold(int threshold) {
+        Jit.threshold = threshold;
+    }
+
+    // Number of recursive calls before the function is compiled.
+    public static void setBackEdgeThreshold(int backEdgeThreshold) {
+        Jit.backEdgeThreshold = backEdgeThreshold;
+    }
+
+    public static boolean isCompiled(object.Function fn) {
+        return fn.profile().code != null;
+    }
+
+    // Waits until every function queued so far has been compiled or given up on.
+    public static void awaitCompilation() throws InterruptedException {
+        try {
+            compiler.submit(() -> {
+            }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public static object.Object invoke(object.Function fn, object.Object[] args) {
+        Profile profile = fn.profile();
+        NativeCode code = profile.code;
+        if (code == null) {
+            if (profile.isActive()) {
+                profile.backEdges++;
+            } else {
+                profile.invocations++;
+            }
+            if (!enabled || profile.failed || !isHot(profile) || !profile.queued.compareAndSet(false, true)) {
+                return null;
+            }
+            // The environment is not safe to read from the compiler thread.
+            Set<String> selfNames = Translator.selfNames(fn);
+            if (background) {
+                compiler.execute(() -> compile(fn, selfNames, profile));
+                return null;
+            }
+            code = compile(fn, selfNames, profile);
+            if (code == null) {
+                return null;
+            }
+        }
+        // The compiled code only knows about integer arguments and its own name.
+        if (args.length != fn.parameters().size()) {
+            return null;
+        }
+        for (object.Object arg : args) {
+            if (!(arg instanceof object.Integer)) {
+                return null;
+            }
+        }
+        if (profile.selfName != null && !isSelf(fn, profile)) {
+            return null;
+        }
+        return code.call(args);
+    }
+
+    // Whether the compiled self calls still reach fn. A stable global that held fn still does,
+    // so once one is found the check is a field read until the name is bound again.
+    private static boolean isSelf(object.Function fn, Profile profile) {
+        object.Global global = profile.selfGlobal;
+        if (global != null && global.stable()) {
+            return true;
+        }
+        object.Environment env = fn.env();
+        if (env.get(profile.selfName) != fn) {
+            return false;
+        }
+        if (global == null && env == env.root() && env.global(profile.selfName).stable()) {
+            profile.selfGlobal = env.global(profile.selfName);
+        }
+        return true;
+    }
+
+    private static boolean isHot(Profile profile) {
+        return profile.invocations >= threshold || profile.backEdges >= backEdgeThreshold;
+    }
+
+    private static NativeCode compile(object.Function fn, Set<String> selfNames, Profile profile) {
+        Translator translator = new Translator(fn, selfNames);
+        byte[] bytes = translator.translate();
+        if (bytes == null) {
+            profile.failed = true;
+            return null;
+        }
+        profile.selfName = translator.selfName();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            profile.code = (NativeCode) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (Throwable e) {
+            // A class the verifier rejects is a translator bug, the interpreter is still correct.
+            profile.failed = true;
+            return null;
+        }
+        return profile.code;
+    }
+}
@@ -0,0 +1,6 @@
+package jit;
+
+// Implemented by the hidden classes the translator generates.
+public interface NativeCode {
+    object.Object call(object.Object[] args);
+}
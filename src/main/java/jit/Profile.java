@@ -0,0 +1,33 @@
+package jit;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Per object.Function JIT state, created together with the function.
+// The counters are only touched by the interpreting thread and may be slightly off; code and
+// failed are written by the compiler thread.
+public final class Profile {
+    int invocations;
+    // Calls made while the function is already running: recursion is Monkey's only loop.
+    int backEdges;
+    private int active;
+    final AtomicBoolean queued = new AtomicBoolean();
+    volatile boolean failed;
+    // The name the function calls itself by, checked on entry because the binding could change.
+    // Written before code, so it is visible to whoever sees the code.
+    String selfName;
+    // The global selfName was bound to fn in, while it stays stable; only the interpreter touches it.
+    object.Global selfGlobal;
+    volatile NativeCode code;
+
+    public void enter() {
+        active++;
+    }
+
+    public void exit() {
+        active--;
+    }
+
+    boolean isActive() {
+        return active > 0;
+    }
+}
@@ -0,0 +1,420 @@
+package jit;
+
+import classfile.ClassWriter;
+import classfile.Code;
+import classfile.ConstantPool;
+import classfile.Label;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Translates a Monkey function to a hidden class whose static "run" method works on unboxed ints.
+// Only a small subset is supported: integer parameters, integer and boolean arithmetic, if,
+// top-level lets, returns and calls of the function to itself. Anything else makes translate()
+// return null and the function stays interpreted.
+class Translator {
+    static final String CLASS_NAME = "jit/MonkeyFunction";
+    private static final String OBJECT = "object/Object";
+    private static final String INTEGER = "object/Integer";
+    private static final String BOOLEAN = "object/Boolean";
+
+    private enum Type { INT, BOOL }
+
+    private final object.Function fn;
+    private final Set<String> selfNames;
+    private final ClassWriter writer = new ClassWriter(CLASS_NAME, "java/lang/Object", "jit/NativeCode");
+    private final Map<String, Local> locals = new HashMap<>();
+    private final String runDescriptor;
+    private Code code;
+    private Type returnType;
+    private String selfName;
+    // Set once a self call's result is used, tail calls jump back to the start instead.
+    private boolean selfResult;
+    private final Label start = new Label();
+
+    private record Local(int slot, Type type) {
+    }
+
+    private static class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+
+    // Translation may run on the compiler thread, so the environment is only read up front, by selfNames().
+    Translator(object.Function fn, Set<String> selfNames) {
+        this.fn = fn;
+        this.selfNames = selfNames;
+        this.runDescriptor = "(" + "I".repeat(fn.parameters().size()) + ")I";
+    }
+
+    // The name of the function's recursive calls, null if it makes none.
+    String selfName() {
+        return selfName;
+    }
+
+    // Names called in the body that are bound to fn itself right now.
+    static Set<String> selfNames(object.Function fn) {
+        Set<String> callees = new HashSet<>();
+        collectCallees(fn.body(), callees);
+        callees.removeIf(name -> fn.env() == null || fn.env().get(name) != fn);
+        return callees;
+    }
+
+    private static void collectCallees(ast.Node node, Set<String> callees) {
+        switch (node) {
+            case ast.BlockStatement actual -> actual.statements().forEach(s -> collectCallees(s, callees));
+            case ast.ExpressionStatement actual -> collectCallees(actual.expression(), callees);
+            case ast.ReturnStatement actual -> collectCallees(actual.returnValue(), callees);
+            case ast.LetStatement actual -> collectCallees(actual.value(), callees);
+            case ast.PrefixExpression actual -> collectCallees(actual.right(), callees);
+            case ast.InfixExpression actual -> {
+                collectCallees(actual.left(), callees);
+                collectCallees(actual.right(), callees);
+            }
+            case ast.IfExpression actual -> {
+                collectCallees(actual.condition(), callees);
+                collectCallees(actual.consequence(), callees);
+                if (actual.alternative() != null) {
+                    collectCallees(actual.alternative(), callees);
+                }
+            }
+            case ast.CallExpression actual -> {
+                if (actual.function() instanceof ast.Identifier callee) {
+                    callees.add(callee.value());
+                }
+                actual.arguments().forEach(arg -> collectCallees(arg, callees));
+            }
+            default -> {
+                // Nothing else can be translated, the translator gives up on it anyway.
+            }
+        }
+    }
+
+    byte[] translate() {
+        try {
+            translateRun();
+            translateCall();
+            translateConstructor();
+        } catch (Unsupported e) {
+            return null;
+        }
+        return writer.toByteArray();
+    }
+
+    private void translateRun() {
+        List<ast.Identifier> parameters = fn.parameters();
+        code = new Code(parameters.size());
+        for (int i = 0; i < parameters.size(); i++) {
+            locals.put(parameters.get(i).value(), new Local(i, Type.INT));
+        }
+        List<ast.Statement> statements = fn.body().statements();
+        if (statements.isEmpty()) {
+            throw new Unsupported();
+        }
+        code.mark(start);
+        for (int i = 0; i < statements.size(); i++) {
+            boolean last = i == statements.size() - 1;
+            if (statements.get(i) instanceof ast.LetStatement let && !last) {
+                Type type = expression(let.value());
+                Local local = locals.get(let.name().value());
+                if (local != null && local.type() != type) {
+                    throw new Unsupported();
+                }
+                if (local == null) {
+                    local = new Local(code.maxLocals, type);
+                    locals.put(let.name().value(), local);
+                }
+                code.local(Code.ISTORE, local.slot(), -1);
+            } else {
+                statement(statements.get(i), last);
+            }
+        }
+        // Self calls were compiled assuming an int result.
+        if (returnType == null || selfResult && returnType != Type.INT) {
+            throw new Unsupported();
+        }
+        if (code.length() > Short.MAX_VALUE) {
+            throw new Unsupported();
+        }
+        writer.method(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, "run", runDescriptor, code);
+    }
+
+    // Unboxes the arguments, the caller has checked they are all integers.
+    private void translateCall() {
+        ConstantPool pool = writer.pool;
+        int parameters = fn.parameters().size();
+        code = new Code(2);
+        for (int i = 0; i < parameters; i++) {
+            code.local(Code.ALOAD, 1, 1);
+            code.pushInt(i, pool);
+            code.op(Code.AALOAD, -1);
+            code.op(Code.CHECKCAST, pool.classRef(INTEGER), 0);
+            code.op(Code.INVOKEVIRTUAL, pool.methodRef(INTEGER, "value", "()I"), 0);
+        }
+        code.op(Code.INVOKESTATIC, pool.methodRef(CLASS_NAME, "run", runDescriptor), 1 - parameters);
+        if (returnType == Type.INT) {
+            // Boxed like the interpreters box, so small results are the cached objects.
+            code.op(Code.INVOKESTATIC, pool.methodRef(INTEGER, "valueOf", "(I)L" + INTEGER + ";"), 0);
+            code.op(Code.ARETURN, -1);
+        } else {
+            Label isFalse = new Label();
+            code.jump(Code.IFEQ, isFalse, -1);
+            code.op(Code.GETSTATIC, pool.fieldRef("evaluator/Evaluator", "TRUE", "L" + BOOLEAN + ";"), 1);
+            code.op(Code.ARETURN, -1);
+            code.mark(isFalse);
+            code.op(Code.GETSTATIC, pool.fieldRef("evaluator/Evaluator", "FALSE", "L" + BOOLEAN + ";"), 1);
+            code.op(Code.ARETURN, -1);
+        }
+        writer.method(ClassWriter.ACC_PUBLIC, "call", "([L" + OBJECT + ";)L" + OBJECT + ";", code);
+    }
+
+    private void translateConstructor() {
+        code = new Code(1);
+        code.local(Code.ALOAD, 0, 1);
+        code.op(Code.INVOKESPECIAL, writer.pool.methodRef("java/lang/Object", "<init>", "()V"), -1);
+        code.op(Code.RETURN, 0);
+        writer.method(ClassWriter.ACC_PUBLIC, "<init>", "()V", code);
+    }
+
+    // A statement in tail position returns its value, other statements discard it.
+    private void statement(ast.Statement statement, boolean tail) {
+        switch (statement) {
+            case ast.ReturnStatement actual -> ret(actual.returnValue());
+            case ast.ExpressionStatement actual -> {
+                if (actual.expression() instanceof ast.IfExpression ifExpression) {
+                    ifStatement(ifExpression, tail);
+                } else if (tail) {
+                    ret(actual.expression());
+                } else {
+                    expression(actual.expression());
+                    code.op(Code.POP, -1);
+                }
+            }
+            // A let as last statement leaves no value, and lets inside blocks may stay unbound.
+            default -> throw new Unsupported();
+        }
+    }
+
+    private void block(ast.BlockStatement block, boolean tail) {
+        List<ast.Statement> statements = block.statements();
+        if (tail && statements.isEmpty()) {
+            throw new Unsupported();
+        }
+        for (int i = 0; i < statements.size(); i++) {
+            statement(statements.get(i), tail && i == statements.size() - 1);
+        }
+    }
+
+    private void ifStatement(ast.IfExpression node, boolean tail) {
+        if (tail && node.alternative() == null) {
+            throw new Unsupported();
+        }
+        if (expression(node.condition()) == Type.INT) {
+            // Integers are always truthy.
+            code.op(Code.POP, -1);
+            block(node.consequence(), tail);
+            return;
+        }
+        Label otherwise = new Label();
+        Label end = new Label();
+        code.jump(Code.IFEQ, otherwise, -1);
+        block(node.consequence(), tail);
+        if (!tail) {
+            code.jump(Code.GOTO, end, 0);
+        }
+        code.unreachable();
+        code.mark(otherwise);
+        if (node.alternative() != null) {
+            block(node.alternative(), tail);
+        }
+        code.mark(end);
+    }
+
+    // A self call whose result is returned reuses the frame: the new arguments replace the
+    // parameters and the body starts over, the way Evaluator runs tail calls.
+    private void ret(ast.Expression expression) {
+        if (expression instanceof ast.CallExpression call) {
+            int parameters = selfCallArguments(call);
+            for (int i = parameters - 1; i >= 0; i--) {
+                code.local(Code.ISTORE, i, -1);
+            }
+            code.jump(Code.GOTO, start, 0);
+            code.unreachable();
+            return;
+        }
+        ret(expression(expression));
+    }
+
+    private void ret(Type type) {
+        if (returnType != null && returnType != type) {
+            throw new Unsupported();
+        }
+        returnType = type;
+        code.op(Code.IRETURN, -1);
+        code.unreachable();
+    }
+
+    private Type expression(ast.Expression expression) {
+        switch (expression) {
+            case ast.IntegerLiteral actual -> {
+                code.pushInt(actual.value(), writer.pool);
+                return Type.INT;
+            }
+            case ast.Boolean actual -> {
+                code.op(actual.value() ? Code.ICONST_1 : Code.ICONST_0, 1);
+                return Type.BOOL;
+            }
+            case ast.Identifier actual -> {
+                Local local = locals.get(actual.value());
+                if (local == null) {
+                    throw new Unsupported();
+                }
+                code.local(Code.ILOAD, local.slot(), 1);
+                return local.type();
+            }
+            case ast.PrefixExpression actual -> {
+                Type type = expression(actual.right());
+                switch (actual.operator()) {
+                    case "-" -> {
+                        if (type != Type.INT) {
+                            throw new Unsupported();
+                        }
+                        code.op(Code.INEG, 0);
+                        return Type.INT;
+                    }
+                    case "!" -> {
+                        if (type == Type.INT) {
+                            // !5 is false, like any other truthy value.
+                            code.op(Code.POP, -1);
+                            code.op(Code.ICONST_0, 1);
+                        } else {
+                            code.op(Code.ICONST_1, 1);
+                            code.op(Code.IXOR, -1);
+                        }
+                        return Type.BOOL;
+                    }
+                    default -> throw new Unsupported();
+                }
+            }
+            case ast.InfixExpression actual -> {
+                return infix(actual);
+            }
+            case ast.IfExpression actual -> {
+                return ifExpression(actual);
+            }
+            case ast.CallExpression actual -> {
+                return selfCall(actual);
+            }
+            default -> throw new Unsupported();
+        }
+    }
+
+    private Type infix(ast.InfixExpression node) {
+        Type left = expression(node.left());
+        Type right = expression(node.right());
+        if (left != right) {
+            throw new Unsupported();
+        }
+        if (left == Type.INT) {
+            switch (node.operator()) {
+                case "+" -> code.op(Code.IADD, -1);
+                case "-" -> code.op(Code.ISUB, -1);
+                case "*" -> code.op(Code.IMUL, -1);
+                case "/" -> code.op(Code.IDIV, -1);
+                case "<" -> compare(Code.IF_ICMPLT);
+                case ">" -> compare(Code.IF_ICMPGT);
+                case "==" -> compare(Code.IF_ICMPEQ);
+                case "!=" -> compare(Code.IF_ICMPNE);
+                default -> throw new Unsupported();
+            }
+            return switch (node.operator()) {
+                case "+", "-", "*", "/" -> Type.INT;
+                default -> Type.BOOL;
+            };
+        }
+        switch (node.operator()) {
+            case "==" -> compare(Code.IF_ICMPEQ);
+            case "!=" -> compare(Code.IF_ICMPNE);
+            default -> throw new Unsupported();
+        }
+        return Type.BOOL;
+    }
+
+    // Turns the two ints on the stack into 1 or 0.
+    private void compare(int opcode) {
+        Label isTrue = new Label();
+        Label end = new Label();
+        code.jump(opcode, isTrue, -2);
+        code.op(Code.ICONST_0, 1);
+        code.jump(Code.GOTO, end, 0);
+        code.unreachable();
+        code.mark(isTrue);
+        code.op(Code.ICONST_1, 1);
+        code.mark(end);
+    }
+
+    // Only "if (c) { a } else { b }" with single expression branches has a value here.
+    private Type ifExpression(ast.IfExpression node) {
+        ast.Expression consequence = singleExpression(node.consequence());
+        ast.Expression alternative = singleExpression(node.alternative());
+        if (expression(node.condition()) == Type.INT) {
+            code.op(Code.POP, -1);
+            return expression(consequence);
+        }
+        Label otherwise = new Label();
+        Label end = new Label();
+        code.jump(Code.IFEQ, otherwise, -1);
+        Type type = expression(consequence);
+        code.jump(Code.GOTO, end, 0);
+        code.unreachable();
+        code.mark(otherwise);
+        if (expression(alternative) != type) {
+            throw new Unsupported();
+        }
+        code.mark(end);
+        return type;
+    }
+
+    private static ast.Expression singleExpression(ast.BlockStatement block) {
+        if (block != null && block.statements().size() == 1
+                && block.statements().get(0) instanceof ast.ExpressionStatement statement) {
+            return statement.expression();
+        }
+        throw new Unsupported();
+    }
+
+    private Type selfCall(ast.CallExpression node) {
+        int parameters = selfCallArguments(node);
+        selfResult = true;
+        code.op(Code.INVOKESTATIC, writer.pool.methodRef(CLASS_NAME, "run", runDescriptor), 1 - parameters);
+        return Type.INT;
+    }
+
+    // Pushes the arguments of a call to the function itself, returns how many there are.
+    private int selfCallArguments(ast.CallExpression node) {
+        if (!(node.function() instanceof ast.Identifier callee) || locals.containsKey(callee.value())) {
+            throw new Unsupported();
+        }
+        // Only a name bound to this very function object, which Jit checks again on every entry.
+        if (!selfNames.contains(callee.value()) || (selfName != null && !selfName.equals(callee.value()))) {
+            throw new Unsupported();
+        }
+        List<ast.Expression> arguments = node.arguments();
+        if (arguments.size() != fn.parameters().size()) {
+            throw new Unsupported();
+        }
+        for (ast.Expression argument : arguments) {
+            if (expression(argument) != Type.INT) {
+                throw new Unsupported();
+            }
+        }
+        selfName = callee.value();
+        return arguments.size();
+    }
+}
@@ -0,0 +1,37 @@
+package nodes;
+
+import object.Frame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static evaluator.Evaluator.isError;
+
+class ArrayLiteralNode extends Node {
+    private final Node[] elements;
+
+    ArrayLiteralNode(Node[] elements) {
+        this.elements = elements;
+        for (var e : elements) {
+            adopt(e);
+        }
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        List<object.Object> values = new ArrayList<>(elements.length);
+        for (var element : elements) {
+            object.Object val = element.execute(frame);
+            if (isError(val)) {
+                return val;
+            }
+            values.add(val);
+        }
+        return new object.Array(values);
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        replaceIn(elements, oldChild, newChild);
+    }
+}
@@ -0,0 +1,34 @@
+package nodes;
+
+import object.Frame;
+import resolver.Binding;
+
+import static evaluator.Evaluator.isError;
+import static evaluator.Evaluator.newError;
+
+class AssignNode extends Node {
+    private final Binding binding;
+    private Node value;
+
+    AssignNode(Binding binding, Node value) {
+        this.binding = binding;
+        this.value = adopt(value);
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        object.Object val = value.execute(frame);
+        if (isError(val)) {
+            return val;
+        }
+        if (!binding.assign(frame, val)) {
+            return newError("identifier not found: " + binding.name());
+        }
+        return null;
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        value = newChild;
+    }
+}
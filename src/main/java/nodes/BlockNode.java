@@ -0,0 +1,35 @@
+package nodes;
+
+import object.Frame;
+import object.ObjectType;
+
+class BlockNode extends Node {
+    private final Node[] statements;
+
+    BlockNode(Node[] statements) {
+        this.statements = statements;
+        for (var s : statements) {
+            adopt(s);
+        }
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        object.Object result = null;
+        for (var statement : statements) {
+            result = statement.execute(frame);
+            if (result != null) {
+                ObjectType type = result.type();
+                if (type == ObjectType.RETURN_VALUE_OBJ || type == ObjectType.ERROR_OBJ) {
+                    return result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        replaceIn(statements, oldChild, newChild);
+    }
+}
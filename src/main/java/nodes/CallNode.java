@@ -0,0 +1,118 @@
+package nodes;
+
+import object.Frame;
+
+import static evaluator.Evaluator.isError;
+import static evaluator.Evaluator.newError;
+
+// Specializes on the callee: functions built by this engine, or builtins.
+abstract class CallNode extends Node {
+    Node function;
+    final Node[] arguments;
+
+    CallNode(Node function, Node[] arguments) {
+        this.function = adopt(function);
+        this.arguments = arguments;
+        for (var arg : arguments) {
+            adopt(arg);
+        }
+    }
+
+    static CallNode create(Node function, Node[] arguments) {
+        return new UninitializedCallNode(function, arguments);
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        object.Object fn = function.execute(frame);
+        if (isError(fn)) {
+            return fn;
+        }
+        object.Object[] args = new object.Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            object.Object arg = arguments[i].execute(frame);
+            if (isError(arg)) {
+                return arg;
+            }
+            args[i] = arg;
+        }
+        return executeWith(fn, args);
+    }
+
+    abstract object.Object executeWith(object.Object fn, object.Object[] args);
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (oldChild == function) {
+            function = newChild;
+        } else {
+            replaceIn(arguments, oldChild, newChild);
+        }
+    }
+
+    object.Object deoptimize(object.Object fn, object.Object[] args) {
+        return ((CallNode) replace(() -> new GenericCallNode(function, arguments))).executeWith(fn, args);
+    }
+
+    static final class UninitializedCallNode extends CallNode {
+        UninitializedCallNode(Node function, Node[] arguments) {
+            super(function, arguments);
+        }
+
+        @Override
+        object.Object executeWith(object.Object fn, object.Object[] args) {
+            return ((CallNode) replace(() -> specialize(fn))).executeWith(fn, args);
+        }
+
+        private CallNode specialize(object.Object fn) {
+            return switch (fn) {
+                case NodeFunction ignored -> new FunctionCallNode(function, arguments);
+                case object.Builtin ignored -> new BuiltinCallNode(function, arguments);
+                default -> new GenericCallNode(function, arguments);
+            };
+        }
+    }
+
+    static final class FunctionCallNode extends CallNode {
+        FunctionCallNode(Node function, Node[] arguments) {
+            super(function, arguments);
+        }
+
+        @Override
+        object.Object executeWith(object.Object fn, object.Object[] args) {
+            if (fn instanceof NodeFunction actual) {
+                return actual.call(args);
+            }
+            return deoptimize(fn, args);
+        }
+    }
+
+    static final class BuiltinCallNode extends CallNode {
+        BuiltinCallNode(Node function, Node[] arguments) {
+            super(function, arguments);
+        }
+
+        @Override
+        object.Object executeWith(object.Object fn, object.Object[] args) {
+            if (fn instanceof object.Builtin actual) {
+                return actual.fn().exec(args);
+            }
+            return deoptimize(fn, args);
+        }
+    }
+
+    static final class GenericCallNode extends CallNode {
+        GenericCallNode(Node function, Node[] arguments) {
+            super(function, arguments);
+        }
+
+        @Override
+        object.Object executeWith(object.Object fn, object.Object[] args) {
+            return switch (fn) {
+                case NodeFunction actual -> actual.call(args);
+                case object.Builtin actual -> actual.fn().exec(args);
+                default -> newError("not a function: %s", fn.type());
+            };
+        }
+    }
+}
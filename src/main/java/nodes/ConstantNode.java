@@ -0,0 +1,16 @@
+package nodes;
+
+import object.Frame;
+
+class ConstantNode extends Node {
+    private final object.Object value;
+
+    ConstantNode(object.Object value) {
+        this.value = value;
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        return value;
+    }
+}
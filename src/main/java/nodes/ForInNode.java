@@ -0,0 +1,51 @@
+package nodes;
+
+import evaluator.Evaluator;
+import object.Frame;
+import object.ObjectType;
+
+import static evaluator.Evaluator.isError;
+
+class ForInNode extends Node {
+    private final int slot;
+    private Node iterable;
+    private Node body;
+
+    ForInNode(int slot, Node iterable, Node body) {
+        this.slot = slot;
+        this.iterable = adopt(iterable);
+        this.body = adopt(body);
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        object.Object value = iterable.execute(frame);
+        if (isError(value)) {
+            return value;
+        }
+        object.Object cursor = Evaluator.cursor(value);
+        if (isError(cursor)) {
+            return cursor;
+        }
+        for (object.Cursor elements = (object.Cursor) cursor; elements.hasNext(); ) {
+            frame.set(slot, elements.next());
+            object.Object result = body.execute(frame);
+            if (result != null) {
+                ObjectType type = result.type();
+                if (type == ObjectType.RETURN_VALUE_OBJ || type == ObjectType.ERROR_OBJ) {
+                    return result;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (oldChild == iterable) {
+            iterable = newChild;
+        } else {
+            body = newChild;
+        }
+    }
+}
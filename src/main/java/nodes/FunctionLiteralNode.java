@@ -0,0 +1,26 @@
+package nodes;
+
+import object.Frame;
+
+// The body is built once per literal, so every closure made from it shares its specializations.
+class FunctionLiteralNode extends Node {
+    final ast.FunctionLiteral literal;
+    final int frameSize;
+    Node body;
+
+    FunctionLiteralNode(ast.FunctionLiteral literal, int frameSize, Node body) {
+        this.literal = literal;
+        this.frameSize = frameSize;
+        this.body = adopt(body);
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        return new NodeFunction(this, frame);
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        body = newChild;
+    }
+}
@@ -0,0 +1,54 @@
+package nodes;
+
+import object.Frame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static evaluator.Evaluator.isError;
+import static evaluator.Evaluator.newError;
+
+class HashLiteralNode extends Node {
+    private final Node[] keys;
+    private final Node[] values;
+
+    HashLiteralNode(Node[] keys, Node[] values) {
+        this.keys = keys;
+        this.values = values;
+        for (int i = 0; i < keys.length; i++) {
+            adopt(keys[i]);
+            adopt(values[i]);
+        }
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        Map<object.HashKey, object.HashPair> pairs = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            object.Object key = keys[i].execute(frame);
+            if (isError(key)) {
+                return key;
+            }
+            if (!(key instanceof object.HashTable hashKey)) {
+                return newError("unusable as hash key: %s", key.type().literal());
+            }
+            object.Object value = values[i].execute(frame);
+            if (isError(value)) {
+                return value;
+            }
+            pairs.put(hashKey.hashKey(), new object.HashPair(key, value));
+        }
+        return new object.Hash(pairs);
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == oldChild) {
+                keys[i] = newChild;
+                return;
+            }
+        }
+        replaceIn(values, oldChild, newChild);
+    }
+}
@@ -0,0 +1,23 @@
+package nodes;
+
+import object.Frame;
+import resolver.Binding;
+
+import static evaluator.Evaluator.newError;
+
+class IdentifierNode extends Node {
+    private final Binding binding;
+
+    IdentifierNode(Binding binding) {
+        this.binding = binding;
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        object.Object val = binding.lookup(frame);
+        if (val != null) {
+            return val;
+        }
+        return newError("identifier not found: " + binding.name());
+    }
+}
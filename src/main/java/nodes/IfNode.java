@@ -0,0 +1,45 @@
+package nodes;
+
+import object.Frame;
+
+import static evaluator.Evaluator.NULL;
+import static evaluator.Evaluator.isError;
+import static evaluator.Evaluator.isTruthy;
+
+class IfNode extends Node {
+    private Node condition;
+    private Node consequence;
+    private Node alternative;
+
+    IfNode(Node condition, Node consequence, Node alternative) {
+        this.condition = adopt(condition);
+        this.consequence = adopt(consequence);
+        this.alternative = adopt(alternative);
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        object.Object cond = condition.execute(frame);
+        if (isError(cond)) {
+            return cond;
+        }
+        if (isTruthy(cond)) {
+            return consequence.execute(frame);
+        } else if (alternative != null) {
+            return alternative.execute(frame);
+        } else {
+            return NULL;
+        }
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (oldChild == condition) {
+            condition = newChild;
+        } else if (oldChild == consequence) {
+            consequence = newChild;
+        } else {
+            alternative = newChild;
+        }
+    }
+}
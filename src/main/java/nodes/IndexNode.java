@@ -0,0 +1,125 @@
+package nodes;
+
+import evaluator.Evaluator;
+import object.Frame;
+
+import java.util.List;
+
+import static evaluator.Evaluator.NULL;
+import static evaluator.Evaluator.isError;
+import static evaluator.Evaluator.newError;
+
+// Specializes on the receiver: arrays indexed by integers, or hashes.
+abstract class IndexNode extends Node {
+    Node left;
+    Node index;
+
+    IndexNode(Node left, Node index) {
+        this.left = adopt(left);
+        this.index = adopt(index);
+    }
+
+    static IndexNode create(Node left, Node index) {
+        return new UninitializedIndexNode(left, index);
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        object.Object l = left.execute(frame);
+        if (isError(l)) {
+            return l;
+        }
+        object.Object i = index.execute(frame);
+        if (isError(i)) {
+            return i;
+        }
+        return executeWith(l, i);
+    }
+
+    abstract object.Object executeWith(object.Object l, object.Object i);
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (oldChild == left) {
+            left = newChild;
+        } else {
+            index = newChild;
+        }
+    }
+
+    object.Object deoptimize(object.Object l, object.Object i) {
+        return ((IndexNode) replace(() -> new GenericIndexNode(left, index))).executeWith(l, i);
+    }
+
+    static final class UninitializedIndexNode extends IndexNode {
+        UninitializedIndexNode(Node left, Node index) {
+            super(left, index);
+        }
+
+        @Override
+        object.Object executeWith(object.Object l, object.Object i) {
+            return ((IndexNode) replace(() -> specialize(l, i))).executeWith(l, i);
+        }
+
+        private IndexNode specialize(object.Object l, object.Object i) {
+            if (l instanceof object.Array && i instanceof object.Integer) {
+                return new ArrayIndexNode(left, index);
+            } else if (l instanceof object.Hash) {
+                return new HashIndexNode(left, index);
+            } else {
+                return new GenericIndexNode(left, index);
+            }
+        }
+    }
+
+    static final class ArrayIndexNode extends IndexNode {
+        ArrayIndexNode(Node left, Node index) {
+            super(left, index);
+        }
+
+        @Override
+        object.Object executeWith(object.Object l, object.Object i) {
+            if (l instanceof object.Array array && i instanceof object.Integer integer) {
+                List<object.Object> elements = array.elements();
+                int idx = integer.value();
+                if (idx < 0 || idx >= elements.size()) {
+                    return NULL;
+                }
+                return elements.get(idx);
+            }
+            return deoptimize(l, i);
+        }
+    }
+
+    static final class HashIndexNode extends IndexNode {
+        HashIndexNode(Node left, Node index) {
+            super(left, index);
+        }
+
+        @Override
+        object.Object executeWith(object.Object l, object.Object i) {
+            if (l instanceof object.Hash hash) {
+                if (!(i instanceof object.HashTable key)) {
+                    return newError("unusable as hash key: %s", i.type());
+                }
+                object.HashPair pair = hash.pairs().get(key.hashKey());
+                if (pair == null) {
+                    return NULL;
+                }
+                return pair.value();
+            }
+            return deoptimize(l, i);
+        }
+    }
+
+    static final class GenericIndexNode extends IndexNode {
+        GenericIndexNode(Node left, Node index) {
+            super(left, index);
+        }
+
+        @Override
+        object.Object executeWith(object.Object l, object.Object i) {
+            return Evaluator.evalIndexExpression(l, i);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package nodes;
+
+import evaluator.Evaluator;
+import object.Frame;
+
+import static evaluator.Evaluator.FALSE;
+import static evaluator.Evaluator.TRUE;
+import static evaluator.Evaluator.isError;
+
+// Starts uninitialized, becomes an int node guarded on two object.Integer operands,
+// and falls back to GenericInfixNode once the guard fails.
+abstract class InfixNode extends Node {
+    final String operator;
+    Node left;
+    Node right;
+
+    InfixNode(String operator, Node left, Node right) {
+        this.operator = operator;
+        this.left = adopt(left);
+        this.right = adopt(right);
+    }
+
+    static InfixNode create(String operator, Node left, Node right) {
+        return new UninitializedInfixNode(operator, left, right);
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        object.Object l = left.execute(frame);
+        if (isError(l)) {
+            return l;
+        }
+        object.Object r = right.execute(frame);
+        if (isError(r)) {
+            return r;
+        }
+        return executeWith(l, r);
+    }
+
+    // Operands are already evaluated here, a rewrite must not evaluate them again.
+    abstract object.Object executeWith(object.Object l, object.Object r);
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (oldChild == left) {
+            left = newChild;
+        } else {
+            right = newChild;
+        }
+    }
+
+    object.Object deoptimize(object.Object l, object.Object r) {
+        return ((InfixNode) replace(() -> new GenericInfixNode(operator, left, right))).executeWith(l, r);
+    }
+
+    static final class UninitializedInfixNode extends InfixNode {
+        UninitializedInfixNode(String operator, Node left, Node right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        object.Object executeWith(object.Object l, object.Object r) {
+            return ((InfixNode) replace(() -> specialize(l, r))).executeWith(l, r);
+        }
+
+        private InfixNode specialize(object.Object l, object.Object r) {
+            if (l instanceof object.Integer && r instanceof object.Integer) {
+                InfixNode specialized = IntInfixNode.create(operator, left, right);
+                if (specialized != null) {
+                    return specialized;
+                }
+            }
+            return new GenericInfixNode(operator, left, right);
+        }
+    }
+
+    static final class GenericInfixNode extends InfixNode {
+        GenericInfixNode(String operator, Node left, Node right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        object.Object executeWith(object.Object l, object.Object r) {
+            return Evaluator.evalInfixExpression(operator, l, r);
+        }
+    }
+
+    abstract static class IntInfixNode extends InfixNode {
+        IntInfixNode(String operator, Node left, Node right) {
+            super(operator, left, right);
+        }
+
+        static IntInfixNode create(String operator, Node left, Node right) {
+            return switch (operator) {
+                case "+" -> new IntAddNode(left, right);
+                case "-" -> new IntSubNode(left, right);
+                case "*" -> new IntMulNode(left, right);
+                case "/" -> new IntDivNode(left, right);
+                case "<" -> new IntLessThanNode(left, right);
+                case ">" -> new IntGreaterThanNode(left, right);
+                case "==" -> new IntEqualNode(left, right);
+                case "!=" -> new IntNotEqualNode(left, right);
+                default -> null;
+            };
+        }
+
+        @Override
+        final object.Object executeWith(object.Object l, object.Object r) {
+            if (l instanceof object.Integer a && r instanceof object.Integer b) {
+                return compute(a.value(), b.value());
+            }
+            return deoptimize(l, r);
+        }
+
+        abstract object.Object compute(int a, int b);
+    }
+
+    static final class IntAddNode extends IntInfixNode {
+        IntAddNode(Node left, Node right) {
+            super("+", left, right);
+        }
+
+        @Override
+        object.Object compute(int a, int b) {
+            return object.Integer.valueOf(a + b);
+        }
+    }
+
+    static final class IntSubNode extends IntInfixNode {
+        IntSubNode(Node left, Node right) {
+            super("-", left, right);
+        }
+
+        @Override
+        object.Object compute(int a, int b) {
+            return object.Integer.valueOf(a - b);
+        }
+    }
+
+    static final class IntMulNode extends IntInfixNode {
+        IntMulNode(Node left, Node right) {
+            super("*", left, right);
+        }
+
+        @Override
+        object.Object compute(int a, int b) {
+            return object.Integer.valueOf(a * b);
+        }
+    }
+
+    static final class IntDivNode extends IntInfixNode {
+        IntDivNode(Node left, Node right) {
+            super("/", left, right);
+        }
+
+        @Override
+        object.Object compute(int a, int b) {
+            return object.Integer.valueOf(a / b);
+        }
+    }
+
+    static final class IntLessThanNode extends IntInfixNode {
+        IntLessThanNode(Node left, Node right) {
+            super("<", left, right);
+        }
+
+        @Override
+        object.Object compute(int a, int b) {
+            return a < b ? TRUE : FALSE;
+        }
+    }
+
+    static final class IntGreaterThanNode extends IntInfixNode {
+        IntGreaterThanNode(Node left, Node right) {
+            super(">", left, right);
+        }
+
+        @Override
+        object.Object compute(int a, int b) {
+            return a > b ? TRUE : FALSE;
+        }
+    }
+
+    static final class IntEqualNode extends IntInfixNode {
+        IntEqualNode(Node left, Node right) {
+            super("==", left, right);
+        }
+
+        @Override
+        object.Object compute(int a, int b) {
+            return a == b ? TRUE : FALSE;
+        }
+    }
+
+    static final class IntNotEqualNode extends IntInfixNode {
+        IntNotEqualNode(Node left, Node right) {
+            super("!=", left, right);
+        }
+
+        @Override
+        object.Object compute(int a, int b) {
+            return a != b ? TRUE : FALSE;
+        }
+    }
+}
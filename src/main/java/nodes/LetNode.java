@@ -0,0 +1,30 @@
+package nodes;
+
+import object.Frame;
+
+import static evaluator.Evaluator.isError;
+
+class LetNode extends Node {
+    private final int slot;
+    private Node value;
+
+    LetNode(int slot, Node value) {
+        this.slot = slot;
+        this.value = adopt(value);
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        object.Object val = value.execute(frame);
+        if (isError(val)) {
+            return val;
+        }
+        frame.set(slot, val);
+        return null;
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        value = newChild;
+    }
+}
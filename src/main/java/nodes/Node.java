@@ -0,0 +1,54 @@
+package nodes;
+
+import object.Frame;
+
+import java.util.function.Supplier;
+
+// An executable node. Specializing nodes rewrite themselves in their parent, in the style of Truffle:
+// the first execution picks a specialization from the operand types it sees, and a failed guard
+// replaces the node with its generic version for good.
+public abstract class Node {
+    Node parent;
+    private Node replacement;
+
+    public abstract object.Object execute(Frame frame);
+
+    <T extends Node> T adopt(T child) {
+        if (child != null) {
+            child.parent = this;
+        }
+        return child;
+    }
+
+    void replaceChild(Node oldChild, Node newChild) {
+        throw new IllegalStateException("Unexpected child: " + oldChild);
+    }
+
+    // A recursive call may execute and rewrite this very node while an outer execution of it is
+    // still running; the outer one then continues with whatever the node has become.
+    // The factory runs only when the node is still live, constructing a node re-adopts the children.
+    Node replace(Supplier<? extends Node> factory) {
+        if (replacement != null) {
+            Node current = replacement;
+            while (current.replacement != null) {
+                current = current.replacement;
+            }
+            return current;
+        }
+        Node newNode = factory.get();
+        parent.replaceChild(this, newNode);
+        newNode.parent = parent;
+        replacement = newNode;
+        return newNode;
+    }
+
+    static Node[] replaceIn(Node[] children, Node oldChild, Node newChild) {
+        for (int i = 0; i < children.length; i++) {
+            if (children[i] == oldChild) {
+                children[i] = newChild;
+                return children;
+            }
+        }
+        throw new IllegalStateException("Unexpected child: " + oldChild);
+    }
+}
@@ -0,0 +1,59 @@
+package nodes;
+
+import resolver.Resolver;
+
+import java.util.List;
+
+import static evaluator.Evaluator.nativeBoolToBooleanObject;
+
+// Turns a resolved AST into an executable node tree.
+public class NodeBuilder {
+    private final Resolver resolver;
+
+    public NodeBuilder(Resolver resolver) {
+        this.resolver = resolver;
+    }
+
+    public ProgramNode build(ast.Program program) {
+        return new ProgramNode(buildAll(program.statements()));
+    }
+
+    private Node[] buildAll(List<? extends ast.Node> nodes) {
+        return nodes.stream().map(this::build).toArray(Node[]::new);
+    }
+
+    private Node build(ast.Node node) {
+        return switch (node) {
+            case ast.BlockStatement actual -> new BlockNode(buildAll(actual.statements()));
+            case ast.ExpressionStatement actual -> build(actual.expression());
+            case ast.ReturnStatement actual -> new ReturnNode(build(actual.returnValue()));
+            case ast.LetStatement actual ->
+                    new LetNode(resolver.binding(actual.name()).slots()[0], build(actual.value()));
+            case ast.AssignStatement actual -> new AssignNode(resolver.binding(actual.name()), build(actual.value()));
+            case ast.WhileStatement actual -> new WhileNode(build(actual.condition()), build(actual.body()));
+            case ast.ForInStatement actual -> new ForInNode(resolver.binding(actual.name()).slots()[0],
+                    build(actual.iterable()), build(actual.body()));
+            case ast.IntegerLiteral actual -> new ConstantNode(actual.constant());
+            case ast.StringLiteral actual -> new ConstantNode(actual.constant());
+            case ast.Boolean actual -> new ConstantNode(nativeBoolToBooleanObject(actual.value()));
+            case ast.PrefixExpression actual -> new PrefixNode(actual.operator(), build(actual.right()));
+            case ast.InfixExpression actual ->
+                    InfixNode.create(actual.operator(), build(actual.left()), build(actual.right()));
+            case ast.IfExpression actual -> new IfNode(build(actual.condition()), build(actual.consequence()),
+                    actual.alternative() == null ? null : build(actual.alternative()));
+            case ast.Identifier actual -> new IdentifierNode(resolver.binding(actual));
+            case ast.FunctionLiteral actual ->
+                    new FunctionLiteralNode(actual, resolver.frameSize(actual), build(actual.body()));
+            case ast.CallExpression actual -> CallNode.create(build(actual.function()), buildAll(actual.arguments()));
+            case ast.ArrayLiteral actual -> new ArrayLiteralNode(buildAll(actual.elements()));
+            case ast.IndexExpression actual -> IndexNode.create(build(actual.left()), build(actual.index()));
+            case ast.HashLiteral actual -> {
+                var pairs = List.copyOf(actual.pairs().entrySet());
+                yield new HashLiteralNode(
+                        pairs.stream().map(e -> build(e.getKey())).toArray(Node[]::new),
+                        pairs.stream().map(e -> build(e.getValue())).toArray(Node[]::new));
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + node);
+        };
+    }
+}
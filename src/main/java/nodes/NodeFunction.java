@@ -0,0 +1,31 @@
+package nodes;
+
+import object.Frame;
+import object.ObjectType;
+
+import java.util.List;
+
+public record NodeFunction(FunctionLiteralNode literal, Frame frame) implements object.Object {
+    @Override
+    public ObjectType type() {
+        return ObjectType.FUNCTION_OBJ;
+    }
+
+    @Override
+    public String inspect() {
+        List<String> params = literal.literal.parameters().stream().map(ast.Identifier::toString).toList();
+        return "fn(" + String.join(", ", params) + ") {\n" + literal.literal.body() + "\n}";
+    }
+
+    object.Object call(object.Object[] args) {
+        Frame callFrame = new Frame(literal.frameSize, frame);
+        for (int i = 0; i < literal.literal.parameters().size(); i++) {
+            callFrame.set(i, args[i]);
+        }
+        object.Object evaluated = literal.body.execute(callFrame);
+        if (evaluated instanceof object.ReturnValue returnValue) {
+            return returnValue.value();
+        }
+        return evaluated;
+    }
+}
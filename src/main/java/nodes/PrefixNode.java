@@ -0,0 +1,30 @@
+package nodes;
+
+import evaluator.Evaluator;
+import object.Frame;
+
+import static evaluator.Evaluator.isError;
+
+class PrefixNode extends Node {
+    private final String operator;
+    private Node right;
+
+    PrefixNode(String operator, Node right) {
+        this.operator = operator;
+        this.right = adopt(right);
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        object.Object val = right.execute(frame);
+        if (isError(val)) {
+            return val;
+        }
+        return Evaluator.evalPrefixExpression(operator, val);
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        right = newChild;
+    }
+}
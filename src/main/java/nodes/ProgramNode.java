@@ -0,0 +1,34 @@
+package nodes;
+
+import object.Frame;
+
+public class ProgramNode extends Node {
+    private final Node[] statements;
+
+    ProgramNode(Node[] statements) {
+        this.statements = statements;
+        for (var s : statements) {
+            adopt(s);
+        }
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        object.Object result = null;
+        for (var statement : statements) {
+            result = statement.execute(frame);
+            if (result instanceof object.ReturnValue returnValue) {
+                return returnValue.value();
+            }
+            if (result instanceof object.Error error) {
+                return error;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        replaceIn(statements, oldChild, newChild);
+    }
+}
@@ -0,0 +1,27 @@
+package nodes;
+
+import object.Frame;
+
+import static evaluator.Evaluator.isError;
+
+class ReturnNode extends Node {
+    private Node value;
+
+    ReturnNode(Node value) {
+        this.value = adopt(value);
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        object.Object val = value.execute(frame);
+        if (isError(val)) {
+            return val;
+        }
+        return new object.ReturnValue(val);
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        value = newChild;
+    }
+}
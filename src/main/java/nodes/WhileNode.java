@@ -0,0 +1,46 @@
+package nodes;
+
+import object.Frame;
+import object.ObjectType;
+
+import static evaluator.Evaluator.isError;
+import static evaluator.Evaluator.isTruthy;
+
+class WhileNode extends Node {
+    private Node condition;
+    private Node body;
+
+    WhileNode(Node condition, Node body) {
+        this.condition = adopt(condition);
+        this.body = adopt(body);
+    }
+
+    @Override
+    public object.Object execute(Frame frame) {
+        while (true) {
+            object.Object cond = condition.execute(frame);
+            if (isError(cond)) {
+                return cond;
+            }
+            if (!isTruthy(cond)) {
+                return null;
+            }
+            object.Object result = body.execute(frame);
+            if (result != null) {
+                ObjectType type = result.type();
+                if (type == ObjectType.RETURN_VALUE_OBJ || type == ObjectType.ERROR_OBJ) {
+                    return result;
+                }
+            }
+        }
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (oldChild == condition) {
+            condition = newChild;
+        } else {
+            body = newChild;
+        }
+    }
+}
@@ -3,7 +3,7 @@ package object;
 import java.lang.String;
 import java.util.List;
 
-public record Array(List<Object> elements) implements Object {
+public record Array(List<Object> elements) implements Object, Iterable {
 
     @Override
     public ObjectType type() {
@@ -17,4 +17,21 @@ public record Array(List<Object> elements) implements Object {
                 .toArray(String[]::new);
         return "[" + String.join(", ", args) + "]";
     }
+
+    @Override
+    public Cursor cursor() {
+        return new Cursor() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < elements.size();
+            }
+
+            @Override
+            public Object next() {
+                return elements.get(index++);
+            }
+        };
+    }
 }
@@ -3,4 +3,18 @@ package object;
 @FunctionalInterface
 public interface BuiltinFunction {
     Object exec(Object... args);
+
+    // Entry points for calls with a known number of arguments. A builtin overrides the ones it
+    // takes so such a call needs no argument array; the others fall back on exec.
+    default Object exec0() {
+        return exec();
+    }
+
+    default Object exec1(Object arg) {
+        return exec(arg);
+    }
+
+    default Object exec2(Object first, Object second) {
+        return exec(first, second);
+    }
 }
@@ -0,0 +1,31 @@
+package object;
+
+// A binding shared between the scope that owns it and the closures that captured it.
+// An unbound cell falls through to next, the cell of the same name one scope further out.
+public final class Cell {
+    private Object value;
+    private final Cell next;
+
+    public Cell(Object value, Cell next) {
+        this.value = value;
+        this.next = next;
+    }
+
+    // Null while the cell is unbound.
+    public Object value() {
+        return value;
+    }
+
+    public void set(Object value) {
+        this.value = value;
+    }
+
+    // The first cell along the chain that is bound, null if there is none.
+    public Cell bound() {
+        Cell cell = this;
+        while (cell != null && cell.value == null) {
+            cell = cell.next;
+        }
+        return cell;
+    }
+}
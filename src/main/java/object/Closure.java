@@ -0,0 +1,15 @@
+package object;
+
+import java.lang.String;
+
+public record Closure(CompiledFunction fn, Cell[] free) implements Object {
+    @Override
+    public ObjectType type() {
+        return ObjectType.CLOSURE_OBJ;
+    }
+
+    @Override
+    public String inspect() {
+        return "Closure[%x]".formatted(System.identityHashCode(this));
+    }
+}
@@ -0,0 +1,17 @@
+package object;
+
+import java.lang.String;
+
+// cells has one entry per cell a call gets for the names its closures share: the index of the free
+// cell it falls through to while unbound, or -1.
+public record CompiledFunction(byte[] instructions, int numLocals, int numParameters, int[] cells) implements Object {
+    @Override
+    public ObjectType type() {
+        return ObjectType.COMPILED_FUNCTION_OBJ;
+    }
+
+    @Override
+    public String inspect() {
+        return "CompiledFunction[%x]".formatted(System.identityHashCode(this));
+    }
+}
@@ -0,0 +1,21 @@
+package object;
+
+import java.lang.String;
+
+// Position of one for-in loop in an Iterable. It is an Object only so engines can keep it in a
+// register or a stack slot, scripts never see one.
+public interface Cursor extends Object {
+    boolean hasNext();
+
+    Object next();
+
+    @Override
+    default ObjectType type() {
+        return ObjectType.CURSOR_OBJ;
+    }
+
+    @Override
+    default String inspect() {
+        return "cursor";
+    }
+}
@@ -5,25 +5,96 @@ import java.util.HashMap;
 import java.util.Map;
 
 public class Environment {
-    final Map<String, Object> store;
-    final Environment outer;
+    final Map<String, java.lang.Object> store;
+    Environment outer;
+    // The global environment; top-level functions keep it whole. It keeps each name in a Global.
+    Environment root;
+    // Evaluator's return slot, see setReturned().
+    private Object returned;
+    // Evaluator's spill slot, see spill().
+    private Object spilled;
 
-    private Environment(Map<String, Object> store, Environment outer) {
+    private Environment() {
+        this.store = new HashMap<>();
+        this.outer = null;
+        this.root = this;
+    }
+
+    private Environment(Map<String, java.lang.Object> store, Environment outer, Environment root) {
         this.store = store;
         this.outer = outer;
+        this.root = root;
     }
 
     public static Environment newEnvironment() {
 
-        return new Environment(new HashMap<>(), null);
+        return new Environment();
     }
 
+    // The outer environment is null for a call to a function that captured nothing.
     public static Environment newEnclosedEnvironment(Environment outer) {
-        return new Environment(new HashMap<>(), outer);
+        return new Environment(new HashMap<>(), outer, outer == null ? null : outer.root);
+    }
+
+    // The environment of a call, taken from the thread's pool if it has one. Hand it back with
+    // release() once the call has returned.
+    public static Environment newCallEnvironment(Environment outer) {
+        Environment env = EnvironmentPool.current().acquire();
+        if (env == null) {
+            return newEnclosedEnvironment(outer);
+        }
+        env.outer = outer;
+        env.root = outer == null ? null : outer.root;
+        return env;
+    }
+
+    public void release() {
+        store.clear();
+        returned = null;
+        spilled = null;
+        outer = null;
+        root = null;
+        EnvironmentPool.current().release(this);
+    }
+
+    // Holds the value of the return statement that ends the call this environment belongs to.
+    public void setReturned(Object value) {
+        returned = value;
+    }
+
+    public Object takeReturned() {
+        Object value = returned;
+        returned = null;
+        return value;
+    }
+
+    // Holds the value of an expression the evaluator's int path could not keep unboxed.
+    public void spill(Object value) {
+        spilled = value;
+    }
+
+    public Object takeSpilled() {
+        Object value = spilled;
+        spilled = null;
+        return value;
+    }
+
+    // The global environment this one was created under, null under a function that captured nothing.
+    public Environment root() {
+        return root;
     }
 
     public Object get(String name) {
-        Object obj = store.get(name);
+        Object obj;
+        java.lang.Object entry = store.get(name);
+        if (entry instanceof Cell cell) {
+            Cell bound = cell.bound();
+            obj = bound == null ? null : bound.value();
+        } else if (entry instanceof Global global) {
+            obj = global.value();
+        } else {
+            obj = (Object) entry;
+        }
         if (obj == null && this.outer != null) {
             obj = this.outer.get(name);
         }
@@ -31,6 +102,77 @@ public class Environment {
     }
 
     public void set(String name, Object value) {
-        store.put(name, value);
+        if (store.get(name) instanceof Cell cell) {
+            cell.set(value);
+        } else if (this == root) {
+            global(name).bind(value);
+        } else {
+            store.put(name, value);
+        }
+    }
+
+    // The global binding of the name, unbound if nothing has bound it yet. Only the global
+    // environment holds them, every other one hands out its root's.
+    public Global global(String name) {
+        if (this != root) {
+            return root.global(name);
+        }
+        if (store.get(name) instanceof Global global) {
+            return global;
+        }
+        Global global = new Global();
+        store.put(name, global);
+        return global;
+    }
+
+    // Rebinds the name in the environment get() would find it in, false if it is bound nowhere.
+    public boolean assign(String name, Object value) {
+        for (Environment env = this; env != null; env = env.outer) {
+            java.lang.Object entry = env.store.get(name);
+            if (entry instanceof Cell cell) {
+                Cell bound = cell.bound();
+                if (bound != null) {
+                    bound.set(value);
+                    return true;
+                }
+            } else if (entry instanceof Global global) {
+                if (global.value() != null) {
+                    global.bind(value);
+                    return true;
+                }
+            } else if (entry != null) {
+                env.store.put(name, value);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The environment for a closure created here that reads or assigns only the given names: one
+    // cell per name, shared with this environment so later lets and assignments on either side stay
+    // visible, in front of the global environment. Null when the closure needs nothing at all.
+    public Environment capture(String[] names) {
+        if (names.length == 0) {
+            return null;
+        }
+        if (this == root) {
+            return this;
+        }
+        Map<String, java.lang.Object> cells = new HashMap<>();
+        for (String name : names) {
+            cells.put(name, cell(name));
+        }
+        return new Environment(cells, root, root);
+    }
+
+    private Cell cell(String name) {
+        java.lang.Object value = store.get(name);
+        if (value instanceof Cell cell) {
+            return cell;
+        }
+        Cell next = outer == null || outer == root ? null : outer.cell(name);
+        Cell cell = new Cell((Object) value, next);
+        store.put(name, cell);
+        return cell;
     }
 }
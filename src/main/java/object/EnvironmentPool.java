@@ -0,0 +1,60 @@
+package object;
+
+// Environments of calls that have returned, kept per thread for the next calls to reuse. A call's
+// environment never outlives it: closures hold the cells of the names they use, not the
+// environment, so it can be handed back as soon as the body has been evaluated.
+// The counters are per thread as well.
+public final class EnvironmentPool {
+    private static final int CAPACITY = java.lang.Integer.getInteger("jmonkey.envPool.capacity", 256);
+    private static final ThreadLocal<EnvironmentPool> POOL = ThreadLocal.withInitial(EnvironmentPool::new);
+
+    private final Environment[] free = new Environment[CAPACITY];
+    private int size;
+    private long hits;
+    private long misses;
+
+    private EnvironmentPool() {
+    }
+
+    public static EnvironmentPool current() {
+        return POOL.get();
+    }
+
+    // Calls that reused a pooled environment.
+    public long hits() {
+        return hits;
+    }
+
+    // Calls that had to allocate one because the pool was empty.
+    public long misses() {
+        return misses;
+    }
+
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public void resetCounters() {
+        hits = 0;
+        misses = 0;
+    }
+
+    // Null on a miss.
+    Environment acquire() {
+        if (size == 0) {
+            misses++;
+            return null;
+        }
+        hits++;
+        Environment env = free[--size];
+        free[size] = null;
+        return env;
+    }
+
+    void release(Environment env) {
+        if (size < CAPACITY) {
+            free[size++] = env;
+        }
+    }
+}
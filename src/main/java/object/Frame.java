@@ -0,0 +1,33 @@
+package object;
+
+import java.util.Arrays;
+
+// A fixed-size activation record, slots are assigned ahead of time by resolver.Resolver.
+public final class Frame {
+    private final Frame parent;
+    private Object[] slots;
+
+    public Frame(int size, Frame parent) {
+        this.slots = new Object[size];
+        this.parent = parent;
+    }
+
+    public Frame parent() {
+        return parent;
+    }
+
+    public Object get(int slot) {
+        return slots[slot];
+    }
+
+    public void set(int slot, Object value) {
+        slots[slot] = value;
+    }
+
+    // Only the global frame grows, when a REPL line declares new names.
+    public void ensureCapacity(int size) {
+        if (slots.length < size) {
+            slots = Arrays.copyOf(slots, size);
+        }
+    }
+}
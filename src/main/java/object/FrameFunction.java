@@ -0,0 +1,22 @@
+package object;
+
+import ast.BlockStatement;
+import ast.Identifier;
+
+import java.lang.String;
+import java.util.List;
+
+// Parameter i always lives in slot i of the frame created for a call.
+public record FrameFunction(List<Identifier> parameters, BlockStatement body, int frameSize,
+                            Frame frame) implements Object {
+    @Override
+    public ObjectType type() {
+        return ObjectType.FUNCTION_OBJ;
+    }
+
+    @Override
+    public String inspect() {
+        List<String> params = parameters.stream().map(Identifier::toString).toList();
+        return "fn(" + String.join(", ", params) + ") {\n" + body + "\n}";
+    }
+}
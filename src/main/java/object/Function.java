@@ -6,7 +6,12 @@ import ast.Identifier;
 import java.lang.String;
 import java.util.List;
 
-public record Function(List<Identifier> parameters, BlockStatement body, Environment env) implements Object {
+public record Function(List<Identifier> parameters, BlockStatement body, Environment env,
+                       jit.Profile profile) implements Object {
+    public Function(List<Identifier> parameters, BlockStatement body, Environment env) {
+        this(parameters, body, env, new jit.Profile());
+    }
+
     @Override
     public ObjectType type() {
         return ObjectType.FUNCTION_OBJ;
@@ -0,0 +1,28 @@
+package object;
+
+// The binding of a name in the global environment. It is stable while the name has been bound
+// at most once: code may then treat the value as a constant, as long as it checks stable() again
+// before relying on it. A second let or an assignment rebinds it, and it never becomes stable again.
+public final class Global {
+    private Object value;
+    private boolean stable = true;
+
+    Global() {
+    }
+
+    // Null while the name is unbound.
+    public Object value() {
+        return value;
+    }
+
+    public boolean stable() {
+        return stable;
+    }
+
+    void bind(Object value) {
+        if (this.value != null) {
+            stable = false;
+        }
+        this.value = value;
+    }
+}
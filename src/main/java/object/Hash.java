@@ -1,9 +1,44 @@
 package object;
 
 import java.lang.String;
+import java.util.Iterator;
 import java.util.Map;
 
-public record Hash(Map<HashKey, HashPair> pairs) implements Object {
+// Not a record: a hash built with a Shape keeps its values in an array and only makes its pairs
+// when something asks for them.
+public final class Hash implements Object, Iterable {
+    private Map<HashKey, HashPair> pairs;
+    private final Shape shape;
+    private final Object[] fields;
+
+    public Hash(Map<HashKey, HashPair> pairs) {
+        this.pairs = pairs;
+        this.shape = null;
+        this.fields = null;
+    }
+
+    // The values in the order of the shape's keys.
+    public Hash(Shape shape, Object[] fields) {
+        this.shape = shape;
+        this.fields = fields;
+    }
+
+    public Map<HashKey, HashPair> pairs() {
+        if (pairs == null) {
+            pairs = shape.pairs(fields);
+        }
+        return pairs;
+    }
+
+    // Null for a hash that was not built from a literal with string keys.
+    public Shape shape() {
+        return shape;
+    }
+
+    // The value at an offset of the shape.
+    public Object field(int offset) {
+        return fields[offset];
+    }
 
     @Override
     public ObjectType type() {
@@ -12,10 +47,42 @@ public record Hash(Map<HashKey, HashPair> pairs) implements Object {
 
     @Override
     public String inspect() {
-        String[] pairs = this.pairs.values()
+        String[] pairs = pairs().values()
                 .stream()
                 .map(pair -> "%s: %s".formatted(pair.key(), pair.value()))
                 .toArray(String[]::new);
         return "{" + String.join(", ", pairs) + "}";
     }
+
+    // Steps through the keys, in the same order as inspect() lists them.
+    @Override
+    public Cursor cursor() {
+        Iterator<HashPair> values = pairs().values().iterator();
+        return new Cursor() {
+            @Override
+            public boolean hasNext() {
+                return values.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                return values.next().key();
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(java.lang.Object o) {
+        return o instanceof Hash hash && pairs().equals(hash.pairs());
+    }
+
+    @Override
+    public int hashCode() {
+        return pairs().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Hash[pairs=" + pairs() + "]";
+    }
 }
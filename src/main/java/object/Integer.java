@@ -3,6 +3,24 @@ package object;
 import java.lang.String;
 
 public record Integer(int value) implements Object, HashTable {
+    // Values every program uses: counters, indexes, small results. Integers have no identity a
+    // script can observe, so equal ones can be the same object.
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1023;
+    private static final Integer[] CACHE = new Integer[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new Integer(i + CACHE_LOW);
+        }
+    }
+
+    public static Integer valueOf(int value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return CACHE[value - CACHE_LOW];
+        }
+        return new Integer(value);
+    }
 
     @Override
     public ObjectType type() {
@@ -0,0 +1,7 @@
+package object;
+
+// Values a for-in loop can step through. Each loop asks for a fresh cursor, the value itself is
+// never copied.
+public interface Iterable {
+    Cursor cursor();
+}
@@ -8,11 +8,16 @@ public enum ObjectType {
     INTEGER_OBJ("INTEGER"),
     BOOLEAN_OBJ("BOOLEAN"),
     RETURN_VALUE_OBJ("RETURN_VALUE"),
+    TAIL_CALL_OBJ("TAIL_CALL"),
     FUNCTION_OBJ("FUNCTION"),
     BUILTIN_OBJ("BUILTIN"),
     STRING_OBJ("STRING"),
     ARRAY_OBJ("ARRAY"),
-    HASH_OBJ("HASH");
+    HASH_OBJ("HASH"),
+    RANGE_OBJ("RANGE"),
+    CURSOR_OBJ("CURSOR"),
+    COMPILED_FUNCTION_OBJ("COMPILED_FUNCTION"),
+    CLOSURE_OBJ("CLOSURE");
     private final String literal;
 
     ObjectType(String literal) {
@@ -0,0 +1,37 @@
+package object;
+
+import java.lang.String;
+
+// The integers from start up to, but not including, end; created by the range builtin.
+public record Range(int start, int end) implements Object, Iterable {
+    @Override
+    public ObjectType type() {
+        return ObjectType.RANGE_OBJ;
+    }
+
+    @Override
+    public String inspect() {
+        return "range(%d, %d)".formatted(start, end);
+    }
+
+    public int size() {
+        return Math.max(0, end - start);
+    }
+
+    @Override
+    public Cursor cursor() {
+        return new Cursor() {
+            private int next = start;
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public Object next() {
+                return Integer.valueOf(next++);
+            }
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package object;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The layout of the hashes one hash literal builds when all its keys are strings: the offset of
+// each key's value in their fields. Every hash of the literal shares it, so an index site that
+// has seen the shape once knows where to find its key without hashing it again.
+public final class Shape {
+    private final String[] keys;
+    private final Map<HashKey, java.lang.Integer> offsets = new HashMap<>();
+
+    private Shape(List<String> keys) {
+        this.keys = keys.toArray(String[]::new);
+    }
+
+    // Null when two keys hash alike, the hash would keep only one of them.
+    public static Shape of(List<String> keys) {
+        Shape shape = new Shape(keys);
+        for (int i = 0; i < shape.keys.length; i++) {
+            if (shape.offsets.put(shape.keys[i].hashKey(), i) != null) {
+                return null;
+            }
+        }
+        return shape;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    // -1 when hashes of this shape do not hold the key.
+    public int offset(HashKey key) {
+        return offsets.getOrDefault(key, -1);
+    }
+
+    // The pairs of a hash of this shape, in the order the evaluator would have put them.
+    Map<HashKey, HashPair> pairs(Object[] fields) {
+        Map<HashKey, HashPair> pairs = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            pairs.put(keys[i].hashKey(), new HashPair(keys[i], fields[i]));
+        }
+        return pairs;
+    }
+
+    // A shape follows from the literal's keys, it takes no part in comparing syntax trees.
+    @Override
+    public boolean equals(java.lang.Object o) {
+        return o instanceof Shape;
+    }
+
+    @Override
+    public int hashCode() {
+        return 0;
+    }
+
+    @Override
+    public java.lang.String toString() {
+        return "Shape";
+    }
+}
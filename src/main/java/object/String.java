@@ -1,6 +1,6 @@
 package object;
 
-public record String(java.lang.String value) implements Object, HashTable {
+public record String(java.lang.String value) implements Object, HashTable, Iterable {
     @Override
     public ObjectType type() {
         return ObjectType.STRING_OBJ;
@@ -15,4 +15,22 @@ public record String(java.lang.String value) implements Object, HashTable {
     public HashKey hashKey() {
         return new HashKey(type(), value.hashCode());
     }
+
+    // Steps through the characters, each as a string of its own.
+    @Override
+    public Cursor cursor() {
+        return new Cursor() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < value.length();
+            }
+
+            @Override
+            public Object next() {
+                return new String(java.lang.String.valueOf(value.charAt(index++)));
+            }
+        };
+    }
 }
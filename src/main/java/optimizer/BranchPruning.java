@@ -0,0 +1,55 @@
+package optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static optimizer.Literals.truthiness;
+
+// Removes the branch of an if that a constant condition never takes. As a statement the if is
+// replaced by the statements of the other branch, which is safe because blocks share the
+// environment of their function. As an expression it is only replaced when that branch is a
+// single expression, since there is no literal for the NULL an empty branch produces.
+final class BranchPruning extends Rewriter {
+    @Override
+    protected List<ast.Statement> statements(List<ast.Statement> statements) {
+        List<ast.Statement> result = new ArrayList<>(statements.size());
+        for (int i = 0; i < statements.size(); i++) {
+            ast.Statement statement = statements.get(i);
+            if (statement instanceof ast.ExpressionStatement actual
+                    && actual.expression() instanceof ast.IfExpression ifExpression) {
+                java.lang.Boolean taken = truthiness(ifExpression.condition());
+                if (taken != null) {
+                    ast.BlockStatement branch = taken ? ifExpression.consequence() : ifExpression.alternative();
+                    List<ast.Statement> spliced = branch == null ? List.of() : statements(branch.statements());
+                    // The last statement gives the value of its block, an empty one must keep its NULL.
+                    if (!spliced.isEmpty() || i < statements.size() - 1) {
+                        result.addAll(spliced);
+                        continue;
+                    }
+                }
+            }
+            result.add(statement(statement));
+        }
+        return result;
+    }
+
+    @Override
+    protected ast.Expression rewrite(ast.Expression expression) {
+        if (expression instanceof ast.IfExpression actual) {
+            java.lang.Boolean taken = truthiness(actual.condition());
+            if (taken != null) {
+                ast.BlockStatement branch = taken ? actual.consequence() : actual.alternative();
+                if (branch != null && branch.statements().size() == 1
+                        && branch.statements().get(0) instanceof ast.ExpressionStatement statement) {
+                    return statement.expression();
+                }
+                // Keep the if for its value but drop the code it never runs.
+                return taken
+                        ? new ast.IfExpression(actual.token(), actual.condition(), actual.consequence(), null)
+                        : new ast.IfExpression(actual.token(), actual.condition(),
+                        new ast.BlockStatement(actual.consequence().token(), List.of()), actual.alternative());
+            }
+        }
+        return expression;
+    }
+}
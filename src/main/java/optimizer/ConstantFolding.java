@@ -0,0 +1,132 @@
+package optimizer;
+
+import static optimizer.Literals.bool;
+import static optimizer.Literals.integer;
+import static optimizer.Literals.isConstant;
+import static optimizer.Literals.isConstantHash;
+import static optimizer.Literals.string;
+
+// Replaces operators on literals with their result. Anything the Evaluator would turn into an
+// error, such as "a" - "b" or a division by zero, is left alone so the error still happens at
+// run time with its usual message.
+final class ConstantFolding extends Rewriter {
+    // False once a program has bound "len" itself, the call may no longer reach the builtin.
+    private final boolean foldLen;
+    // Whether calls in function bodies are folded too, see Optimizer.
+    private final boolean inFunctions;
+    private int functions;
+
+    ConstantFolding(boolean foldLen, boolean inFunctions) {
+        this.foldLen = foldLen;
+        this.inFunctions = inFunctions;
+    }
+
+    @Override
+    protected ast.Expression expression(ast.Expression expression) {
+        if (!(expression instanceof ast.FunctionLiteral)) {
+            return super.expression(expression);
+        }
+        functions++;
+        try {
+            return super.expression(expression);
+        } finally {
+            functions--;
+        }
+    }
+
+    @Override
+    protected ast.Expression rewrite(ast.Expression expression) {
+        return switch (expression) {
+            case ast.PrefixExpression actual -> foldPrefix(actual);
+            case ast.InfixExpression actual -> foldInfix(actual);
+            case ast.CallExpression actual -> foldCall(actual);
+            case ast.IndexExpression actual -> foldIndex(actual);
+            default -> expression;
+        };
+    }
+
+    private static ast.Expression foldPrefix(ast.PrefixExpression node) {
+        ast.Expression right = node.right();
+        if (node.operator().equals("-") && right instanceof ast.IntegerLiteral literal) {
+            return integer(-literal.value());
+        }
+        if (node.operator().equals("!")) {
+            if (right instanceof ast.Boolean literal) {
+                return bool(!literal.value());
+            }
+            if (isConstant(right)) {
+                return bool(false);
+            }
+        }
+        return node;
+    }
+
+    private static ast.Expression foldInfix(ast.InfixExpression node) {
+        ast.Expression left = node.left();
+        ast.Expression right = node.right();
+        String operator = node.operator();
+        if (left instanceof ast.IntegerLiteral l && right instanceof ast.IntegerLiteral r) {
+            int leftVal = l.value();
+            int rightVal = r.value();
+            return switch (operator) {
+                case "+" -> integer(leftVal + rightVal);
+                case "-" -> integer(leftVal - rightVal);
+                case "*" -> integer(leftVal * rightVal);
+                case "/" -> rightVal != 0 ? integer(leftVal / rightVal) : node;
+                case "<" -> bool(leftVal < rightVal);
+                case ">" -> bool(leftVal > rightVal);
+                case "==" -> bool(leftVal == rightVal);
+                case "!=" -> bool(leftVal != rightVal);
+                default -> node;
+            };
+        }
+        if (left instanceof ast.StringLiteral l && right instanceof ast.StringLiteral r) {
+            return operator.equals("+") ? string(l.value() + r.value()) : node;
+        }
+        if (!isConstant(left) || !isConstant(right)) {
+            return node;
+        }
+        // Booleans compare by identity of TRUE and FALSE, mixed types are never equal.
+        boolean equal = left instanceof ast.Boolean l && right instanceof ast.Boolean r && l.value() == r.value();
+        return switch (operator) {
+            case "==" -> bool(equal);
+            case "!=" -> bool(!equal);
+            default -> node;
+        };
+    }
+
+    // A hash of literals indexed by a key it holds is that key's value. Where a key is written
+    // twice the later pair wins, as it does when the hash is built. A missing key stays, there is
+    // no literal for the NULL it gives.
+    private static ast.Expression foldIndex(ast.IndexExpression node) {
+        if (!isConstantHash(node.left()) || !isConstant(node.index())) {
+            return node;
+        }
+        ast.Expression value = node;
+        for (var pair : ((ast.HashLiteral) node.left()).pairs().entrySet()) {
+            if (sameKey(pair.getKey(), node.index())) {
+                value = pair.getValue();
+            }
+        }
+        return value;
+    }
+
+    private static boolean sameKey(ast.Expression key, ast.Expression index) {
+        return switch (key) {
+            case ast.IntegerLiteral k -> index instanceof ast.IntegerLiteral i && i.value() == k.value();
+            case ast.StringLiteral k -> index instanceof ast.StringLiteral i && i.value().equals(k.value());
+            case ast.Boolean k -> index instanceof ast.Boolean i && i.value() == k.value();
+            default -> false;
+        };
+    }
+
+    private ast.Expression foldCall(ast.CallExpression node) {
+        if (foldLen && (inFunctions || functions == 0)
+                && node.function() instanceof ast.Identifier name && name.value().equals("len")
+                && node.arguments().size() == 1
+                && node.arguments().get(0) instanceof ast.StringLiteral literal) {
+            return integer(literal.value().length());
+        }
+        return node;
+    }
+}
@@ -0,0 +1,19 @@
+package optimizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Drops the statements after a return, in the program as well as in every block.
+final class DeadCodeElimination extends Rewriter {
+    @Override
+    protected List<ast.Statement> statements(List<ast.Statement> statements) {
+        List<ast.Statement> result = new ArrayList<>(statements.size());
+        for (ast.Statement statement : statements) {
+            result.add(statement(statement));
+            if (statement instanceof ast.ReturnStatement) {
+                break;
+            }
+        }
+        return result;
+    }
+}
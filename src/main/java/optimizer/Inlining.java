@@ -0,0 +1,209 @@
+package optimizer;
+
+import token.Token;
+import token.TokenType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static optimizer.Literals.bool;
+import static optimizer.Literals.isConstant;
+
+// Replaces calls to small functions bound by a top-level let with the function's body. Only
+// bodies that are a single expression without functions or lets of their own qualify, and only
+// calls after the let that binds them, with matching arity, where neither the callee nor a free
+// name of the body is shadowed. No program of the session may assign the callee, and outside a
+// script only calls outside function bodies qualify, see Optimizer.
+//
+// Literal arguments and parameters of the enclosing function are substituted directly. Anything
+// else is bound to a fresh name first, "x$1" for parameter x, so it is evaluated exactly once and
+// in order: add(f(), 2) becomes if (true) { let a$1 = f(); a$1 + 2 }. The lexer never produces a
+// '$', so these names cannot clash with a script's own. Such a let binds in the frame of the call
+// it runs in; at the top level it would be a global that outlives the program, so there only calls
+// that need no temporary are inlined.
+final class Inlining extends Rewriter {
+    // binds is set when the body holds temporaries of calls inlined into it.
+    private record Candidate(List<String> parameters, ast.Expression body, Set<String> free, boolean binds) {
+    }
+
+    private record Scope(Set<String> parameters, Set<String> lets, Set<String> bound) {
+    }
+
+    private final int budget;
+    private final boolean inFunctions;
+    // Names assigned by any program so far, a function of an earlier one may rebind them.
+    private final Set<String> rebound;
+    private final List<String> report;
+    private final Map<String, Candidate> available = new HashMap<>();
+    // Names an assignment in the program may change, a read of one cannot be moved.
+    private Set<String> assigned = Set.of();
+    private final Deque<Scope> scopes = new ArrayDeque<>();
+    private int temps;
+
+    Inlining(int budget, boolean inFunctions, Set<String> rebound, List<String> report) {
+        this.budget = budget;
+        this.inFunctions = inFunctions;
+        this.rebound = rebound;
+        this.report = report;
+    }
+
+    @Override
+    public ast.Program apply(ast.Program program) {
+        Scan scan = Scan.of(program);
+        assigned = scan.assigned;
+        List<ast.Statement> result = new ArrayList<>(program.statements().size());
+        for (ast.Statement statement : program.statements()) {
+            ast.Statement rewritten = statement(statement);
+            result.add(rewritten);
+            if (rewritten instanceof ast.LetStatement actual && actual.value() instanceof ast.FunctionLiteral function) {
+                String name = actual.name().value();
+                Candidate candidate = candidate(name, function, scan);
+                if (candidate != null) {
+                    available.put(name, candidate);
+                }
+            }
+        }
+        return new ast.Program(result);
+    }
+
+    private Candidate candidate(String name, ast.FunctionLiteral function, Scan program) {
+        List<String> parameters = function.parameters().stream().map(ast.Identifier::value).toList();
+        List<ast.Statement> statements = function.body().statements();
+        ast.Expression body = null;
+        if (statements.size() == 1) {
+            body = switch (statements.get(0)) {
+                case ast.ExpressionStatement actual -> actual.expression();
+                case ast.ReturnStatement actual -> actual.returnValue();
+                default -> null;
+            };
+        }
+        Scan scan = body == null ? null : Scan.of(body);
+        String reason = null;
+        if (program.lets.get(name) != 1 || program.parameters.contains(name) || rebound.contains(name)) {
+            reason = "bound more than once";
+        } else if (body == null) {
+            reason = "not a single expression";
+        } else if (scan.identifiers.contains(name)) {
+            reason = "recursive";
+        } else if (scan.functions) {
+            reason = "creates a function";
+        } else if (scan.lets.keySet().stream().anyMatch(let -> !let.contains("$")) || !scan.assigned.isEmpty()) {
+            reason = "binds names";
+        } else if (new HashSet<>(parameters).size() != parameters.size()) {
+            reason = "repeats a parameter";
+        } else if (scan.size > budget) {
+            reason = "too large (" + scan.size + " > " + budget + ")";
+        }
+        if (reason != null) {
+            report.add("not inlining " + name + ": " + reason);
+            return null;
+        }
+        Set<String> free = new HashSet<>();
+        for (String identifier : scan.identifiers) {
+            if (!parameters.contains(identifier) && !identifier.contains("$")) {
+                free.add(identifier);
+            }
+        }
+        return new Candidate(parameters, body, free, !scan.lets.isEmpty());
+    }
+
+    @Override
+    protected ast.Expression expression(ast.Expression expression) {
+        if (!(expression instanceof ast.FunctionLiteral actual)) {
+            return super.expression(expression);
+        }
+        Scan scan = Scan.of(actual.body());
+        Set<String> parameters = new HashSet<>();
+        for (ast.Identifier parameter : actual.parameters()) {
+            parameters.add(parameter.value());
+        }
+        Set<String> bound = new HashSet<>(parameters);
+        bound.addAll(scan.lets.keySet());
+        bound.addAll(scan.parameters);
+        scopes.push(new Scope(parameters, scan.lets.keySet(), bound));
+        try {
+            return super.expression(expression);
+        } finally {
+            scopes.pop();
+        }
+    }
+
+    @Override
+    protected ast.Expression rewrite(ast.Expression expression) {
+        if (expression instanceof ast.CallExpression call && call.function() instanceof ast.Identifier callee) {
+            Candidate candidate = available.get(callee.value());
+            if (candidate != null
+                    && (inFunctions || scopes.isEmpty())
+                    && call.arguments().size() == candidate.parameters().size()
+                    && !isShadowed(callee.value())
+                    && candidate.free().stream().noneMatch(this::isShadowed)) {
+                ast.Expression inlined = inline(candidate, call.arguments());
+                if (inlined != null) {
+                    report.add("inlined " + call + " as " + inlined);
+                    return inlined;
+                }
+            }
+        }
+        return expression;
+    }
+
+    // Returns null when the call needs a temporary but is not in a function body.
+    private ast.Expression inline(Candidate candidate, List<ast.Expression> arguments) {
+        Map<String, ast.Expression> replacements = new HashMap<>();
+        List<ast.Statement> statements = new ArrayList<>();
+        for (int i = 0; i < arguments.size(); i++) {
+            String parameter = candidate.parameters().get(i);
+            ast.Expression argument = arguments.get(i);
+            if (isConstant(argument) || isParameter(argument)) {
+                replacements.put(parameter, argument);
+                continue;
+            }
+            if (scopes.isEmpty()) {
+                return null;
+            }
+            String name = parameter + "$" + ++temps;
+            ast.Identifier temp = new ast.Identifier(new Token(TokenType.IDENT, name), name);
+            statements.add(new ast.LetStatement(new Token(TokenType.LET, "let"), temp, argument));
+            replacements.put(parameter, temp);
+        }
+        if (candidate.binds() && scopes.isEmpty()) {
+            return null;
+        }
+        ast.Expression body = new Substitution(replacements).expression(candidate.body());
+        if (statements.isEmpty()) {
+            return body;
+        }
+        statements.add(new ast.ExpressionStatement(new Token(TokenType.IDENT, body.tokenLiteral()), body));
+        return new ast.IfExpression(new Token(TokenType.IF, "if"), bool(true),
+                new ast.BlockStatement(new Token(TokenType.LBRACE, "{"), statements), null);
+    }
+
+    private boolean isShadowed(String name) {
+        for (Scope scope : scopes) {
+            if (scope.bound().contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A parameter always holds a value and reading it has no effect, so unless something assigns
+    // it, it can be read late or twice.
+    private boolean isParameter(ast.Expression expression) {
+        if (expression instanceof ast.Identifier identifier && !assigned.contains(identifier.value())) {
+            for (Scope scope : scopes) {
+                if (scope.bound().contains(identifier.value())) {
+                    return scope.parameters().contains(identifier.value())
+                            && !scope.lets().contains(identifier.value());
+                }
+            }
+        }
+        return false;
+    }
+}
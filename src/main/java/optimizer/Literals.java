@@ -0,0 +1,52 @@
+package optimizer;
+
+import token.Token;
+import token.TokenType;
+
+// Builds literal nodes for values the passes compute, with the tokens the parser would have given them.
+final class Literals {
+    private Literals() {
+    }
+
+    static ast.IntegerLiteral integer(int value) {
+        return new ast.IntegerLiteral(new Token(TokenType.INT, String.valueOf(value)), value);
+    }
+
+    static ast.Boolean bool(boolean value) {
+        return value
+                ? new ast.Boolean(new Token(TokenType.TRUE, "true"), true)
+                : new ast.Boolean(new Token(TokenType.FALSE, "false"), false);
+    }
+
+    static ast.StringLiteral string(String value) {
+        return new ast.StringLiteral(new Token(TokenType.STRING, value), value);
+    }
+
+    static boolean isConstant(ast.Expression expression) {
+        return expression instanceof ast.IntegerLiteral
+                || expression instanceof ast.Boolean
+                || expression instanceof ast.StringLiteral;
+    }
+
+    // A hash whose keys and values are all literals, building it has no effect.
+    static boolean isConstantHash(ast.Expression expression) {
+        if (!(expression instanceof ast.HashLiteral hash)) {
+            return false;
+        }
+        for (var pair : hash.pairs().entrySet()) {
+            if (!isConstant(pair.getKey()) || !isConstant(pair.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The branch an if with this condition takes, or null when it is only known at run time.
+    // Mirrors Evaluator.isTruthy: integers and strings are truthy, whatever their value.
+    static java.lang.Boolean truthiness(ast.Expression condition) {
+        if (condition instanceof ast.Boolean actual) {
+            return actual.value();
+        }
+        return isConstant(condition) ? java.lang.Boolean.TRUE : null;
+    }
+}
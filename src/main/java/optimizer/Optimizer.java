@@ -0,0 +1,63 @@
+package optimizer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Runs the passes between Parser.parseProgram and an engine. One optimizer should see every
+// program that runs in the same environment, it remembers the names they bind so a builtin
+// is no longer folded once a script may have shadowed it.
+//
+// In a REPL session any later line can rebind a global, so rewrites that rely on what a name is
+// bound to only touch code that runs before its program is done: the top level, not the bodies of
+// functions, which a later line may call. A script is the last program in its environment and
+// gets them everywhere.
+public class Optimizer {
+    // Largest body, in expression nodes, that is copied into its call sites.
+    private static final int INLINE_BUDGET = Integer.getInteger("jmonkey.inline.budget", 20);
+    // Most copies Specialization makes of one function in one program.
+    private static final int SPECIALIZE_LIMIT = Integer.getInteger("jmonkey.specialize.limit", 8);
+    private final boolean script;
+    private final Set<String> boundNames = new HashSet<>();
+    private final Set<String> assignedNames = new HashSet<>();
+    private List<String> report = List.of();
+    private int specialized;
+
+    public Optimizer() {
+        this(false);
+    }
+
+    // With script set, every program optimized is the last one to run in its environment.
+    public Optimizer(boolean script) {
+        this.script = script;
+    }
+
+    public ast.Program optimize(ast.Program program) {
+        Scan scan = Scan.of(program);
+        boundNames.addAll(scan.lets.keySet());
+        boundNames.addAll(scan.parameters);
+        assignedNames.addAll(scan.assigned);
+        report = new ArrayList<>();
+        ConstantFolding folding = new ConstantFolding(!boundNames.contains("len"), script);
+        Specialization specialization = new Specialization(SPECIALIZE_LIMIT, specialized, script, assignedNames, folding,
+                report);
+        List<Pass> passes = List.of(
+                new Inlining(INLINE_BUDGET, script, assignedNames, report),
+                folding,
+                specialization,
+                new BranchPruning(),
+                new DeadCodeElimination());
+        for (Pass pass : passes) {
+            program = pass.apply(program);
+        }
+        specialized = specialization.count();
+        return program;
+    }
+
+    // What the last optimize() inlined and specialized, and why the other function definitions
+    // were not inlined.
+    public List<String> report() {
+        return report;
+    }
+}
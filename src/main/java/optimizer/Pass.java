@@ -0,0 +1,6 @@
+package optimizer;
+
+// One rewrite over a whole program. Passes return a new tree and leave their input untouched.
+public interface Pass {
+    ast.Program apply(ast.Program program);
+}
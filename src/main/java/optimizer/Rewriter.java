@@ -0,0 +1,111 @@
+package optimizer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Copies a tree bottom-up. Subclasses override rewrite() and get a node whose children have
+// already been rewritten, or statements() to add, drop or splice statements in a list.
+abstract class Rewriter implements Pass {
+    @Override
+    public ast.Program apply(ast.Program program) {
+        return new ast.Program(statements(program.statements()));
+    }
+
+    protected List<ast.Statement> statements(List<ast.Statement> statements) {
+        List<ast.Statement> result = new ArrayList<>(statements.size());
+        for (ast.Statement statement : statements) {
+            result.add(statement(statement));
+        }
+        return result;
+    }
+
+    protected ast.Statement statement(ast.Statement statement) {
+        switch (statement) {
+            case ast.LetStatement actual -> {
+                return new ast.LetStatement(actual.token(), actual.name(), expression(actual.value()));
+            }
+            case ast.ReturnStatement actual -> {
+                return new ast.ReturnStatement(actual.token(), expression(actual.returnValue()));
+            }
+            case ast.ExpressionStatement actual -> {
+                return new ast.ExpressionStatement(actual.token(), expression(actual.expression()));
+            }
+            case ast.AssignStatement actual -> {
+                return new ast.AssignStatement(actual.token(), actual.name(), expression(actual.value()));
+            }
+            case ast.WhileStatement actual -> {
+                return new ast.WhileStatement(actual.token(), expression(actual.condition()), block(actual.body()));
+            }
+            case ast.ForInStatement actual -> {
+                return new ast.ForInStatement(actual.token(), actual.name(), expression(actual.iterable()),
+                        block(actual.body()));
+            }
+            case ast.BlockStatement actual -> {
+                return block(actual);
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + statement);
+        }
+    }
+
+    protected ast.BlockStatement block(ast.BlockStatement block) {
+        return block == null ? null : new ast.BlockStatement(block.token(), statements(block.statements()));
+    }
+
+    protected ast.Expression expression(ast.Expression expression) {
+        return expression == null ? null : rewrite(children(expression));
+    }
+
+    protected ast.Expression rewrite(ast.Expression expression) {
+        return expression;
+    }
+
+    private ast.Expression children(ast.Expression expression) {
+        switch (expression) {
+            case ast.PrefixExpression actual -> {
+                return new ast.PrefixExpression(actual.token(), actual.operator(), expression(actual.right()));
+            }
+            case ast.InfixExpression actual -> {
+                return new ast.InfixExpression(actual.token(), expression(actual.left()), actual.operator(),
+                        expression(actual.right()));
+            }
+            case ast.IfExpression actual -> {
+                return new ast.IfExpression(actual.token(), expression(actual.condition()),
+                        block(actual.consequence()), block(actual.alternative()));
+            }
+            case ast.FunctionLiteral actual -> {
+                return new ast.FunctionLiteral(actual.token(), actual.parameters(), block(actual.body()));
+            }
+            case ast.CallExpression actual -> {
+                return new ast.CallExpression(actual.token(), expression(actual.function()),
+                        expressions(actual.arguments()));
+            }
+            case ast.ArrayLiteral actual -> {
+                return new ast.ArrayLiteral(actual.token(), expressions(actual.elements()));
+            }
+            case ast.IndexExpression actual -> {
+                return new ast.IndexExpression(actual.token(), expression(actual.left()), expression(actual.index()));
+            }
+            case ast.HashLiteral actual -> {
+                // Keys are evaluated in iteration order, which a rebuilt HashMap would not keep.
+                Map<ast.Expression, ast.Expression> pairs = new LinkedHashMap<>();
+                for (var pair : actual.pairs().entrySet()) {
+                    pairs.put(expression(pair.getKey()), expression(pair.getValue()));
+                }
+                return new ast.HashLiteral(actual.token(), pairs);
+            }
+            default -> {
+                return expression;
+            }
+        }
+    }
+
+    private List<ast.Expression> expressions(List<ast.Expression> expressions) {
+        List<ast.Expression> result = new ArrayList<>(expressions.size());
+        for (ast.Expression expression : expressions) {
+            result.add(expression(expression));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+package optimizer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Collects what the passes need to know about a subtree: the names it binds and uses, whether
+// it creates functions, and how many expression nodes it has.
+final class Scan extends Rewriter {
+    final Map<String, Integer> lets = new HashMap<>();
+    final Set<String> assigned = new HashSet<>();
+    final Set<String> parameters = new HashSet<>();
+    final Set<String> identifiers = new HashSet<>();
+    boolean functions;
+    int size;
+
+    static Scan of(ast.Program program) {
+        Scan scan = new Scan();
+        scan.apply(program);
+        return scan;
+    }
+
+    static Scan of(ast.Node node) {
+        Scan scan = new Scan();
+        switch (node) {
+            case ast.Statement actual -> scan.statement(actual);
+            case ast.Expression actual -> scan.expression(actual);
+            default -> throw new IllegalStateException("Unexpected value: " + node);
+        }
+        return scan;
+    }
+
+    boolean binds(String name) {
+        return lets.containsKey(name) || parameters.contains(name);
+    }
+
+    @Override
+    protected ast.Statement statement(ast.Statement statement) {
+        if (statement instanceof ast.LetStatement actual) {
+            lets.merge(actual.name().value(), 1, Integer::sum);
+        } else if (statement instanceof ast.AssignStatement actual) {
+            assigned.add(actual.name().value());
+        } else if (statement instanceof ast.ForInStatement actual) {
+            lets.merge(actual.name().value(), 1, Integer::sum);
+        }
+        return super.statement(statement);
+    }
+
+    @Override
+    protected ast.Expression rewrite(ast.Expression expression) {
+        size++;
+        switch (expression) {
+            case ast.Identifier actual -> identifiers.add(actual.value());
+            case ast.FunctionLiteral actual -> {
+                functions = true;
+                for (ast.Identifier parameter : actual.parameters()) {
+                    parameters.add(parameter.value());
+                }
+            }
+            default -> {
+            }
+        }
+        return expression;
+    }
+}
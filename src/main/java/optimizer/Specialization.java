@@ -0,0 +1,248 @@
+package optimizer;
+
+import token.Token;
+import token.TokenType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static optimizer.Literals.isConstant;
+import static optimizer.Literals.isConstantHash;
+
+// Specializes functions bound by a top-level let for the literal arguments of a call. The call
+// f(x, 3, true) becomes f$s1(x), where f$s1 is a copy of f with 3 and true in place of their
+// parameters, folded and pruned, bound right after the let of f. Later calls with the same
+// literals reuse the copy, and a function gets at most limit of them. The names cannot clash
+// with a script's own, the lexer never produces a '$'.
+//
+// A parameter is only replaced when nothing in the body binds or assigns its name. A hash of
+// literals is only passed in when every use of its parameter indexes it with a literal or with
+// another replaced parameter, so those reads fold to the value. The same calls qualify as for
+// Inlining: after the let, with matching arity, where the callee is not shadowed, never assigned
+// by a program of the session, and outside a script not in a function body. A copy only runs
+// from such calls, so calls in its own body qualify as well.
+final class Specialization extends Rewriter {
+    // The literal arguments of a call, null where the argument is kept.
+    private record Key(String function, List<ast.Expression> constants) {
+    }
+
+    private final int limit;
+    private final boolean inFunctions;
+    // Names assigned by any program so far, a function of an earlier one may rebind them.
+    private final Set<String> rebound;
+    private final ConstantFolding folding;
+    private final BranchPruning pruning = new BranchPruning();
+    private final List<String> report;
+    private int count;
+    private final Map<String, ast.FunctionLiteral> available = new HashMap<>();
+    private final Map<Key, String> cache = new HashMap<>();
+    // Keys whose copy would have folded nothing.
+    private final Set<Key> fruitless = new HashSet<>();
+    private final Map<String, List<ast.Statement>> copies = new HashMap<>();
+    private Deque<Set<String>> scopes = new ArrayDeque<>();
+    // How many of the innermost scopes run before the program is done: none at the top level,
+    // the copy's own while one is made.
+    private int running;
+
+    // Copies are numbered from first on, so names stay unique across the programs of a session.
+    Specialization(int limit, int first, boolean inFunctions, Set<String> rebound, ConstantFolding folding,
+                   List<String> report) {
+        this.limit = limit;
+        this.count = first;
+        this.inFunctions = inFunctions;
+        this.rebound = rebound;
+        this.folding = folding;
+        this.report = report;
+    }
+
+    // The number of the last copy made.
+    int count() {
+        return count;
+    }
+
+    @Override
+    public ast.Program apply(ast.Program program) {
+        Scan scan = Scan.of(program);
+        List<ast.Statement> rewritten = new ArrayList<>(program.statements().size());
+        for (ast.Statement statement : program.statements()) {
+            ast.Statement result = statement(statement);
+            rewritten.add(result);
+            if (result instanceof ast.LetStatement actual && actual.value() instanceof ast.FunctionLiteral function) {
+                String name = actual.name().value();
+                if (scan.lets.get(name) == 1 && !scan.parameters.contains(name) && !rebound.contains(name)) {
+                    available.put(name, function);
+                }
+            }
+        }
+        List<ast.Statement> result = new ArrayList<>(rewritten.size());
+        for (ast.Statement statement : rewritten) {
+            result.add(statement);
+            if (statement instanceof ast.LetStatement actual && available.containsKey(actual.name().value())) {
+                result.addAll(copies.getOrDefault(actual.name().value(), List.of()));
+            }
+        }
+        return new ast.Program(result);
+    }
+
+    @Override
+    protected ast.Expression expression(ast.Expression expression) {
+        if (!(expression instanceof ast.FunctionLiteral actual)) {
+            return super.expression(expression);
+        }
+        Scan scan = Scan.of(actual.body());
+        Set<String> bound = new HashSet<>(scan.lets.keySet());
+        bound.addAll(scan.parameters);
+        for (ast.Identifier parameter : actual.parameters()) {
+            bound.add(parameter.value());
+        }
+        scopes.push(bound);
+        try {
+            return super.expression(expression);
+        } finally {
+            scopes.pop();
+        }
+    }
+
+    @Override
+    protected ast.Expression rewrite(ast.Expression expression) {
+        if (expression instanceof ast.CallExpression call && call.function() instanceof ast.Identifier callee) {
+            ast.FunctionLiteral function = available.get(callee.value());
+            if (function != null
+                    && (inFunctions || scopes.size() <= running)
+                    && call.arguments().size() == function.parameters().size()
+                    && scopes.stream().noneMatch(bound -> bound.contains(callee.value()))) {
+                return specialize(callee.value(), function, call);
+            }
+        }
+        return expression;
+    }
+
+    private ast.Expression specialize(String name, ast.FunctionLiteral function, ast.CallExpression call) {
+        List<String> parameters = function.parameters().stream().map(ast.Identifier::value).toList();
+        if (new HashSet<>(parameters).size() != parameters.size()) {
+            return call;
+        }
+        Scan scan = Scan.of(function.body());
+        Map<String, ast.Expression> scalars = new HashMap<>();
+        Map<String, ast.Expression> hashes = new HashMap<>();
+        for (int i = 0; i < parameters.size(); i++) {
+            String parameter = parameters.get(i);
+            ast.Expression argument = call.arguments().get(i);
+            if (isConstant(argument) && !scan.binds(parameter) && !scan.assigned.contains(parameter)) {
+                scalars.put(parameter, argument);
+            }
+        }
+        for (int i = 0; i < parameters.size(); i++) {
+            String parameter = parameters.get(i);
+            ast.Expression argument = call.arguments().get(i);
+            if (isConstantHash(argument) && !scan.binds(parameter) && !scan.assigned.contains(parameter)
+                    && onlyIndexed(function.body(), parameter, scalars.keySet())) {
+                hashes.put(parameter, argument);
+            }
+        }
+        if (scalars.isEmpty() && hashes.isEmpty()) {
+            return call;
+        }
+        List<ast.Expression> constants = new ArrayList<>(parameters.size());
+        List<ast.Expression> arguments = new ArrayList<>();
+        for (int i = 0; i < parameters.size(); i++) {
+            boolean fixed = scalars.containsKey(parameters.get(i)) || hashes.containsKey(parameters.get(i));
+            constants.add(fixed ? call.arguments().get(i) : null);
+            if (!fixed) {
+                arguments.add(call.arguments().get(i));
+            }
+        }
+        Key key = new Key(name, Arrays.asList(constants.toArray(ast.Expression[]::new)));
+        String copy = cache.get(key);
+        if (copy == null) {
+            if (fruitless.contains(key)) {
+                return call;
+            }
+            List<ast.Statement> made = copies.computeIfAbsent(name, k -> new ArrayList<>());
+            if (made.size() >= limit) {
+                report.add("not specializing " + call + ": " + name + " has " + limit + " copies");
+                return call;
+            }
+            ast.BlockStatement body = fold(function.body(), scalars, hashes);
+            if (body == null) {
+                fruitless.add(key);
+                return call;
+            }
+            copy = name + "$s" + ++count;
+            cache.put(key, copy);
+            report.add("specialized " + call + " as " + copy);
+            // Keeps the copies in the order they were made, those of calls in this one come after it.
+            int slot = made.size();
+            made.add(null);
+            made.set(slot, new ast.LetStatement(new Token(TokenType.LET, "let"), identifier(copy),
+                    copy(function, body, scalars, hashes)));
+        }
+        return new ast.CallExpression(call.token(), identifier(copy), arguments);
+    }
+
+    // The body with the literals in place, or null when that lets nothing fold or be pruned and a
+    // copy would gain nothing. Scalars go in first and are folded, so an index they make literal
+    // can then pick its value out of a hash.
+    private ast.BlockStatement fold(ast.BlockStatement original, Map<String, ast.Expression> scalars,
+                                    Map<String, ast.Expression> hashes) {
+        ast.BlockStatement body = folding.block(new Substitution(scalars).block(original));
+        body = pruning.block(folding.block(new Substitution(hashes).block(body)));
+        Map<String, ast.Expression> all = new HashMap<>(scalars);
+        all.putAll(hashes);
+        return Scan.of(body).size < Scan.of(new Substitution(all).block(original)).size ? body : null;
+    }
+
+    // The function without the fixed parameters. Calls in the copy are specialized in turn, as if
+    // it stood at the top level; its key is cached first, so recursion with the same literals
+    // calls the copy itself.
+    private ast.FunctionLiteral copy(ast.FunctionLiteral function, ast.BlockStatement body,
+                                     Map<String, ast.Expression> scalars, Map<String, ast.Expression> hashes) {
+        List<ast.Identifier> parameters = new ArrayList<>();
+        for (ast.Identifier parameter : function.parameters()) {
+            if (!scalars.containsKey(parameter.value()) && !hashes.containsKey(parameter.value())) {
+                parameters.add(parameter);
+            }
+        }
+        Deque<Set<String>> enclosing = scopes;
+        int enclosingRunning = running;
+        scopes = new ArrayDeque<>();
+        running = 1;
+        try {
+            return (ast.FunctionLiteral) expression(new ast.FunctionLiteral(function.token(), parameters, body));
+        } finally {
+            scopes = enclosing;
+            running = enclosingRunning;
+        }
+    }
+
+    // Whether every read of the parameter is an index with a literal or a fixed parameter.
+    private static boolean onlyIndexed(ast.BlockStatement body, String parameter, Set<String> fixed) {
+        int[] reads = new int[2];
+        new Rewriter() {
+            @Override
+            protected ast.Expression rewrite(ast.Expression expression) {
+                if (expression instanceof ast.Identifier identifier && identifier.value().equals(parameter)) {
+                    reads[0]++;
+                } else if (expression instanceof ast.IndexExpression index
+                        && index.left() instanceof ast.Identifier left && left.value().equals(parameter)
+                        && (isConstant(index.index())
+                        || index.index() instanceof ast.Identifier i && fixed.contains(i.value()))) {
+                    reads[1]++;
+                }
+                return expression;
+            }
+        }.block(body);
+        return reads[0] == reads[1];
+    }
+
+    private static ast.Identifier identifier(String name) {
+        return new ast.Identifier(new Token(TokenType.IDENT, name), name);
+    }
+}
@@ -0,0 +1,21 @@
+package optimizer;
+
+import java.util.Map;
+
+// Replaces every identifier with one of the given names, whatever scope it belongs to. Callers
+// make sure the names are not bound again inside the tree.
+final class Substitution extends Rewriter {
+    private final Map<String, ast.Expression> replacements;
+
+    Substitution(Map<String, ast.Expression> replacements) {
+        this.replacements = replacements;
+    }
+
+    @Override
+    protected ast.Expression rewrite(ast.Expression expression) {
+        if (expression instanceof ast.Identifier identifier && replacements.containsKey(identifier.value())) {
+            return replacements.get(identifier.value());
+        }
+        return expression;
+    }
+}
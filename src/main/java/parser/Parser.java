@@ -98,10 +98,107 @@ public class Parser {
         return switch (curToken.type()) {
             case LET -> parseLetStatement();
             case RETURN -> parseReturnStatement();
+            case WHILE -> parseWhileStatement();
+            case FOR -> parseForStatement();
+            case IDENT -> peekTokenIs(ASSIGN) ? parseAssignStatement() : parseExpressionStatement();
             default -> parseExpressionStatement();
         };
     }
 
+    private ast.AssignStatement parseAssignStatement() {
+        ast.Identifier name = new ast.Identifier(curToken, curToken.literal());
+        nextToken();
+        Token token = curToken;
+        nextToken();
+        ast.Expression value = parseExpression(LOWEST);
+        if (peekTokenIs(SEMICOLON)) {
+            nextToken();
+        }
+        return new ast.AssignStatement(token, name, value);
+    }
+
+    private ast.WhileStatement parseWhileStatement() {
+        Token token = curToken;
+        if (!expectPeek(LPAREN)) {
+            return null;
+        }
+        nextToken();
+        ast.Expression condition = parseExpression(LOWEST);
+        if (!expectPeek(RPAREN)) {
+            return null;
+        }
+        if (!expectPeek(LBRACE)) {
+            return null;
+        }
+        ast.BlockStatement body = parseBlockStatement();
+        if (peekTokenIs(SEMICOLON)) {
+            nextToken();
+        }
+        return new ast.WhileStatement(token, condition, body);
+    }
+
+    // for (init; condition; update) { body } is parsed as { init; while (condition) { body update } },
+    // blocks share the enclosing environment and the body cannot skip the update.
+    private ast.Statement parseForStatement() {
+        Token token = curToken;
+        if (!expectPeek(LPAREN)) {
+            return null;
+        }
+        nextToken();
+        if (curTokenIs(IDENT) && peekTokenIs(IN)) {
+            return parseForInStatement(token);
+        }
+        ast.Statement init = parseStatement();
+        if (!curTokenIs(SEMICOLON)) {
+            peekError(SEMICOLON);
+            return null;
+        }
+        nextToken();
+        ast.Expression condition = parseExpression(LOWEST);
+        if (!expectPeek(SEMICOLON)) {
+            return null;
+        }
+        nextToken();
+        ast.Statement update = parseStatement();
+        if (!expectPeek(RPAREN)) {
+            return null;
+        }
+        if (!expectPeek(LBRACE)) {
+            return null;
+        }
+        ast.BlockStatement body = parseBlockStatement();
+        if (peekTokenIs(SEMICOLON)) {
+            nextToken();
+        }
+        if (init == null || update == null) {
+            return null;
+        }
+        List<ast.Statement> statements = new ArrayList<>(body.statements());
+        statements.add(update);
+        ast.WhileStatement loop = new ast.WhileStatement(token, condition,
+                new ast.BlockStatement(body.token(), statements));
+        return new ast.BlockStatement(token, List.of(init, loop));
+    }
+
+    // for (name in iterable) { body }, the name is bound like a let in the enclosing environment.
+    private ast.ForInStatement parseForInStatement(Token token) {
+        ast.Identifier name = new ast.Identifier(curToken, curToken.literal());
+        nextToken();
+        nextToken();
+        ast.Expression iterable = parseExpression(LOWEST);
+        if (!expectPeek(RPAREN)) {
+            return null;
+        }
+        if (!expectPeek(LBRACE)) {
+            return null;
+        }
+        ast.BlockStatement body = parseBlockStatement();
+        if (peekTokenIs(SEMICOLON)) {
+            nextToken();
+        }
+        return new ast.ForInStatement(token, name, iterable, body);
+    }
+
     private ast.LetStatement parseLetStatement() {
         Token token = curToken;
         if (!expectPeek(IDENT)) {
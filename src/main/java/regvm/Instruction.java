@@ -0,0 +1,22 @@
+package regvm;
+
+// Operands: values >= 0 are registers, negative values are constants (~index).
+public record Instruction(Op op, int a, int b, int c) {
+    @Override
+    public String toString() {
+        return switch (op) {
+            case JUMP -> "%s %d".formatted(op, a);
+            case JUMP_NOT_TRUTHY, JUMP_DONE, JUMP_WRAPPED -> "%s %s %d".formatted(op, operand(b), a);
+            case LOAD_NAME, CLOSURE, ARRAY, HASH -> "%s %s #%d".formatted(op, operand(a), c);
+            case CALL -> "%s %s %s #%d".formatted(op, operand(a), operand(b), c);
+            case STORE_NAME -> "%s %s #%d".formatted(op, operand(b), c);
+            case CHECK_KEY, RETURN, RETURN_LAST, RETURN_WRAPPED -> "%s %s".formatted(op, operand(b));
+            case MOVE, MINUS, BANG, ITER, NEXT, WRAP -> "%s %s %s".formatted(op, operand(a), operand(b));
+            default -> "%s %s %s %s".formatted(op, operand(a), operand(b), operand(c));
+        };
+    }
+
+    static String operand(int operand) {
+        return operand >= 0 ? "r" + operand : "k" + ~operand;
+    }
+}
@@ -0,0 +1,639 @@
+package regvm;
+
+import resolver.Binding;
+import resolver.Resolver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static evaluator.Evaluator.FALSE;
+import static evaluator.Evaluator.NULL;
+import static evaluator.Evaluator.TRUE;
+
+// Lowers one resolved function (or the program) to three-address code.
+// Every expression result gets a fresh virtual register, variables keep the slot the Resolver gave
+// them. Copy propagation then folds "compute into a temporary, move it into a variable" pairs, and a
+// linear scan packs the temporaries into as few registers as possible.
+public class Lowering {
+    private static final int TEMP = 1 << 24; // Virtual temporaries are numbered from here until allocation
+
+    private final Resolver resolver;
+    private final ast.FunctionLiteral literal; // null for the program
+    private final int frameSize;
+    private final int numParameters;
+    private final List<Pending> code = new ArrayList<>();
+    private final List<object.Object> constants = new ArrayList<>();
+    private final List<int[]> lists = new ArrayList<>();
+    private final List<Binding> bindings = new ArrayList<>();
+    private final List<Prototype> prototypes = new ArrayList<>();
+    // Slots bound to a non-null value on every path to the current instruction, read without a lookup.
+    // Slots a nested function assigns never are, a call may change them between two instructions.
+    private final Set<Integer> assigned = new HashSet<>();
+    private int nullConstant; // Constants are negative, so 0 means not added yet
+    private int temps;
+    // The if used as a value whose branches are being lowered, null outside one. A return there
+    // only ends the if, see lowerIf.
+    private Catch catching;
+
+    private static final class Pending {
+        final Op op;
+        int a;
+        int b;
+        int c;
+        int[] list;
+        Label target;
+
+        Pending(Op op, int a, int b, int c) {
+            this.op = op;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+        }
+    }
+
+    private static final class Label {
+        int position;
+    }
+
+    private record Catch(int result, Label end) {
+    }
+
+    private Lowering(Resolver resolver, ast.FunctionLiteral literal, int frameSize, int numParameters) {
+        this.resolver = resolver;
+        this.literal = literal;
+        this.frameSize = frameSize;
+        this.numParameters = numParameters;
+        for (int slot = 0; slot < numParameters; slot++) {
+            assign(slot);
+        }
+    }
+
+    // The program runs in the global frame, its temporaries go after the globals known so far.
+    public static Prototype lower(Resolver resolver, ast.Program program) {
+        Lowering lowering = new Lowering(resolver, null, resolver.globalSize(), 0);
+        int result = lowering.lowerStatements(program.statements(), true, true);
+        lowering.emit(Op.RETURN_LAST, 0, result, 0);
+        return lowering.finish(null);
+    }
+
+    private Prototype lowerFunction() {
+        int result = lowerStatements(literal.body().statements(), true, true);
+        emit(Op.RETURN_LAST, 0, result, 0);
+        return finish(literal);
+    }
+
+    // Returns the operand holding the value of the last statement, like Evaluator.evalBlockStatement.
+    // A statement whose value is a wrapped return ends the block, unless it is the last one of a
+    // block whose value is used.
+    private int lowerStatements(List<ast.Statement> statements, boolean functionLevel, boolean valued) {
+        int value = nullConstant();
+        for (int i = 0; i < statements.size(); i++) {
+            value = lowerStatement(statements.get(i), functionLevel);
+            if (statements.get(i) instanceof ast.ExpressionStatement actual && mayReturn(actual.expression())
+                    && !(valued && i == statements.size() - 1)) {
+                if (catching == null) {
+                    emit(Op.RETURN_WRAPPED, 0, value, 0);
+                } else {
+                    emit(Op.MOVE, catching.result(), value, 0);
+                    jump(Op.JUMP_WRAPPED, catching.result(), catching.end());
+                }
+            }
+        }
+        return value;
+    }
+
+    private int lowerStatement(ast.Statement statement, boolean functionLevel) {
+        switch (statement) {
+            case ast.ExpressionStatement actual -> {
+                if (actual.expression() instanceof ast.IfExpression ifExpression) {
+                    return lowerIf(ifExpression, false);
+                }
+                return lower(actual.expression());
+            }
+            case ast.ReturnStatement actual -> {
+                int value = lower(actual.returnValue());
+                if (catching == null) {
+                    emit(Op.RETURN, 0, value, 0);
+                } else {
+                    emit(Op.WRAP, catching.result(), value, 0);
+                    jump(Op.JUMP, 0, catching.end());
+                }
+                return value;
+            }
+            case ast.LetStatement actual -> {
+                int value = lower(actual.value());
+                int slot = resolver.binding(actual.name()).slots()[0];
+                emit(Op.MOVE, slot, value, 0);
+                if (!neverNull(actual.value())) {
+                    // A null value leaves the name unbound, as Environment.set(name, null) does.
+                    assigned.remove(slot);
+                } else if (functionLevel) {
+                    assign(slot);
+                }
+                return nullConstant();
+            }
+            case ast.AssignStatement actual -> {
+                int value = lower(actual.value());
+                Binding binding = resolver.binding(actual.name());
+                int slot = binding.slots()[0];
+                if (binding.depths()[0] == 0 && assigned.contains(slot) && neverNull(actual.value())) {
+                    emit(Op.MOVE, slot, value, 0);
+                } else {
+                    if (binding.depths()[0] == 0) {
+                        assigned.remove(slot);
+                    }
+                    bindings.add(binding);
+                    emit(Op.STORE_NAME, 0, value, bindings.size() - 1);
+                }
+                return nullConstant();
+            }
+            case ast.WhileStatement actual -> {
+                lowerWhile(actual);
+                return nullConstant();
+            }
+            case ast.ForInStatement actual -> {
+                lowerForIn(actual);
+                return nullConstant();
+            }
+            case ast.BlockStatement actual -> {
+                return lowerStatements(actual.statements(), functionLevel, true);
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + statement);
+        }
+    }
+
+    private int lower(ast.Expression expression) {
+        switch (expression) {
+            case ast.IntegerLiteral actual -> {
+                return constant(actual.constant());
+            }
+            case ast.StringLiteral actual -> {
+                return constant(actual.constant());
+            }
+            case ast.Boolean actual -> {
+                return constant(actual.value() ? TRUE : FALSE);
+            }
+            case ast.Identifier actual -> {
+                Binding binding = resolver.binding(actual);
+                int slot = binding.slots()[0];
+                if (binding.depths()[0] == 0 && assigned.contains(slot)) {
+                    return slot;
+                }
+                bindings.add(binding);
+                return emitTemp(Op.LOAD_NAME, 0, bindings.size() - 1);
+            }
+            case ast.PrefixExpression actual -> {
+                int right = lower(actual.right());
+                return emitTemp(actual.operator().equals("-") ? Op.MINUS : Op.BANG, right, 0);
+            }
+            case ast.InfixExpression actual -> {
+                int left = stable(lower(actual.left()), actual.right());
+                int right = lower(actual.right());
+                Op op = switch (actual.operator()) {
+                    case "+" -> Op.ADD;
+                    case "-" -> Op.SUB;
+                    case "*" -> Op.MUL;
+                    case "/" -> Op.DIV;
+                    case "<" -> Op.LESS_THAN;
+                    case ">" -> Op.GREATER_THAN;
+                    case "==" -> Op.EQUAL;
+                    case "!=" -> Op.NOT_EQUAL;
+                    default -> throw new IllegalStateException("Unexpected value: " + actual.operator());
+                };
+                return emitTemp(op, left, right);
+            }
+            case ast.IfExpression actual -> {
+                return lowerIf(actual, true);
+            }
+            case ast.FunctionLiteral actual -> {
+                Lowering function = new Lowering(resolver, actual, resolver.frameSize(actual),
+                        actual.parameters().size());
+                prototypes.add(function.lowerFunction());
+                return emitTemp(Op.CLOSURE, 0, prototypes.size() - 1);
+            }
+            case ast.CallExpression actual -> {
+                int function = stable(lower(actual.function()), actual.arguments());
+                int[] arguments = lowerAll(actual.arguments());
+                int result = emitTemp(Op.CALL, function, lists.size());
+                code.get(code.size() - 1).list = arguments;
+                lists.add(arguments);
+                return result;
+            }
+            case ast.ArrayLiteral actual -> {
+                int[] elements = lowerAll(actual.elements());
+                int result = emitTemp(Op.ARRAY, 0, lists.size());
+                code.get(code.size() - 1).list = elements;
+                lists.add(elements);
+                return result;
+            }
+            case ast.IndexExpression actual -> {
+                int left = stable(lower(actual.left()), actual.index());
+                int index = lower(actual.index());
+                return emitTemp(Op.INDEX, left, index);
+            }
+            case ast.HashLiteral actual -> {
+                List<ast.Expression> rest = new ArrayList<>();
+                actual.pairs().forEach((key, value) -> {
+                    rest.add(key);
+                    rest.add(value);
+                });
+                int[] pairs = new int[rest.size()];
+                for (int i = 0; i < pairs.length; i++) {
+                    pairs[i] = stable(lower(rest.get(i)), rest.subList(i + 1, rest.size()));
+                    if (i % 2 == 0) {
+                        // Keys are checked before their value is evaluated, as in Evaluator.evalHashLiteral.
+                        emit(Op.CHECK_KEY, 0, pairs[i], 0);
+                    }
+                }
+                int result = emitTemp(Op.HASH, 0, lists.size());
+                code.get(code.size() - 1).list = pairs;
+                lists.add(pairs);
+                return result;
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + expression);
+        }
+    }
+
+    // A return inside an if used as a value does not leave the function, the if takes the value
+    // wrapped in an object.ReturnValue, as in Evaluator. An if statement's returns go where a return
+    // in the enclosing block would.
+    private int lowerIf(ast.IfExpression node, boolean valued) {
+        int condition = lower(node.condition());
+        Label otherwise = new Label();
+        Label end = new Label();
+        jump(Op.JUMP_NOT_TRUTHY, condition, otherwise);
+        // Lets in a branch never make a slot definitely assigned, they can only unassign it.
+        int result = temp();
+        Catch outer = catching;
+        if (valued) {
+            catching = new Catch(result, end);
+        }
+        emit(Op.MOVE, result, lowerStatements(node.consequence().statements(), false, true), 0);
+        jump(Op.JUMP, 0, end);
+        mark(otherwise);
+        int alternative = node.alternative() != null
+                ? lowerStatements(node.alternative().statements(), false, true)
+                : constant(NULL);
+        emit(Op.MOVE, result, alternative, 0);
+        catching = outer;
+        mark(end);
+        return result;
+    }
+
+    // The body jumps back to the condition, so a slot the loop may unbind is looked up throughout.
+    private void lowerWhile(ast.WhileStatement node) {
+        unassignIn(node);
+        Label start = new Label();
+        Label end = new Label();
+        mark(start);
+        int condition = lower(node.condition());
+        jump(Op.JUMP_NOT_TRUTHY, condition, end);
+        lowerStatements(node.body().statements(), false, false);
+        jump(Op.JUMP, 0, start);
+        mark(end);
+    }
+
+    // The loop variable is bound throughout the body, unless the body may unbind it; after the
+    // loop it is only bound if it was before, the iterable may have been empty.
+    private void lowerForIn(ast.ForInStatement node) {
+        int cursor = emitTemp(Op.ITER, lower(node.iterable()), 0);
+        int slot = resolver.binding(node.name()).slots()[0];
+        boolean bound = assigned.contains(slot);
+        assign(slot);
+        unassignIn(node.body());
+        Label start = new Label();
+        Label end = new Label();
+        mark(start);
+        jump(Op.JUMP_DONE, cursor, end);
+        emit(Op.NEXT, slot, cursor, 0);
+        lowerStatements(node.body().statements(), false, false);
+        jump(Op.JUMP, 0, start);
+        mark(end);
+        if (!bound) {
+            assigned.remove(slot);
+        }
+    }
+
+    private void unassignIn(ast.Node node) {
+        switch (node) {
+            case ast.LetStatement actual -> {
+                if (!neverNull(actual.value())) {
+                    assigned.remove(resolver.binding(actual.name()).slots()[0]);
+                }
+                unassignIn(actual.value());
+            }
+            case ast.AssignStatement actual -> {
+                Binding binding = resolver.binding(actual.name());
+                if (!neverNull(actual.value()) && binding.depths()[0] == 0) {
+                    assigned.remove(binding.slots()[0]);
+                }
+                unassignIn(actual.value());
+            }
+            case ast.WhileStatement actual -> {
+                unassignIn(actual.condition());
+                unassignIn(actual.body());
+            }
+            case ast.ForInStatement actual -> {
+                unassignIn(actual.iterable());
+                unassignIn(actual.body());
+            }
+            case ast.BlockStatement actual -> actual.statements().forEach(this::unassignIn);
+            case ast.ExpressionStatement actual -> unassignIn(actual.expression());
+            case ast.ReturnStatement actual -> unassignIn(actual.returnValue());
+            case ast.PrefixExpression actual -> unassignIn(actual.right());
+            case ast.InfixExpression actual -> {
+                unassignIn(actual.left());
+                unassignIn(actual.right());
+            }
+            case ast.IfExpression actual -> {
+                unassignIn(actual.condition());
+                unassignIn(actual.consequence());
+                if (actual.alternative() != null) {
+                    unassignIn(actual.alternative());
+                }
+            }
+            case ast.CallExpression actual -> {
+                unassignIn(actual.function());
+                actual.arguments().forEach(this::unassignIn);
+            }
+            case ast.ArrayLiteral actual -> actual.elements().forEach(this::unassignIn);
+            case ast.IndexExpression actual -> {
+                unassignIn(actual.left());
+                unassignIn(actual.index());
+            }
+            case ast.HashLiteral actual -> actual.pairs().forEach((key, value) -> {
+                unassignIn(key);
+                unassignIn(value);
+            });
+            // A function literal binds in its own frame.
+            default -> {
+            }
+        }
+    }
+
+    private void assign(int slot) {
+        if (!resolver.isAssignedInside(literal, slot)) {
+            assigned.add(slot);
+        }
+    }
+
+    private int[] lowerAll(List<ast.Expression> expressions) {
+        int[] operands = new int[expressions.size()];
+        for (int i = 0; i < operands.length; i++) {
+            operands[i] = stable(lower(expressions.get(i)), expressions.subList(i + 1, expressions.size()));
+        }
+        return operands;
+    }
+
+    // A variable read directly from its register is only read when the instruction runs. If a
+    // later operand rebinds it with a let or an assignment, take a copy now, like the evaluator.
+    private int stable(int operand, List<ast.Expression> rest) {
+        for (var expression : rest) {
+            if (operand >= 0 && operand < TEMP && rebinds(expression)) {
+                return emitTemp(Op.MOVE, operand, 0);
+            }
+        }
+        return operand;
+    }
+
+    private int stable(int operand, ast.Expression rest) {
+        return stable(operand, List.of(rest));
+    }
+
+    private static boolean rebinds(ast.Node node) {
+        return switch (node) {
+            case ast.LetStatement ignored -> true;
+            case ast.AssignStatement ignored -> true;
+            case ast.WhileStatement actual -> rebinds(actual.condition()) || rebinds(actual.body());
+            case ast.ForInStatement ignored -> true;
+            case ast.BlockStatement actual -> actual.statements().stream().anyMatch(Lowering::rebinds);
+            case ast.ExpressionStatement actual -> rebinds(actual.expression());
+            case ast.ReturnStatement actual -> rebinds(actual.returnValue());
+            case ast.PrefixExpression actual -> rebinds(actual.right());
+            case ast.InfixExpression actual -> rebinds(actual.left()) || rebinds(actual.right());
+            case ast.IfExpression actual -> rebinds(actual.condition()) || rebinds(actual.consequence())
+                    || (actual.alternative() != null && rebinds(actual.alternative()));
+            case ast.CallExpression actual -> rebinds(actual.function())
+                    || actual.arguments().stream().anyMatch(Lowering::rebinds);
+            case ast.ArrayLiteral actual -> actual.elements().stream().anyMatch(Lowering::rebinds);
+            case ast.IndexExpression actual -> rebinds(actual.left()) || rebinds(actual.index());
+            case ast.HashLiteral actual -> actual.pairs().entrySet().stream()
+                    .anyMatch(pair -> rebinds(pair.getKey()) || rebinds(pair.getValue()));
+            // Lets in a function literal bind in the function's own frame, and the slots its
+            // assignments reach are never read directly.
+            default -> false;
+        };
+    }
+
+    // Only a name, an element, a call or an if can give a value that is a wrapped return.
+    private static boolean mayReturn(ast.Expression expression) {
+        return switch (expression) {
+            case ast.Identifier ignored -> true;
+            case ast.IndexExpression ignored -> true;
+            case ast.CallExpression ignored -> true;
+            case ast.IfExpression ignored -> true;
+            default -> false;
+        };
+    }
+
+    // Calls and if expressions can produce a Java null (an empty body, a block ending in a let).
+    private static boolean neverNull(ast.Expression expression) {
+        return switch (expression) {
+            case ast.CallExpression ignored -> false;
+            case ast.IfExpression ignored -> false;
+            case ast.IndexExpression ignored -> false;
+            default -> true;
+        };
+    }
+
+    private int constant(object.Object value) {
+        constants.add(value);
+        return ~(constants.size() - 1);
+    }
+
+    private int nullConstant() {
+        if (nullConstant == 0) {
+            nullConstant = constant(null);
+        }
+        return nullConstant;
+    }
+
+    private int temp() {
+        return TEMP + temps++;
+    }
+
+    private int emitTemp(Op op, int b, int c) {
+        int result = temp();
+        emit(op, result, b, c);
+        return result;
+    }
+
+    private void emit(Op op, int a, int b, int c) {
+        code.add(new Pending(op, a, b, c));
+    }
+
+    private void jump(Op op, int condition, Label target) {
+        Pending pending = new Pending(op, 0, condition, 0);
+        pending.target = target;
+        code.add(pending);
+    }
+
+    private void mark(Label label) {
+        Pending pending = new Pending(Op.LABEL, 0, 0, 0);
+        pending.target = label;
+        code.add(pending);
+    }
+
+    private Prototype finish(ast.FunctionLiteral literal) {
+        propagateCopies();
+        int numRegisters = frameSize + allocateRegisters();
+        int position = 0;
+        for (var pending : code) {
+            if (pending.op == Op.LABEL) {
+                pending.target.position = position;
+            } else {
+                position++;
+            }
+        }
+        List<Instruction> instructions = new ArrayList<>(position);
+        for (var pending : code) {
+            if (pending.op == Op.LABEL) {
+                continue;
+            }
+            int a = pending.target != null ? pending.target.position : pending.a;
+            instructions.add(new Instruction(pending.op, a, pending.b, pending.c));
+        }
+        return new Prototype(literal, numParameters, numRegisters, instructions.toArray(new Instruction[0]),
+                constants.toArray(new object.Object[0]), lists.toArray(new int[0][]),
+                bindings.toArray(new Binding[0]), prototypes.toArray(new Prototype[0]));
+    }
+
+    // "t = x op y; MOVE v, t" becomes "v = x op y" when the move is t's only use.
+    private void propagateCopies() {
+        int[] defs = new int[temps];
+        int[] uses = new int[temps];
+        for (var pending : code) {
+            forEachOperand(pending, (operand, isDef) -> {
+                if (operand >= TEMP) {
+                    (isDef ? defs : uses)[operand - TEMP]++;
+                }
+            });
+        }
+        List<Pending> result = new ArrayList<>(code.size());
+        for (var pending : code) {
+            if (pending.op == Op.MOVE && pending.a == pending.b) {
+                continue;
+            }
+            if (pending.op == Op.MOVE && pending.b >= TEMP && !result.isEmpty()) {
+                Pending previous = result.get(result.size() - 1);
+                int temp = pending.b - TEMP;
+                if (previous.op.defines() && previous.a == pending.b && defs[temp] == 1 && uses[temp] == 1) {
+                    previous.a = pending.a;
+                    continue;
+                }
+            }
+            result.add(pending);
+        }
+        code.clear();
+        code.addAll(result);
+    }
+
+    // A temporary is live from its first to its last mention, and one that is live when a loop
+    // starts stays live until the jump back, the next iteration may still read it.
+    private int allocateRegisters() {
+        int[] start = new int[temps];
+        int[] end = new int[temps];
+        Arrays.fill(start, -1);
+        for (int i = 0; i < code.size(); i++) {
+            int position = i;
+            if (code.get(i).op == Op.LABEL) {
+                code.get(i).target.position = i;
+            }
+            forEachOperand(code.get(i), (operand, isDef) -> {
+                if (operand >= TEMP) {
+                    int temp = operand - TEMP;
+                    if (start[temp] == -1) {
+                        start[temp] = position;
+                    }
+                    end[temp] = position;
+                }
+            });
+        }
+        for (int i = 0; i < code.size(); i++) {
+            Pending pending = code.get(i);
+            if (pending.op == Op.JUMP && pending.target.position < i) {
+                for (int temp = 0; temp < temps; temp++) {
+                    if (start[temp] != -1 && start[temp] < pending.target.position
+                            && end[temp] >= pending.target.position && end[temp] < i) {
+                        end[temp] = i;
+                    }
+                }
+            }
+        }
+        Integer[] order = new Integer[temps];
+        for (int i = 0; i < temps; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(t -> start[t]));
+        int[] registers = new int[temps];
+        List<Integer> active = new ArrayList<>();
+        Deque<Integer> free = new ArrayDeque<>();
+        int used = 0;
+        for (int temp : order) {
+            if (start[temp] == -1) {
+                continue;
+            }
+            // Operands are read before the result is written, so an interval may start where another ends.
+            for (var it = active.iterator(); it.hasNext(); ) {
+                int other = it.next();
+                if (end[other] <= start[temp]) {
+                    free.push(registers[other]);
+                    it.remove();
+                }
+            }
+            registers[temp] = free.isEmpty() ? frameSize + used++ : free.pop();
+            active.add(temp);
+        }
+        for (var pending : code) {
+            pending.a = rename(pending.op.isOperand(0), pending.a, registers);
+            pending.b = rename(pending.op.isOperand(1), pending.b, registers);
+            pending.c = rename(pending.op.isOperand(2), pending.c, registers);
+            if (pending.list != null) {
+                for (int i = 0; i < pending.list.length; i++) {
+                    pending.list[i] = rename(true, pending.list[i], registers);
+                }
+            }
+        }
+        return used;
+    }
+
+    private static int rename(boolean isOperand, int operand, int[] registers) {
+        return isOperand && operand >= TEMP ? registers[operand - TEMP] : operand;
+    }
+
+    private interface OperandVisitor {
+        void visit(int operand, boolean isDef);
+    }
+
+    private static void forEachOperand(Pending pending, OperandVisitor visitor) {
+        for (int field = 1; field <= 2; field++) {
+            if (pending.op.isOperand(field)) {
+                visitor.visit(field == 1 ? pending.b : pending.c, false);
+            }
+        }
+        if (pending.list != null) {
+            for (int operand : pending.list) {
+                visitor.visit(operand, false);
+            }
+        }
+        if (pending.op.defines()) {
+            visitor.visit(pending.a, true);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package regvm;
+
+// Three-address opcodes. The mask says which of the a, b and c fields name registers or
+// constants, so passes can rename operands without knowing each instruction.
+public enum Op {
+    MOVE(0b011),
+    ADD(0b111),
+    SUB(0b111),
+    MUL(0b111),
+    DIV(0b111),
+    LESS_THAN(0b111),
+    GREATER_THAN(0b111),
+    EQUAL(0b111),
+    NOT_EQUAL(0b111),
+    MINUS(0b011),
+    BANG(0b011),
+    JUMP(0b000),
+    JUMP_NOT_TRUTHY(0b010),
+    ITER(0b011),         // a gets an object.Cursor over b
+    JUMP_DONE(0b010),    // jumps to a when the cursor in b is exhausted
+    NEXT(0b011),         // a gets the next element of the cursor in b
+    LOAD_NAME(0b001),    // c is the index of a resolver.Binding
+    STORE_NAME(0b010),   // c is the index of a resolver.Binding
+    CLOSURE(0b001),      // c is the index of a Prototype
+    CALL(0b011),         // c is the index of an argument list
+    ARRAY(0b001),        // c is the index of an element list
+    HASH(0b001),         // c is the index of a key, value, key, value... list
+    CHECK_KEY(0b010),
+    INDEX(0b111),
+    RETURN(0b010),
+    RETURN_LAST(0b010),     // returns b, unwrapped when it is an object.ReturnValue
+    RETURN_WRAPPED(0b010),  // returns what b wraps when it is an object.ReturnValue
+    WRAP(0b011),            // a gets b wrapped in an object.ReturnValue
+    JUMP_WRAPPED(0b010),    // jumps to a when b is an object.ReturnValue
+    LABEL(0b000);        // Only exists while lowering
+
+    private final int operands;
+
+    Op(int operands) {
+        this.operands = operands;
+    }
+
+    boolean isOperand(int field) {
+        return (operands & (1 << field)) != 0;
+    }
+
+    boolean defines() {
+        return isOperand(0);
+    }
+}
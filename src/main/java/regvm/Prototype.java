@@ -0,0 +1,17 @@
+package regvm;
+
+import resolver.Binding;
+
+// A lowered function, or the top-level program when literal is null.
+// Registers [0, frameSize) are the resolver's slots, parameters first; temporaries follow.
+public record Prototype(ast.FunctionLiteral literal, int numParameters, int numRegisters, Instruction[] code,
+                       object.Object[] constants, int[][] lists, Binding[] bindings, Prototype[] prototypes) {
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < code.length; i++) {
+            out.append("%04d %s%n".formatted(i, code[i]));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,20 @@
+package regvm;
+
+import object.Frame;
+import object.ObjectType;
+
+import java.util.List;
+
+public record RegisterFunction(Prototype prototype, Frame frame) implements object.Object {
+    @Override
+    public ObjectType type() {
+        return ObjectType.FUNCTION_OBJ;
+    }
+
+    @Override
+    public String inspect() {
+        ast.FunctionLiteral literal = prototype.literal();
+        List<String> params = literal.parameters().stream().map(ast.Identifier::toString).toList();
+        return "fn(" + String.join(", ", params) + ") {\n" + literal.body() + "\n}";
+    }
+}
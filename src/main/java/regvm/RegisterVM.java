@@ -0,0 +1,208 @@
+package regvm;
+
+import object.Frame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static evaluator.Evaluator.FALSE;
+import static evaluator.Evaluator.TRUE;
+import static evaluator.Evaluator.cursor;
+import static evaluator.Evaluator.evalIndexExpression;
+import static evaluator.Evaluator.evalInfixExpression;
+import static evaluator.Evaluator.evalPrefixExpression;
+import static evaluator.Evaluator.isError;
+import static evaluator.Evaluator.isTruthy;
+import static evaluator.Evaluator.newError;
+
+// Runs lowered code; every call gets a fresh frame with the prototype's register count.
+// Errors end the current function and are passed up by each CALL, as Evaluator propagates them.
+public final class RegisterVM {
+    private RegisterVM() {
+    }
+
+    public static object.Object execute(Prototype prototype, Frame frame) {
+        Instruction[] code = prototype.code();
+        object.Object[] constants = prototype.constants();
+        int pc = 0;
+        while (true) {
+            Instruction ins = code[pc++];
+            switch (ins.op()) {
+                case MOVE -> frame.set(ins.a(), get(frame, constants, ins.b()));
+                case ADD, SUB, MUL, DIV, LESS_THAN, GREATER_THAN, EQUAL, NOT_EQUAL -> {
+                    object.Object result = executeBinaryOperation(ins.op(),
+                            get(frame, constants, ins.b()), get(frame, constants, ins.c()));
+                    if (result instanceof object.Error) {
+                        return result;
+                    }
+                    frame.set(ins.a(), result);
+                }
+                case MINUS, BANG -> {
+                    object.Object operand = get(frame, constants, ins.b());
+                    object.Object result;
+                    if (ins.op() == Op.MINUS && operand instanceof object.Integer integer) {
+                        result = object.Integer.valueOf(-integer.value());
+                    } else {
+                        result = evalPrefixExpression(ins.op() == Op.BANG ? "!" : "-", operand);
+                    }
+                    if (result instanceof object.Error) {
+                        return result;
+                    }
+                    frame.set(ins.a(), result);
+                }
+                case JUMP -> pc = ins.a();
+                case JUMP_NOT_TRUTHY -> {
+                    if (!isTruthy(get(frame, constants, ins.b()))) {
+                        pc = ins.a();
+                    }
+                }
+                case ITER -> {
+                    object.Object cursor = cursor(get(frame, constants, ins.b()));
+                    if (cursor instanceof object.Error) {
+                        return cursor;
+                    }
+                    frame.set(ins.a(), cursor);
+                }
+                case JUMP_DONE -> {
+                    if (!((object.Cursor) frame.get(ins.b())).hasNext()) {
+                        pc = ins.a();
+                    }
+                }
+                case NEXT -> frame.set(ins.a(), ((object.Cursor) frame.get(ins.b())).next());
+                case LOAD_NAME -> {
+                    resolver.Binding binding = prototype.bindings()[ins.c()];
+                    object.Object value = binding.lookup(frame);
+                    if (value == null) {
+                        return newError("identifier not found: " + binding.name());
+                    }
+                    frame.set(ins.a(), value);
+                }
+                case STORE_NAME -> {
+                    resolver.Binding binding = prototype.bindings()[ins.c()];
+                    if (!binding.assign(frame, get(frame, constants, ins.b()))) {
+                        return newError("identifier not found: " + binding.name());
+                    }
+                }
+                case CLOSURE -> frame.set(ins.a(), new RegisterFunction(prototype.prototypes()[ins.c()], frame));
+                case CALL -> {
+                    object.Object result = call(frame, constants, get(frame, constants, ins.b()),
+                            prototype.lists()[ins.c()]);
+                    if (isError(result)) {
+                        return result;
+                    }
+                    frame.set(ins.a(), result);
+                }
+                case ARRAY -> {
+                    int[] operands = prototype.lists()[ins.c()];
+                    List<object.Object> elements = new ArrayList<>(operands.length);
+                    for (int operand : operands) {
+                        elements.add(get(frame, constants, operand));
+                    }
+                    frame.set(ins.a(), new object.Array(elements));
+                }
+                case HASH -> {
+                    int[] operands = prototype.lists()[ins.c()];
+                    Map<object.HashKey, object.HashPair> pairs = new HashMap<>();
+                    for (int i = 0; i < operands.length; i += 2) {
+                        object.Object key = get(frame, constants, operands[i]);
+                        object.Object value = get(frame, constants, operands[i + 1]);
+                        pairs.put(((object.HashTable) key).hashKey(), new object.HashPair(key, value));
+                    }
+                    frame.set(ins.a(), new object.Hash(pairs));
+                }
+                case CHECK_KEY -> {
+                    object.Object key = get(frame, constants, ins.b());
+                    if (!(key instanceof object.HashTable)) {
+                        return newError("unusable as hash key: %s", key.type().literal());
+                    }
+                }
+                case INDEX -> {
+                    object.Object result = evalIndexExpression(get(frame, constants, ins.b()),
+                            get(frame, constants, ins.c()));
+                    if (result instanceof object.Error) {
+                        return result;
+                    }
+                    frame.set(ins.a(), result);
+                }
+                case RETURN -> {
+                    return get(frame, constants, ins.b());
+                }
+                case RETURN_LAST -> {
+                    object.Object value = get(frame, constants, ins.b());
+                    return value instanceof object.ReturnValue returned ? returned.value() : value;
+                }
+                case RETURN_WRAPPED -> {
+                    if (get(frame, constants, ins.b()) instanceof object.ReturnValue returned) {
+                        return returned.value();
+                    }
+                }
+                case WRAP -> frame.set(ins.a(), new object.ReturnValue(get(frame, constants, ins.b())));
+                case JUMP_WRAPPED -> {
+                    if (get(frame, constants, ins.b()) instanceof object.ReturnValue) {
+                        pc = ins.a();
+                    }
+                }
+                default -> throw new IllegalStateException("Unexpected value: " + ins.op());
+            }
+        }
+    }
+
+    private static object.Object get(Frame frame, object.Object[] constants, int operand) {
+        return operand >= 0 ? frame.get(operand) : constants[~operand];
+    }
+
+    private static object.Object call(Frame frame, object.Object[] constants, object.Object fn, int[] arguments) {
+        switch (fn) {
+            case RegisterFunction actual -> {
+                Prototype prototype = actual.prototype();
+                Frame callFrame = new Frame(prototype.numRegisters(), actual.frame());
+                for (int i = 0; i < prototype.numParameters(); i++) {
+                    callFrame.set(i, get(frame, constants, arguments[i]));
+                }
+                return execute(prototype, callFrame);
+            }
+            case object.Builtin actual -> {
+                object.Object[] args = new object.Object[arguments.length];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = get(frame, constants, arguments[i]);
+                }
+                return actual.fn().exec(args);
+            }
+            default -> {
+                return newError("not a function: %s", fn.type());
+            }
+        }
+    }
+
+    private static object.Object executeBinaryOperation(Op op, object.Object left, object.Object right) {
+        if (left instanceof object.Integer l && right instanceof object.Integer r) {
+            int leftVal = l.value();
+            int rightVal = r.value();
+            return switch (op) {
+                case ADD -> object.Integer.valueOf(leftVal + rightVal);
+                case SUB -> object.Integer.valueOf(leftVal - rightVal);
+                case MUL -> object.Integer.valueOf(leftVal * rightVal);
+                case DIV -> object.Integer.valueOf(leftVal / rightVal);
+                case EQUAL -> leftVal == rightVal ? TRUE : FALSE;
+                case NOT_EQUAL -> leftVal != rightVal ? TRUE : FALSE;
+                case GREATER_THAN -> leftVal > rightVal ? TRUE : FALSE;
+                case LESS_THAN -> leftVal < rightVal ? TRUE : FALSE;
+                default -> throw new IllegalStateException("Unexpected value: " + op);
+            };
+        }
+        String operator = switch (op) {
+            case ADD -> "+";
+            case SUB -> "-";
+            case MUL -> "*";
+            case DIV -> "/";
+            case EQUAL -> "==";
+            case NOT_EQUAL -> "!=";
+            case GREATER_THAN -> ">";
+            case LESS_THAN -> "<";
+            default -> throw new IllegalStateException("Unexpected value: " + op);
+        };
+        return evalInfixExpression(operator, left, right);
+    }
+}
@@ -1,14 +1,18 @@
 package repl;
 
 import ast.Program;
-import evaluator.Evaluator;
+import engine.Engine;
+import engine.EngineKind;
 import lexer.Lexer;
-import object.Environment;
 import object.Object;
+import optimizer.Optimizer;
 import parser.Parser;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Scanner;
 
@@ -29,8 +33,19 @@ public class Repl {
             """;
 
     public static void start(InputStream in, PrintStream out) {
+        start(in, out, EngineKind.EVALUATOR);
+    }
+
+    public static void start(InputStream in, PrintStream out, EngineKind kind) {
+        start(in, out, kind, false, false);
+    }
+
+    // With dump set, the optimizer's report for each line is printed before its result.
+    public static void start(InputStream in, PrintStream out, EngineKind kind, boolean optimize, boolean dump) {
         Scanner scanner = new Scanner(in);
-        Environment env = Environment.newEnvironment();
+        Engine engine = kind.create();
+        // Lines share one environment, so they also share what the optimizer knows about it.
+        Optimizer optimizer = optimize ? new Optimizer() : null;
         while (true) {
             out.print(PROMPT);
             if (!scanner.hasNextLine()) {
@@ -44,14 +59,41 @@ public class Repl {
                 printParserErrors(System.out, parser.errors());
                 continue;
             }
-            Object evaluated = Evaluator.eval(program, env);
+            if (optimizer != null) {
+                program = optimizer.optimize(program);
+                if (dump) {
+                    optimizer.report().forEach(out::println);
+                }
+            }
+            Object evaluated = engine.run(program);
             if (evaluated != null) {
                 out.println(evaluated.inspect());
             }
         }
     }
 
-    @SuppressWarnings("SameParameterValue")
+    // Runs a whole script as one program. Nothing runs in its environment after it, so the optimizer
+    // may also rewrite function bodies, see Optimizer.
+    public static void runScript(String source, PrintStream out, EngineKind kind, boolean optimize, boolean dump) {
+        Parser parser = new Parser(new Lexer(source));
+        Program program = parser.parseProgram();
+        if (parser.errors().size() != 0) {
+            printParserErrors(out, parser.errors());
+            return;
+        }
+        if (optimize) {
+            Optimizer optimizer = new Optimizer(true);
+            program = optimizer.optimize(program);
+            if (dump) {
+                optimizer.report().forEach(out::println);
+            }
+        }
+        Object evaluated = kind.create().run(program);
+        if (evaluated != null) {
+            out.println(evaluated.inspect());
+        }
+    }
+
     private static void printParserErrors(PrintStream out, List<String> errors) {
         out.println(MONKEY_FACE);
         out.println("Woops! We ran into some monkey business here!");
@@ -61,7 +103,29 @@ public class Repl {
         }
     }
 
-    public static void main(String[] args) {
-        Repl.start(System.in, System.out);
+    // Usage: java repl.Repl [--engine=evaluator|stack|frame|nodes|closures|register|vm] [--optimize] [--dump-optimizer]
+    //                      [script.monkey]
+    // Without a script, lines are read from standard input.
+    public static void main(String[] args) throws IOException {
+        EngineKind kind = EngineKind.EVALUATOR;
+        boolean optimize = false;
+        boolean dump = false;
+        String script = null;
+        for (var arg : args) {
+            if (arg.startsWith("--engine=")) {
+                kind = EngineKind.lookup(arg.substring("--engine=".length()));
+            } else if (arg.equals("--optimize")) {
+                optimize = true;
+            } else if (arg.equals("--dump-optimizer")) {
+                dump = true;
+            } else {
+                script = arg;
+            }
+        }
+        if (script != null) {
+            runScript(Files.readString(Path.of(script)), System.out, kind, optimize, dump);
+        } else {
+            Repl.start(System.in, System.out, kind, optimize, dump);
+        }
     }
 }
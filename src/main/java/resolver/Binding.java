@@ -0,0 +1,45 @@
+package resolver;
+
+import object.Frame;
+
+// Every scope that may hold the name at runtime, innermost first; the global slot is always last.
+// Monkey binds names dynamically (a let in an untaken branch binds nothing), so an empty slot
+// falls through to the next candidate exactly like Environment.get() walks its outer chain.
+public record Binding(String name, int[] depths, int[] slots, object.Builtin builtin) {
+
+    static Binding declaration(String name, int slot) {
+        return new Binding(name, new int[]{0}, new int[]{slot}, null);
+    }
+
+    // Returns null when the name is bound nowhere.
+    public object.Object lookup(Frame frame) {
+        int depth = 0;
+        for (int i = 0; i < depths.length; i++) {
+            while (depth < depths[i]) {
+                frame = frame.parent();
+                depth++;
+            }
+            object.Object value = frame.get(slots[i]);
+            if (value != null) {
+                return value;
+            }
+        }
+        return builtin;
+    }
+
+    // Rebinds the slot lookup() would read, like Environment.assign(); false when the name is bound nowhere.
+    public boolean assign(Frame frame, object.Object value) {
+        int depth = 0;
+        for (int i = 0; i < depths.length; i++) {
+            while (depth < depths[i]) {
+                frame = frame.parent();
+                depth++;
+            }
+            if (frame.get(slots[i]) != null) {
+                frame.set(slots[i], value);
+                return true;
+            }
+        }
+        return false;
+    }
+}
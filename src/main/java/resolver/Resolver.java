@@ -0,0 +1,227 @@
+package resolver;
+
+import evaluator.Builtins;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Binds every identifier to (depth, slot) pairs ahead of time.
+// Each function literal gets one scope holding its parameters followed by every name it binds
+// with let or for-in, including those nested in blocks, because blocks share the function's environment.
+// A Resolver is reused across REPL lines, so the global scope keeps growing.
+public class Resolver {
+    // AST records compare by value, two identical "x" nodes must still get their own binding.
+    private final Map<ast.Identifier, Binding> bindings = new IdentityHashMap<>();
+    private final Map<ast.FunctionLiteral, Scope> scopes = new IdentityHashMap<>();
+    private final Scope global = new Scope(null);
+    private Scope current = global;
+
+    public void resolve(ast.Program program) {
+        declareLets(program, global);
+        for (var s : program.statements()) {
+            resolve(s);
+        }
+    }
+
+    public Binding binding(ast.Identifier identifier) {
+        return bindings.get(identifier);
+    }
+
+    public int frameSize(ast.FunctionLiteral literal) {
+        return scopes.get(literal).size();
+    }
+
+    // Whether a function nested in the literal (null for the program) assigns the slot of its frame.
+    public boolean isAssignedInside(ast.FunctionLiteral literal, int slot) {
+        return (literal == null ? global : scopes.get(literal)).assignedInside.contains(slot);
+    }
+
+    public int globalSize() {
+        return global.size();
+    }
+
+    private void resolve(ast.Node node) {
+        switch (node) {
+            case ast.BlockStatement actual -> {
+                for (var s : actual.statements()) {
+                    resolve(s);
+                }
+            }
+            case ast.ExpressionStatement actual -> resolve(actual.expression());
+            case ast.ReturnStatement actual -> resolve(actual.returnValue());
+            case ast.LetStatement actual -> {
+                resolve(actual.value());
+                String name = actual.name().value();
+                bindings.put(actual.name(), Binding.declaration(name, current.declare(name)));
+            }
+            case ast.AssignStatement actual -> {
+                resolve(actual.value());
+                Binding binding = lookup(actual.name().value());
+                bindings.put(actual.name(), binding);
+                markAssignedInside(binding);
+            }
+            case ast.WhileStatement actual -> {
+                resolve(actual.condition());
+                resolve(actual.body());
+            }
+            case ast.ForInStatement actual -> {
+                resolve(actual.iterable());
+                String name = actual.name().value();
+                bindings.put(actual.name(), Binding.declaration(name, current.declare(name)));
+                resolve(actual.body());
+            }
+            case ast.Identifier actual -> bindings.put(actual, lookup(actual.value()));
+            case ast.PrefixExpression actual -> resolve(actual.right());
+            case ast.InfixExpression actual -> {
+                resolve(actual.left());
+                resolve(actual.right());
+            }
+            case ast.IfExpression actual -> {
+                resolve(actual.condition());
+                resolve(actual.consequence());
+                if (actual.alternative() != null) {
+                    resolve(actual.alternative());
+                }
+            }
+            case ast.FunctionLiteral actual -> {
+                Scope scope = new Scope(current);
+                for (var p : actual.parameters()) {
+                    bindings.put(p, Binding.declaration(p.value(), scope.declareParameter(p.value())));
+                }
+                declareLets(actual.body(), scope);
+                current = scope;
+                resolve(actual.body());
+                current = scope.outer;
+                scopes.put(actual, scope);
+            }
+            case ast.CallExpression actual -> {
+                resolve(actual.function());
+                for (var arg : actual.arguments()) {
+                    resolve(arg);
+                }
+            }
+            case ast.ArrayLiteral actual -> {
+                for (var element : actual.elements()) {
+                    resolve(element);
+                }
+            }
+            case ast.IndexExpression actual -> {
+                resolve(actual.left());
+                resolve(actual.index());
+            }
+            case ast.HashLiteral actual -> {
+                for (var pair : actual.pairs().entrySet()) {
+                    resolve(pair.getKey());
+                    resolve(pair.getValue());
+                }
+            }
+            default -> {
+                // Literals bind nothing.
+            }
+        }
+    }
+
+    private Binding lookup(String name) {
+        List<Integer> depths = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int depth = 0;
+        for (Scope scope = current; scope != global; scope = scope.outer, depth++) {
+            Integer slot = scope.slot(name);
+            if (slot != null) {
+                depths.add(depth);
+                slots.add(slot);
+            }
+        }
+        // Names unknown so far still get a global slot, a later line may bind them.
+        depths.add(depth);
+        slots.add(global.declare(name));
+        return new Binding(name,
+                depths.stream().mapToInt(Integer::intValue).toArray(),
+                slots.stream().mapToInt(Integer::intValue).toArray(),
+                Builtins.lookup(name));
+    }
+
+    private void markAssignedInside(Binding binding) {
+        Scope scope = current;
+        int depth = 0;
+        for (int i = 0; i < binding.depths().length; i++) {
+            while (depth < binding.depths()[i]) {
+                scope = scope.outer;
+                depth++;
+            }
+            if (depth > 0) {
+                scope.assignedInside.add(binding.slots()[i]);
+            }
+        }
+    }
+
+    // Hoists let names into the scope, without entering nested function literals.
+    private static void declareLets(ast.Node node, Scope scope) {
+        switch (node) {
+            case ast.Program actual -> {
+                for (var s : actual.statements()) {
+                    declareLets(s, scope);
+                }
+            }
+            case ast.BlockStatement actual -> {
+                for (var s : actual.statements()) {
+                    declareLets(s, scope);
+                }
+            }
+            case ast.ExpressionStatement actual -> declareLets(actual.expression(), scope);
+            case ast.ReturnStatement actual -> declareLets(actual.returnValue(), scope);
+            case ast.LetStatement actual -> {
+                declareLets(actual.value(), scope);
+                scope.declare(actual.name().value());
+            }
+            case ast.AssignStatement actual -> declareLets(actual.value(), scope);
+            case ast.WhileStatement actual -> {
+                declareLets(actual.condition(), scope);
+                declareLets(actual.body(), scope);
+            }
+            case ast.ForInStatement actual -> {
+                declareLets(actual.iterable(), scope);
+                scope.declare(actual.name().value());
+                declareLets(actual.body(), scope);
+            }
+            case ast.PrefixExpression actual -> declareLets(actual.right(), scope);
+            case ast.InfixExpression actual -> {
+                declareLets(actual.left(), scope);
+                declareLets(actual.right(), scope);
+            }
+            case ast.IfExpression actual -> {
+                declareLets(actual.condition(), scope);
+                declareLets(actual.consequence(), scope);
+                if (actual.alternative() != null) {
+                    declareLets(actual.alternative(), scope);
+                }
+            }
+            case ast.CallExpression actual -> {
+                declareLets(actual.function(), scope);
+                for (var arg : actual.arguments()) {
+                    declareLets(arg, scope);
+                }
+            }
+            case ast.ArrayLiteral actual -> {
+                for (var element : actual.elements()) {
+                    declareLets(element, scope);
+                }
+            }
+            case ast.IndexExpression actual -> {
+                declareLets(actual.left(), scope);
+                declareLets(actual.index(), scope);
+            }
+            case ast.HashLiteral actual -> {
+                for (var pair : actual.pairs().entrySet()) {
+                    declareLets(pair.getKey(), scope);
+                    declareLets(pair.getValue(), scope);
+                }
+            }
+            default -> {
+                // Identifiers, literals and nested function literals declare nothing here.
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package resolver;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+class Scope {
+    final Scope outer;
+    private final Map<String, Integer> slots = new HashMap<>();
+    // Slots a nested function may assign, so they can change during any call.
+    final Set<Integer> assignedInside = new HashSet<>();
+    private int size;
+
+    Scope(Scope outer) {
+        this.outer = outer;
+    }
+
+    int declare(String name) {
+        Integer slot = slots.get(name);
+        if (slot != null) {
+            return slot;
+        }
+        slots.put(name, size);
+        return size++;
+    }
+
+    // Parameters always get a fresh slot, a repeated name refers to the last one like Environment.set().
+    int declareParameter(String name) {
+        slots.put(name, size);
+        return size++;
+    }
+
+    Integer slot(String name) {
+        return slots.get(name);
+    }
+
+    int size() {
+        return size;
+    }
+}
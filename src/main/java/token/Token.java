@@ -13,7 +13,10 @@ public record Token(TokenType type, String literal) {
             Map.entry("false", FALSE),
             Map.entry("if", IF),
             Map.entry("else", ELSE),
-            Map.entry("return", RETURN)
+            Map.entry("return", RETURN),
+            Map.entry("while", WHILE),
+            Map.entry("for", FOR),
+            Map.entry("in", IN)
     );
     private final static Map<Character, TokenType> symbol = Map.ofEntries(
             Map.entry('+', PLUS),
@@ -36,5 +36,8 @@ public enum TokenType {
     FALSE,
     IF,
     ELSE,
-    RETURN
+    RETURN,
+    WHILE,
+    FOR,
+    IN
 }
@@ -0,0 +1,27 @@
+package vm;
+
+import object.Cell;
+import object.Closure;
+
+class Frame {
+    // Where a return inside an if used as a value goes, see CATCH_RETURN: the end of the if, with
+    // the stack cut back to what it held when the if started.
+    record Catch(int target, int sp, Catch outer) {
+    }
+
+    final Closure cl;
+    final int basePointer;
+    final Cell[] cells;
+    int ip;
+    Catch catches;
+
+    Frame(Closure cl, int basePointer, Cell[] cells) {
+        this.cl = cl;
+        this.basePointer = basePointer;
+        this.cells = cells;
+    }
+
+    byte[] instructions() {
+        return cl.fn().instructions();
+    }
+}
@@ -0,0 +1,467 @@
+package vm;
+
+import code.Opcode;
+import compiler.Bytecode;
+import evaluator.Builtins;
+import evaluator.Evaluator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static code.Instructions.readUint16;
+import static code.Instructions.readUint8;
+import static evaluator.Evaluator.FALSE;
+import static evaluator.Evaluator.NULL;
+import static evaluator.Evaluator.TRUE;
+import static evaluator.Evaluator.newError;
+
+public class VM {
+    public static final int STACK_SIZE = 2048;
+    public static final int GLOBALS_SIZE = 65536;
+    public static final int MAX_FRAMES = 1024;
+    private static final object.Builtin[] BUILTINS = Builtins.names.stream()
+            .map(Builtins::lookup)
+            .toArray(object.Builtin[]::new);
+    private static final object.Cell[] NO_CELLS = new object.Cell[0];
+
+    private final object.Object[] constants;
+    private final List<String> globalNames;
+    private final object.Object[] globals;
+    private final object.Object[] stack = new object.Object[STACK_SIZE];
+    private final Frame[] frames = new Frame[MAX_FRAMES];
+    private int sp; // Always points to the next value. Top of stack is stack[sp-1]
+    private int framesIndex;
+    private object.Object lastPopped;
+
+    public VM(Bytecode bytecode) {
+        this(bytecode, new object.Object[GLOBALS_SIZE]);
+    }
+
+    // Used by the REPL to keep globals across lines.
+    public VM(Bytecode bytecode, object.Object[] globals) {
+        this.constants = bytecode.constants().toArray(new object.Object[0]);
+        this.globalNames = bytecode.globalNames();
+        this.globals = globals;
+        object.CompiledFunction mainFn = new object.CompiledFunction(bytecode.instructions(), 0, 0, new int[0]);
+        frames[0] = new Frame(new object.Closure(mainFn, NO_CELLS), 0, NO_CELLS);
+        framesIndex = 1;
+    }
+
+    // The value of the last expression statement, null if the program ended with a let statement.
+    public object.Object lastPoppedStackElem() {
+        return lastPopped;
+    }
+
+    // Returns the runtime error that stopped execution, or null.
+    public object.Error run() {
+        Frame frame = frames[framesIndex - 1];
+        byte[] ins = frame.instructions();
+        int ip = frame.ip;
+        while (ip < ins.length) {
+            Opcode op = Opcode.lookup(ins[ip]);
+            switch (op) {
+                case CONSTANT -> {
+                    int constIndex = readUint16(ins, ip + 1);
+                    ip += 3;
+                    if (!push(constants[constIndex])) {
+                        return stackOverflow();
+                    }
+                }
+                case ADD, SUB, MUL, DIV, EQUAL, NOT_EQUAL, GREATER_THAN, LESS_THAN -> {
+                    ip += 1;
+                    object.Object right = stack[--sp];
+                    object.Object left = stack[--sp];
+                    object.Object result = executeBinaryOperation(op, left, right);
+                    if (result instanceof object.Error error) {
+                        return error;
+                    }
+                    stack[sp++] = result;
+                }
+                case POP -> {
+                    ip += 1;
+                    lastPopped = stack[--sp];
+                    // A statement whose value is a wrapped return, see CATCH_RETURN, returns like Evaluator does.
+                    if (lastPopped instanceof object.ReturnValue returned) {
+                        if (frame.catches != null) {
+                            ip = caught(frame, returned);
+                        } else if (leave(frame, returned.value())) {
+                            frame = frames[framesIndex - 1];
+                            ins = frame.instructions();
+                            ip = frame.ip;
+                        } else {
+                            return null;
+                        }
+                    }
+                }
+                case TRUE -> {
+                    ip += 1;
+                    if (!push(TRUE)) {
+                        return stackOverflow();
+                    }
+                }
+                case FALSE -> {
+                    ip += 1;
+                    if (!push(FALSE)) {
+                        return stackOverflow();
+                    }
+                }
+                case NULL -> {
+                    ip += 1;
+                    if (!push(NULL)) {
+                        return stackOverflow();
+                    }
+                }
+                case BANG, MINUS -> {
+                    ip += 1;
+                    object.Object operand = stack[--sp];
+                    object.Object result;
+                    if (op == Opcode.MINUS && operand instanceof object.Integer integer) {
+                        result = object.Integer.valueOf(-integer.value());
+                    } else {
+                        result = Evaluator.evalPrefixExpression(op == Opcode.BANG ? "!" : "-", operand);
+                    }
+                    if (result instanceof object.Error error) {
+                        return error;
+                    }
+                    stack[sp++] = result;
+                }
+                case JUMP -> ip = readUint16(ins, ip + 1);
+                case JUMP_NOT_TRUTHY -> {
+                    int pos = readUint16(ins, ip + 1);
+                    ip += 3;
+                    object.Object condition = stack[--sp];
+                    if (!Evaluator.isTruthy(condition)) {
+                        ip = pos;
+                    }
+                }
+                case SET_GLOBAL -> {
+                    int globalIndex = readUint16(ins, ip + 1);
+                    ip += 3;
+                    globals[globalIndex] = stack[--sp];
+                    // A let statement has no value, same as in Evaluator.eval.
+                    lastPopped = null;
+                }
+                case GET_GLOBAL -> {
+                    int globalIndex = readUint16(ins, ip + 1);
+                    ip += 3;
+                    object.Object value = globals[globalIndex];
+                    if (value == null) {
+                        return newError("identifier not found: " + globalNames.get(globalIndex));
+                    }
+                    if (!push(value)) {
+                        return stackOverflow();
+                    }
+                }
+                case ASSIGN_GLOBAL -> {
+                    int globalIndex = readUint16(ins, ip + 1);
+                    ip += 3;
+                    if (globals[globalIndex] == null) {
+                        return newError("identifier not found: " + globalNames.get(globalIndex));
+                    }
+                    globals[globalIndex] = stack[--sp];
+                    lastPopped = null;
+                }
+                case SET_LOCAL -> {
+                    int localIndex = readUint8(ins, ip + 1);
+                    ip += 2;
+                    stack[frame.basePointer + localIndex] = stack[--sp];
+                }
+                case GET_LOCAL -> {
+                    int localIndex = readUint8(ins, ip + 1);
+                    ip += 2;
+                    object.Object value = stack[frame.basePointer + localIndex];
+                    // A local read before its let ran, e.g. one bound in an untaken branch.
+                    if (!push(value != null ? value : NULL)) {
+                        return stackOverflow();
+                    }
+                }
+                case GET_BUILTIN -> {
+                    int builtinIndex = readUint8(ins, ip + 1);
+                    ip += 2;
+                    if (!push(BUILTINS[builtinIndex])) {
+                        return stackOverflow();
+                    }
+                }
+                case GET_CELL, GET_FREE -> {
+                    int cellIndex = readUint8(ins, ip + 1);
+                    int nameIndex = readUint16(ins, ip + 2);
+                    ip += 4;
+                    object.Cell cell = (op == Opcode.GET_CELL ? frame.cells : frame.cl.free())[cellIndex].bound();
+                    object.Object value = cell != null ? cell.value() : global(nameIndex);
+                    if (value == null) {
+                        return newError("identifier not found: " + name(nameIndex));
+                    }
+                    if (!push(value)) {
+                        return stackOverflow();
+                    }
+                }
+                case SET_CELL -> {
+                    int cellIndex = readUint8(ins, ip + 1);
+                    ip += 2;
+                    frame.cells[cellIndex].set(stack[--sp]);
+                }
+                case ASSIGN_CELL, ASSIGN_FREE -> {
+                    int cellIndex = readUint8(ins, ip + 1);
+                    int nameIndex = readUint16(ins, ip + 2);
+                    ip += 4;
+                    object.Cell cell = (op == Opcode.ASSIGN_CELL ? frame.cells : frame.cl.free())[cellIndex];
+                    if (!assign(cell, nameIndex, stack[--sp])) {
+                        return newError("identifier not found: " + name(nameIndex));
+                    }
+                }
+                case CATCH_RETURN -> {
+                    frame.catches = new Frame.Catch(readUint16(ins, ip + 1), sp, frame.catches);
+                    ip += 3;
+                }
+                case END_CATCH -> {
+                    ip += 1;
+                    frame.catches = frame.catches.outer();
+                }
+                case ARRAY -> {
+                    int numElements = readUint16(ins, ip + 1);
+                    ip += 3;
+                    List<object.Object> elements = new ArrayList<>(numElements);
+                    elements.addAll(Arrays.asList(stack).subList(sp - numElements, sp));
+                    sp -= numElements;
+                    stack[sp++] = new object.Array(elements);
+                }
+                case HASH -> {
+                    int numElements = readUint16(ins, ip + 1);
+                    ip += 3;
+                    object.Object hash = buildHash(sp - numElements, sp);
+                    if (hash instanceof object.Error error) {
+                        return error;
+                    }
+                    sp -= numElements;
+                    if (!push(hash)) {
+                        return stackOverflow();
+                    }
+                }
+                case ITER -> {
+                    ip += 1;
+                    object.Object cursor = Evaluator.cursor(stack[sp - 1]);
+                    if (cursor instanceof object.Error error) {
+                        return error;
+                    }
+                    stack[sp - 1] = cursor;
+                }
+                // The cursor stays on the stack for the whole loop and is popped when it runs out.
+                case FOR_ITER -> {
+                    int pos = readUint16(ins, ip + 1);
+                    ip += 3;
+                    object.Cursor cursor = (object.Cursor) stack[sp - 1];
+                    if (!cursor.hasNext()) {
+                        sp--;
+                        ip = pos;
+                    } else if (!push(cursor.next())) {
+                        return stackOverflow();
+                    }
+                }
+                case INDEX -> {
+                    ip += 1;
+                    object.Object index = stack[--sp];
+                    object.Object left = stack[--sp];
+                    object.Object result = Evaluator.evalIndexExpression(left, index);
+                    if (result instanceof object.Error error) {
+                        return error;
+                    }
+                    stack[sp++] = result;
+                }
+                case CLOSURE -> {
+                    int constIndex = readUint16(ins, ip + 1);
+                    int numFree = readUint8(ins, ip + 3);
+                    ip += 4;
+                    object.CompiledFunction fn = (object.CompiledFunction) constants[constIndex];
+                    // Each free variable is named by a GET_CELL or GET_FREE after the instruction: the
+                    // closure shares that cell, it is not run to push a value.
+                    object.Cell[] free = new object.Cell[numFree];
+                    for (int i = 0; i < numFree; i++) {
+                        int cellIndex = readUint8(ins, ip + 1);
+                        free[i] = Opcode.lookup(ins[ip]) == Opcode.GET_CELL ? frame.cells[cellIndex] : frame.cl.free()[cellIndex];
+                        ip += 4;
+                    }
+                    if (!push(new object.Closure(fn, free))) {
+                        return stackOverflow();
+                    }
+                }
+                case CALL -> {
+                    int numArgs = readUint8(ins, ip + 1);
+                    ip += 2;
+                    object.Object callee = stack[sp - 1 - numArgs];
+                    switch (callee) {
+                        case object.Closure cl -> {
+                            int numParameters = cl.fn().numParameters();
+                            if (numArgs < numParameters) {
+                                // Evaluator.extendFunctionEnv reads past the end of the arguments, fail the same way.
+                                throw new ArrayIndexOutOfBoundsException(
+                                        "Index %d out of bounds for length %d".formatted(numArgs, numArgs));
+                            }
+                            if (framesIndex == MAX_FRAMES || sp - numArgs + cl.fn().numLocals() >= STACK_SIZE) {
+                                return stackOverflow();
+                            }
+                            frame.ip = ip;
+                            frame = new Frame(cl, sp - numArgs, cells(cl));
+                            frames[framesIndex++] = frame;
+                            // Arguments past the parameters are dropped, and the other locals start out unbound.
+                            Arrays.fill(stack, frame.basePointer + numParameters, frame.basePointer + cl.fn().numLocals(),
+                                    null);
+                            sp = frame.basePointer + cl.fn().numLocals();
+                            ins = frame.instructions();
+                            ip = 0;
+                        }
+                        case object.Builtin builtin -> {
+                            object.Object[] args = Arrays.copyOfRange(stack, sp - numArgs, sp);
+                            object.Object result = builtin.fn().exec(args);
+                            sp = sp - numArgs - 1;
+                            if (result instanceof object.Error error) {
+                                return error;
+                            }
+                            stack[sp++] = result != null ? result : NULL;
+                        }
+                        default -> {
+                            return newError("not a function: %s", callee.type());
+                        }
+                    }
+                }
+                case RETURN_VALUE, RETURN_LAST, RETURN -> {
+                    object.Object returnValue = op == Opcode.RETURN ? NULL : stack[--sp];
+                    // The value a body ends with is unwrapped, one it returns is not, as in Evaluator.
+                    if (op == Opcode.RETURN_LAST && returnValue instanceof object.ReturnValue returned) {
+                        returnValue = returned.value();
+                    }
+                    if (op == Opcode.RETURN_VALUE && frame.catches != null) {
+                        ip = caught(frame, new object.ReturnValue(returnValue));
+                    } else if (leave(frame, returnValue)) {
+                        frame = frames[framesIndex - 1];
+                        ins = frame.instructions();
+                        ip = frame.ip;
+                    } else {
+                        return null;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    // Ends the current call with value, false when that was the program itself.
+    private boolean leave(Frame frame, object.Object value) {
+        if (framesIndex == 1) {
+            // "return" at the top level ends the program with that value.
+            lastPopped = value;
+            return false;
+        }
+        framesIndex--;
+        sp = frame.basePointer - 1;
+        stack[sp++] = value;
+        return true;
+    }
+
+    // A return inside an if used as a value only ends the if, which takes the value wrapped.
+    // Returns where to continue.
+    private int caught(Frame frame, object.ReturnValue value) {
+        Frame.Catch caught = frame.catches;
+        frame.catches = caught.outer();
+        sp = caught.sp();
+        stack[sp++] = value;
+        return caught.target();
+    }
+
+    private static object.Cell[] cells(object.Closure cl) {
+        int[] links = cl.fn().cells();
+        if (links.length == 0) {
+            return NO_CELLS;
+        }
+        object.Cell[] cells = new object.Cell[links.length];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = new object.Cell(null, links[i] < 0 ? null : cl.free()[links[i]]);
+        }
+        return cells;
+    }
+
+    // What a name reads when none of its cells is bound: the global, then the builtin, as in Environment.get.
+    private object.Object global(int nameIndex) {
+        String name = name(nameIndex);
+        int index = globalNames.lastIndexOf(name);
+        object.Object value = index >= 0 ? globals[index] : null;
+        return value != null ? value : Builtins.lookup(name);
+    }
+
+    // Rebinds the first bound cell along the chain, else the global, as Environment.assign does.
+    private boolean assign(object.Cell cell, int nameIndex, object.Object value) {
+        object.Cell bound = cell.bound();
+        if (bound != null) {
+            bound.set(value);
+            return true;
+        }
+        int index = globalNames.lastIndexOf(name(nameIndex));
+        if (index < 0 || globals[index] == null) {
+            return false;
+        }
+        globals[index] = value;
+        return true;
+    }
+
+    private String name(int nameIndex) {
+        return ((object.String) constants[nameIndex]).value();
+    }
+
+    private boolean push(object.Object o) {
+        if (sp >= STACK_SIZE) {
+            return false;
+        }
+        stack[sp++] = o;
+        return true;
+    }
+
+    private static object.Error stackOverflow() {
+        return newError("stack overflow");
+    }
+
+    private static object.Object executeBinaryOperation(Opcode op, object.Object left, object.Object right) {
+        if (left instanceof object.Integer l && right instanceof object.Integer r) {
+            int leftVal = l.value();
+            int rightVal = r.value();
+            return switch (op) {
+                case ADD -> object.Integer.valueOf(leftVal + rightVal);
+                case SUB -> object.Integer.valueOf(leftVal - rightVal);
+                case MUL -> object.Integer.valueOf(leftVal * rightVal);
+                case DIV -> object.Integer.valueOf(leftVal / rightVal);
+                case EQUAL -> leftVal == rightVal ? TRUE : FALSE;
+                case NOT_EQUAL -> leftVal != rightVal ? TRUE : FALSE;
+                case GREATER_THAN -> leftVal > rightVal ? TRUE : FALSE;
+                case LESS_THAN -> leftVal < rightVal ? TRUE : FALSE;
+                default -> throw new IllegalStateException("Unexpected value: " + op);
+            };
+        }
+        // Everything but the integer fast path shares the evaluator's semantics and error messages.
+        String operator = switch (op) {
+            case ADD -> "+";
+            case SUB -> "-";
+            case MUL -> "*";
+            case DIV -> "/";
+            case EQUAL -> "==";
+            case NOT_EQUAL -> "!=";
+            case GREATER_THAN -> ">";
+            case LESS_THAN -> "<";
+            default -> throw new IllegalStateException("Unexpected value: " + op);
+        };
+        return Evaluator.evalInfixExpression(operator, left, right);
+    }
+
+    private object.Object buildHash(int startIndex, int endIndex) {
+        Map<object.HashKey, object.HashPair> pairs = new HashMap<>();
+        for (int i = startIndex; i < endIndex; i += 2) {
+            object.Object key = stack[i];
+            object.Object value = stack[i + 1];
+            if (!(key instanceof object.HashTable hashKey)) {
+                return newError("unusable as hash key: %s", key.type().literal());
+            }
+            pairs.put(hashKey.hashKey(), new object.HashPair(key, value));
+        }
+        return new object.Hash(pairs);
+    }
+}
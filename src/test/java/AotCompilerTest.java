@@ -0,0 +1,54 @@
+import aot.AotCompiler;
+import object.Environment;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AotCompilerTest {
+    @Test
+    void testCompiledScriptRuns() throws Exception {
+        Method run = load("rules/Discount", """
+                let rate = fn(total) { if (total > 100) { 10 } else { 0 } };
+                let discount = total * rate(total) / 100;
+                discount
+                """);
+        var env = Environment.newEnvironment();
+        env.set("total", new object.Integer(250));
+        assertEquals("25", ((object.Object) run.invoke(null, env)).inspect());
+        // Bindings made by the script are visible to the caller afterwards.
+        assertEquals("25", env.get("discount").inspect());
+
+        env.set("total", new object.Integer(50));
+        assertEquals("0", ((object.Object) run.invoke(null, env)).inspect());
+    }
+
+    @Test
+    void testLargeConstantsAndErrors() throws Exception {
+        String big = "x".repeat(70000);
+        Method run = load("Big", "len(\"" + big + "\") + missing");
+        assertEquals("ERROR: identifier not found: missing",
+                ((object.Object) run.invoke(null, Environment.newEnvironment())).inspect());
+        var env = Environment.newEnvironment();
+        env.set("missing", new object.Integer(1));
+        assertEquals("70001", ((object.Object) run.invoke(null, env)).inspect());
+    }
+
+    @Test
+    void testParserErrorsAreReported() {
+        var e = assertThrows(IllegalArgumentException.class, () -> AotCompiler.compile("Broken", "let = 5;"));
+        assertTrue(e.getMessage().startsWith("parser errors: "), e.getMessage());
+    }
+
+    private static Method load(String className, String source) throws Exception {
+        byte[] bytes = AotCompiler.compile(className, source);
+        var loader = new ClassLoader(AotCompilerTest.class.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) {
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+        };
+        return loader.loadClass(className.replace('/', '.')).getMethod("run", Environment.class);
+    }
+}
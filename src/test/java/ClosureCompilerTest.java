@@ -0,0 +1,70 @@
+import closures.ClosureCompiler;
+import closures.Executable;
+import engine.EngineKind;
+import evaluator.Evaluator;
+import lexer.Lexer;
+import object.Environment;
+import org.junit.jupiter.api.Test;
+import parser.Parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClosureCompilerTest {
+    @Test
+    void testSameResultsAsEvaluator() {
+        String[] inputs = {
+                "(5 + 10 * 2 + 15 / 3) * 2 + -10",
+                "1 < 2 == true",
+                "!!5 != false",
+                "\"Hello\" + \" \" + \"World!\"",
+                "\"a\" - \"b\"",
+                "5 + true; 5;",
+                "-true",
+                "let f = fn(x) { if (x > 1) { return x * f(x - 1); } 1 }; f(10);",
+                "let newAdder = fn(x) { fn(y) { x + y } }; newAdder(2)(3);",
+                "[1, 2, 3][1] + {\"a\": 4}[\"a\"]",
+                "{fn(x) { x }: 1}",
+                "len(\"four\") + first([5])",
+                "let len = fn(x) { 42 }; len(\"four\")",
+                "foobar",
+                "5(1)",
+                "if (1 > 2) { 10 }",
+                "fn(x) { x + 1 }",
+                "let i = 0; let s = 0; while (i < 10) { s = s + i; i = i + 1; } s",
+                "let f = fn(n) { let acc = 0; for (let i = 0; i < n; i = i + 1) { acc = acc + i; } acc }; f(100)",
+                "let f = fn(n) { while (true) { if (n > 5) { return n; } n = n + 1; } }; f(0)",
+                "let f = fn() { let c = 0; let inc = fn() { c = c + 1; c }; inc(); inc(); c + inc() }; f()",
+                "let a = 0; while (a < 3) { a = a + \"x\"; }",
+                "x = 5",
+                "let s = 0; for (x in [1, 2, 3]) { s = s + x; } s",
+                "let h = {\"a\": 1, \"b\": 2}; let s = 0; for (k in h) { s = s + h[k]; } s",
+                "let f = fn(xs) { for (x in xs) { if (x > 2) { return x; } } 0 }; f(range(10))",
+                "let f = fn(xs) { let x = 7; for (x in xs) { } x }; f(\"ab\")",
+                "for (x in 5) { x }",
+        };
+        for (var input : inputs) {
+            var program = new Parser(new Lexer(input)).parseProgram();
+            var expected = Evaluator.eval(program, Environment.newEnvironment());
+            var actual = EngineKind.CLOSURES.create().run(program);
+            assertEquals(expected.inspect(), actual.inspect(), input);
+        }
+    }
+
+    @Test
+    void testCompiledProgramIsReusable() {
+        Executable program = ClosureCompiler.compile(new Parser(new Lexer("let y = x * 2; y + 1")).parseProgram());
+        for (int i = 0; i < 3; i++) {
+            var env = Environment.newEnvironment();
+            env.set("x", new object.Integer(i));
+            assertEquals(String.valueOf(i * 2 + 1), program.execute(env).inspect());
+            assertEquals(String.valueOf(i * 2), env.get("y").inspect());
+        }
+    }
+
+    @Test
+    void testEngineKeepsGlobalsAcrossRuns() {
+        var engine = EngineKind.CLOSURES.create();
+        engine.run(new Parser(new Lexer("let double = fn(x) { x * 2 };")).parseProgram());
+        assertEquals("8", engine.run(new Parser(new Lexer("double(4)")).parseProgram()).inspect());
+    }
+}
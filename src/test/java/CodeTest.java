@@ -0,0 +1,59 @@
+import code.Instructions;
+import code.Opcode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodeTest {
+    @Test
+    void testMake() {
+        record Temp(Opcode op, int[] operands, byte[] expected) {
+        }
+        Temp[] tests = {
+                new Temp(Opcode.CONSTANT, new int[]{65534}, new byte[]{Opcode.CONSTANT.code(), (byte) 255, (byte) 254}),
+                new Temp(Opcode.ADD, new int[]{}, new byte[]{Opcode.ADD.code()}),
+                new Temp(Opcode.GET_LOCAL, new int[]{255}, new byte[]{Opcode.GET_LOCAL.code(), (byte) 255}),
+                new Temp(Opcode.CLOSURE, new int[]{65534, 255},
+                        new byte[]{Opcode.CLOSURE.code(), (byte) 255, (byte) 254, (byte) 255}),
+        };
+        for (var test : tests) {
+            assertArrayEquals(test.expected, Instructions.make(test.op, test.operands));
+        }
+    }
+
+    @Test
+    void testInstructionsString() {
+        var out = new ByteArrayOutputStream();
+        out.writeBytes(Instructions.make(Opcode.ADD));
+        out.writeBytes(Instructions.make(Opcode.GET_LOCAL, 1));
+        out.writeBytes(Instructions.make(Opcode.CONSTANT, 2));
+        out.writeBytes(Instructions.make(Opcode.CONSTANT, 65535));
+        out.writeBytes(Instructions.make(Opcode.CLOSURE, 65535, 255));
+        String expected = """
+                0000 ADD
+                0001 GET_LOCAL 1
+                0003 CONSTANT 2
+                0006 CONSTANT 65535
+                0009 CLOSURE 65535 255
+                """;
+        assertEquals(expected, Instructions.toString(out.toByteArray()));
+    }
+
+    @Test
+    void testReadOperands() {
+        record Temp(Opcode op, int[] operands, int bytesRead) {
+        }
+        Temp[] tests = {
+                new Temp(Opcode.CONSTANT, new int[]{65535}, 2),
+                new Temp(Opcode.GET_LOCAL, new int[]{255}, 1),
+                new Temp(Opcode.CLOSURE, new int[]{65535, 255}, 3),
+        };
+        for (var test : tests) {
+            byte[] instruction = Instructions.make(test.op, test.operands);
+            assertEquals(test.bytesRead + 1, instruction.length);
+            assertArrayEquals(test.operands, Instructions.readOperands(test.op, instruction, 1));
+        }
+    }
+}
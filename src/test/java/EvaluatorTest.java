@@ -38,6 +38,9 @@ class EvaluatorTest {
                 new Temp("3 * 3 * 3 + 10", 37),
                 new Temp("3 * (3 * 3) + 10", 37),
                 new Temp("(5 + 10 * 2 + 15 / 3) * 2 + -10", 50),
+                new Temp("let a = 3; let b = 4; let f = fn(x) { x * 2 }; a * b + f(a) - (b - a) * 2", 16),
+                new Temp("2147483647 + 1 - 1 + 1", -2147483648),
+                new Temp("let a = 65536; a * a * 2 + 1", 1),
         };
         for (var test : tests) {
             var evaluated = testEval(test.input);
@@ -45,6 +48,19 @@ class EvaluatorTest {
         }
     }
 
+    @Test
+    void testLiteralConstants() {
+        // Literals evaluate to the value they carry, every time.
+        var integers = (Array) testEval("let f = fn() { 5000 }; [f(), f()]");
+        assertSame(integers.elements().get(0), integers.elements().get(1));
+        var strings = (Array) testEval("let f = fn() { \"s\" }; [f(), f()]");
+        assertSame(strings.elements().get(0), strings.elements().get(1));
+        assertEquals("ab3", testEval("let a = \"a\"; a + \"b\" + \"3\"").inspect());
+        assertEquals("ERROR: type mismatch: STRING + INTEGER", testEval("\"a\" + (1 + 2)").inspect());
+        assertEquals("ERROR: type mismatch: BOOLEAN * INTEGER", testEval("1 + true * 2 + 3").inspect());
+        testBooleanObject(testEval("(1 + 2) * 3 > 2 * (2 + 2)"), true);
+    }
+
     @Test
     void testEvalBooleanExpression() {
         record Temp(String input, boolean expected) {
@@ -153,6 +169,10 @@ class EvaluatorTest {
                         };
                         f(10);
                         """, 20),
+                new Temp("let f = fn(x) { while (true) { for (y in [1, 2]) { if (y == x) { return y * 10; } } } }; f(2)", 20),
+                new Temp("let g = fn() { return 1; }; let f = fn() { g() + 1 }; f() + f()", 4),
+                // A return inside an if used as a value only ends the if.
+                new Temp("let f = fn() { let x = if (true) { return 5; }; 10 }; f()", 10),
         };
         for (var test : tests) {
             var evaluated = testEval(test.input);
@@ -194,6 +214,12 @@ class EvaluatorTest {
                           return 1;
                         }
                         """, "unknown operator: BOOLEAN + BOOLEAN"),
+                new Temp("let f = fn(x) { let g = fn() { x + true }; [1, g(), 3] }; f(1); 5",
+                        "type mismatch: INTEGER + BOOLEAN"),
+                new Temp("let f = fn(s) { {s: len(1)} }; f(\"a\")",
+                        "argument to `len` not supported, got INTEGER"),
+                new Temp("let f = fn() { for (x in [1]) { x = y; } }; f()",
+                        "identifier not found: y"),
         };
         for (var test : tests) {
             var evaluated = testEval(test.input);
@@ -277,6 +303,89 @@ class EvaluatorTest {
         testIntegerObject(testEval(input), 4);
     }
 
+    @Test
+    void testClosureCaptures() {
+        // A closure keeps only the names it uses, a function using none keeps no environment.
+        var adder = (Function) testEval("let f = fn() { let big = [1, 2, 3]; let n = 1; fn(x) { x + n } }; f()");
+        testIntegerObject(adder.env().get("n"), 1);
+        assertNull(adder.env().get("big"));
+        assertNull(((Function) testEval("let f = fn() { fn(x) { x } }; f()")).env());
+
+        record Temp(String input, int expected) {
+        }
+        Temp[] tests = {
+                new Temp("let f = fn() { let g = fn() { h() }; let h = fn() { 5 }; g() }; f()", 5),
+                new Temp("let mk = fn() { let n = 0; fn() { n = n + 1; n } }; let c = mk(); c(); c(); c()", 3),
+                new Temp("let f = fn() { let n = 0; let get = fn() { n }; n = 9; get() }; f()", 9),
+                new Temp("let f = fn() { let a = 1; let g = fn() { let h = fn() { a = a + 10; }; h(); a }; g() + a }; f()", 22),
+                new Temp("let x = 1; let f = fn() { let g = fn() { x }; let r = g(); let x = 5; r + g() }; f()", 6),
+                new Temp("let f = fn() { let len = fn(x) { 42 }; fn() { len([1]) } }; f()()", 42),
+        };
+        for (var tt : tests) {
+            testIntegerObject(testEval(tt.input), tt.expected);
+        }
+    }
+
+    @Test
+    void testLiftedFunctions() {
+        // Literals that use nothing from an enclosing function evaluate to one shared function.
+        var pure = (Array) testEval("let f = fn() { fn(x) { x } }; [f(), f()]");
+        assertSame(pure.elements().get(0), pure.elements().get(1));
+        var global = (Array) testEval("let f = fn() { fn(x) { g(x) } }; let g = fn(x) { x + 1 }; [f(), f()]");
+        assertSame(global.elements().get(0), global.elements().get(1));
+        assertInstanceOf(Function.class, ((Function) global.elements().get(0)).env().get("g"));
+        var closures = (Array) testEval("let f = fn(n) { fn() { n } }; [f(1), f(1)]");
+        assertNotSame(closures.elements().get(0), closures.elements().get(1));
+
+        testIntegerObject(testEval("let f = fn() { fn(x) { g(x) } }; let h = f(); let g = fn(x) { x + 1 }; h(1)"), 2);
+        testIntegerObject(testEval("let f = fn() { let g = fn(x) { x * 2 }; fn(x) { g(x) } }; f()(4)"), 8);
+        testIntegerObject(testEval("let t = 0; let f = fn() { fn() { t = t + 1; } }; f()(); f()(); t"), 2);
+    }
+
+    @Test
+    void testOneProgramOnSeveralThreads() throws InterruptedException {
+        // Each thread runs against its own globals, cached global reads and lifted closures must
+        // never hand it another thread's.
+        var program = new Parser(new Lexer("let f = fn() { fn() { x } }; f()()")).parseProgram();
+        var wrong = new java.util.concurrent.atomic.AtomicInteger();
+        var threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int x = t;
+            threads[t] = new Thread(() -> {
+                var env = Environment.newEnvironment();
+                env.set("x", Integer.valueOf(x));
+                for (int i = 0; i < 200000; i++) {
+                    if (!Evaluator.eval(program, env).inspect().equals(String.valueOf(x))) {
+                        wrong.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, wrong.get());
+    }
+
+    @Test
+    void testEnvironmentPool() {
+        // Every call takes an environment from the pool and hands it back, only the first one misses.
+        var pool = EnvironmentPool.current();
+        testEval("let warm = fn() { 0 }; warm()");
+        pool.resetCounters();
+        var evaluated = testEval("""
+                let count = fn(s, n) { if (n == 0) { s } else { let t = s + "."; count(t, n - 1) } };
+                len(count("", 100));
+                """);
+        testIntegerObject(evaluated, 100);
+        assertEquals(101, pool.hits() + pool.misses());
+        assertEquals(0, pool.misses());
+        assertEquals(1.0, pool.hitRate());
+        // A closure keeps what it captured after the call's environment is reused.
+        testIntegerObject(testEval("let mk = fn(n) { fn() { n } }; let a = mk(1); let b = mk(2); a() + b()"), 3);
+    }
+
     @Test
     void testStringLiteral() {
         var input = """
@@ -354,7 +463,11 @@ class EvaluatorTest {
                         """, new int[]{1}),
                 new Temp("""
                         push(1, 1)
-                        """, "argument to `push` must be ARRAY, got INTEGER")
+                        """, "argument to `push` must be ARRAY, got INTEGER"),
+                new Temp("len()", "wrong number of arguments. got=0, want=1"),
+                new Temp("len([1], [2], [3])", "wrong number of arguments. got=3, want=1"),
+                new Temp("push([1])", "wrong number of arguments. got=1, want=2"),
+                new Temp("push(rest([1, 2]), 3)", new int[]{2, 3}),
         };
         for (var test : tests) {
             var evaluated = testEval(test.input);
@@ -499,6 +612,195 @@ class EvaluatorTest {
             }
         }
     }
+
+    @Test
+    void testCallSitesWithChangingCallees() {
+        record Temp(String input, int expected) {
+        }
+        Temp[] tests = {
+                // One site sees closures of one literal, builtins and more than four different functions.
+                new Temp("""
+                        let apply = fn(f, x) { f(x) };
+                        let adder = fn(n) { fn(x) { x + n } };
+                        apply(adder(1), 1) + apply(adder(2), 1) + apply(len, "abc");
+                        """, 8),
+                new Temp("""
+                        let apply = fn(f, x) { f(x) };
+                        apply(fn(x) { x + 1 }, 0) + apply(fn(x) { x + 2 }, 0) + apply(fn(x) { x + 3 }, 0)
+                            + apply(fn(x) { x + 4 }, 0) + apply(fn(x) { x + 5 }, 0) + apply(fn(y) { y * 10 }, 1);
+                        """, 25),
+        };
+        for (var tt : tests) {
+            testIntegerObject(testEval(tt.input), tt.expected);
+        }
+        assertEquals("ERROR: not a function: INTEGER_OBJ", testEval("""
+                let apply = fn(f) { f() };
+                apply(fn() { 1 });
+                apply(1);
+                """).inspect());
+    }
+
+    @Test
+    void testGlobalReads() {
+        // Lines share one global environment, reads through a cached global see every rebinding.
+        var env = Environment.newEnvironment();
+        Evaluator.eval(new Parser(new Lexer("let f = fn() { 1 }; let g = fn(x) { f() + x };")).parseProgram(), env);
+        var calls = new Parser(new Lexer("g(0)")).parseProgram();
+        testIntegerObject(Evaluator.eval(calls, env), 1);
+        Evaluator.eval(new Parser(new Lexer("f = fn() { 2 };")).parseProgram(), env);
+        testIntegerObject(Evaluator.eval(calls, env), 2);
+        Evaluator.eval(new Parser(new Lexer("let f = fn() { 3 };")).parseProgram(), env);
+        testIntegerObject(Evaluator.eval(calls, env), 3);
+        assertFalse(env.global("f").stable());
+        assertTrue(env.global("g").stable());
+        // A name bound by an enclosing function is not a global read.
+        testIntegerObject(testEval("let x = 1; let f = fn(x) { fn() { x } }; f(5)() + x"), 6);
+        testIntegerObject(testEval("let x = 1; let f = fn() { let g = fn() { x }; let x = 2; g() }; f()"), 2);
+        assertEquals("ERROR: identifier not found: y", testEval("let f = fn() { y }; f()").inspect());
+    }
+
+    @Test
+    void testIndexSiteWithChangingReceivers() {
+        var evaluated = testEval("""
+                let get = fn(c, i) { c[i] };
+                get([1, 2], 1) + get({"a": 3}, "a") + get([4], 0) + get({true: 5}, true);
+                """);
+        testIntegerObject(evaluated, 14);
+        assertEquals("ERROR: index operator not supported: INTEGER_OBJ", testEval("""
+                let get = fn(c, i) { c[i] };
+                get([1], 0);
+                get(1, 0);
+                """).inspect());
+        testNullObject(testEval("let get = fn(c, i) { c[i] }; get([1], 0); get([1], -1)"));
+    }
+
+    @Test
+    void testShapedHashes() {
+        // Hashes of one literal with string keys share a shape, literal keys are found by offset.
+        var pair = (Array) testEval("let make = fn(a, b) { {\"id\": a, \"score\": b} }; [make(1, 2), make(3, 4)]");
+        var first = (Hash) pair.elements().get(0);
+        var second = (Hash) pair.elements().get(1);
+        assertNotNull(first.shape());
+        assertSame(first.shape(), second.shape());
+        assertEquals(testEval("{\"id\": 1, \"score\": 2}").inspect(), first.inspect());
+        assertEquals(first, testEval("let k = \"id\"; {k: 1, \"score\": 2}"));
+        assertNull(((Hash) testEval("{1: 2}")).shape());
+
+        record Temp(String input, String expected) {
+        }
+        Temp[] tests = {
+                new Temp("""
+                        let get = fn(h) { h["score"] };
+                        get({"id": 1, "score": 2}) + get({"score": 3}) + get({"a": 0, "score": 4}) + get({"score": 5});
+                        """, "14"),
+                new Temp("let get = fn(h) { h[\"x\"] }; [get({\"x\": 1}), get({\"y\": 1}), get({\"y\": 2, \"x\": 3})]",
+                        "[1, null, 3]"),
+                new Temp("let get = fn(h) { h[\"x\"] }; get({\"x\": 1}) + get({\"y\": 2, \"x\": 3}) + get({1: 4})",
+                        "ERROR: type mismatch: INTEGER + NULL"),
+                new Temp("let get = fn(h) { h[\"x\"] }; get({\"x\": 1}) + get({1: 4, \"x\": 5})", "6"),
+                new Temp("let k = \"x\"; let h = {\"x\": 7}; h[k] + h[\"x\"]", "14"),
+                new Temp("{\"Aa\": 1, \"BB\": 2}[\"Aa\"]", "2"),
+        };
+        for (var tt : tests) {
+            assertEquals(tt.expected, testEval(tt.input).inspect(), tt.input);
+        }
+    }
+
+    @Test
+    void testTailCalls() {
+        record Temp(String input, int expected) {
+        }
+
+        Temp[] tests = new Temp[]{
+                new Temp("""
+                        let sum = fn(n, acc) { if (n == 0) { acc } else { sum(n - 1, acc + n) } };
+                        sum(100000, 0);
+                        """, 705082704),
+                new Temp("""
+                        let count = fn(n) { if (n == 0) { return 0; } return count(n - 1); };
+                        count(100000);
+                        """, 0),
+                new Temp("""
+                        let even = fn(n) { if (n == 0) { return 1; } odd(n - 1) };
+                        let odd = fn(n) { if (n == 0) { return 0; } even(n - 1) };
+                        even(100001) + odd(100001) * 10;
+                        """, 10),
+                new Temp("""
+                        let last = fn(xs, i) { if (i == len(xs) - 1) { return xs[i]; } last(xs, i + 1) };
+                        last([1, 2, 3, 4, 5, 6], 0);
+                        """, 6),
+                new Temp("let f = fn(x) { len(x) }; f(\"four\")", 4),
+                // Only the last call of the body is a tail call.
+                new Temp("let f = fn(x) { x }; let g = fn(x) { f(x); f(x + 1) }; g(1)", 2),
+                new Temp("let f = fn(x) { if (x) { f(false); 7 } else { 3 } }; f(true)", 7),
+        };
+        for (var tt : tests) {
+            testIntegerObject(testEval(tt.input), tt.expected);
+        }
+        assertEquals("ERROR: not a function: INTEGER_OBJ", testEval("let f = fn() { 1() }; f()").inspect());
+        assertEquals("ERROR: identifier not found: y",
+                testEval("let f = fn(n) { if (n == 0) { return y; } f(n - 1) }; f(50000)").inspect());
+    }
+
+    @Test
+    void testLoops() {
+        record Temp(String input, int expected) {
+        }
+
+        Temp[] tests = new Temp[]{
+                new Temp("let i = 0; let s = 0; while (i < 10) { s = s + i; i = i + 1; } s", 45),
+                new Temp("let s = 0; for (let i = 0; i < 5; i = i + 1) { s = s + i * i; } s", 30),
+                new Temp("let s = 0; for (let i = 0; i < 5; i = i + 1) { s = s + i; } i", 5),
+                new Temp("let f = fn(n) { while (true) { if (n > 5) { return n; } n = n + 1; } }; f(0)", 6),
+                new Temp("let f = fn(n) { let r = 0; let i = 0; while (i < n) { let j = 0; while (j < i) { r = r + j; j = j + 1; } i = i + 1; } r }; f(6)", 20),
+                // Assignment rebinds the name where it is bound, closures see the new value.
+                new Temp("let c = 0; let inc = fn() { c = c + 1; c }; inc(); inc(); c + inc()", 5),
+                new Temp("let x = 1; let f = fn() { let x = 10; x = x + 1; x }; f() + x", 12),
+                new Temp("let i = 0; while (i < 3) { i = i + 1; }; i", 3),
+                new Temp("let s = 0; for (let i = 0; i < 3; i = i + 1) { s = s + i; }; s", 3),
+        };
+        for (var tt : tests) {
+            testIntegerObject(testEval(tt.input), tt.expected);
+        }
+        assertNull(testEval("let i = 0; while (i < 3) { i = i + 1; }"));
+        assertEquals("ERROR: identifier not found: x", testEval("x = 5").inspect());
+        assertEquals("ERROR: type mismatch: INTEGER + STRING",
+                testEval("let a = 0; while (a < 3) { a = a + \"x\"; }").inspect());
+    }
+
+    @Test
+    void testForIn() {
+        record Temp(String input, java.lang.Object expected) {
+        }
+
+        Temp[] tests = new Temp[]{
+                new Temp("let s = 0; for (x in [1, 2, 3]) { s = s + x; } s", 6),
+                new Temp("let s = 0; for (x in range(10)) { s = s + x; } s", 45),
+                new Temp("let s = 0; for (x in range(3, 6)) { s = s + x; } s", 12),
+                new Temp("let s = \"\"; for (c in \"abc\") { s = c + s; } s", "cba"),
+                new Temp("let h = {\"a\": 1, \"b\": 2}; let s = 0; for (k in h) { s = s + h[k]; } s", 3),
+                new Temp("let f = fn(xs) { for (x in xs) { if (x > 2) { return x; } } 0 }; f([1, 2, 3, 4])", 3),
+                // The loop variable is bound like a let and keeps the last element.
+                new Temp("for (x in [1, 2]) { } x", 2),
+                new Temp("let x = 7; for (x in []) { } x", 7),
+                new Temp("let s = 0; for (x in [1, 2, 3]) { s = s + x; }; s", 6),
+                new Temp("len(range(5)) + len(range(5, 2))", 5),
+                new Temp("range(2, 4)", "range(2, 4)"),
+                new Temp("for (x in 5) { x }", "ERROR: not iterable: INTEGER"),
+                new Temp("for (x in []) { } x", "ERROR: identifier not found: x"),
+                new Temp("range(1, 2, 3)", "ERROR: wrong number of arguments. got=3, want=1 or 2"),
+                new Temp("range(\"a\")", "ERROR: argument to `range` must be INTEGER, got STRING"),
+        };
+        for (var tt : tests) {
+            var evaluated = testEval(tt.input);
+            if (tt.expected instanceof java.lang.Integer expected) {
+                testIntegerObject(evaluated, expected);
+            } else {
+                assertEquals(tt.expected, evaluated.inspect(), tt.input);
+            }
+        }
+    }
+
         private Object testEval (String input){
             var lexer = new Lexer(input);
             var parser = new Parser(lexer);
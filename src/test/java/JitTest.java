@@ -0,0 +1,137 @@
+import evaluator.Evaluator;
+import jit.Jit;
+import lexer.Lexer;
+import object.Environment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import parser.Parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JitTest {
+    @BeforeEach
+    void compileEagerly() {
+        Jit.setBackground(false);
+        Jit.setThreshold(2);
+        Jit.setBackEdgeThreshold(2);
+    }
+
+    @AfterEach
+    void restoreDefaults() {
+        Jit.setBackground(true);
+        Jit.setThreshold(1000);
+        Jit.setBackEdgeThreshold(2000);
+    }
+
+    @Test
+    void testCompiledFunctions() {
+        record Temp(String input, String expected) {
+        }
+        Temp[] tests = {
+                new Temp("let fib = fn(n) { if (n < 2) { return n; } fib(n - 1) + fib(n - 2) }; fib(20);", "6765"),
+                new Temp("let f = fn(x) { let y = x * 2; let y = y + 1; -y / 3 }; f(1) + f(4) + f(7);", "-9"),
+                new Temp("let small = fn(n) { n < 10 == true }; small(1); small(5); small(20);", "false"),
+                new Temp("let even = fn(n) { if (n == 0) { 1 } else { if (even(n - 1) == 1) { 0 } else { 1 } } }; even(9);",
+                        "0"),
+                new Temp("let pick = fn(a, b) { let c = if (a > b) { a } else { b }; c }; pick(1, 2) + pick(5, 3);",
+                        "7"),
+                new Temp("let neg = fn(b) { !b }; neg(1); neg(2); neg(3);", "false"),
+        };
+        for (var test : tests) {
+            assertEquals(test.expected, eval(test.input).inspect(), test.input);
+        }
+    }
+
+    @Test
+    void testTailSelfCallsCompileToLoops() {
+        var env = Environment.newEnvironment();
+        eval("let sum = fn(n, acc) { if (n == 0) { return acc; } sum(n - 1, acc + n) }; sum(10, 0); sum(10, 0);", env);
+        assertTrue(Jit.isCompiled((object.Function) env.get("sum")));
+        assertEquals("705082704", eval("sum(100000, 0)", env).inspect());
+        eval("let flip = fn(n, b) { if (n == 0) { b } else { flip(n - 1, !b) } }; flip(1, 0); flip(1, 0);", env);
+        assertFalse(Jit.isCompiled((object.Function) env.get("flip")));
+    }
+
+    @Test
+    void testFunctionIsCompiledAfterThreshold() {
+        var env = Environment.newEnvironment();
+        eval("let add = fn(a, b) { a + b }; add(1, 2);", env);
+        var add = (object.Function) env.get("add");
+        assertFalse(Jit.isCompiled(add));
+        eval("add(3, 4);", env);
+        assertTrue(Jit.isCompiled(add));
+        assertEquals("12", eval("add(5, 7);", env).inspect());
+        // Compiled code boxes through the same cache as the interpreters.
+        assertSame(object.Integer.valueOf(12), eval("add(5, 7);", env));
+        assertEquals("4000", eval("add(2000, 2000);", env).inspect());
+    }
+
+    @Test
+    void testUnsupportedFunctionsStayInterpreted() {
+        var env = Environment.newEnvironment();
+        eval("let greet = fn(name) { \"hi \" + name }; greet(\"a\"); greet(\"b\");", env);
+        assertFalse(Jit.isCompiled((object.Function) env.get("greet")));
+        eval("let k = 5; let addK = fn(x) { x + k }; addK(1); addK(2);", env);
+        assertFalse(Jit.isCompiled((object.Function) env.get("addK")));
+        assertEquals("hi c", eval("greet(\"c\")", env).inspect());
+    }
+
+    @Test
+    void testGuardsFallBackToEvaluator() {
+        var env = Environment.newEnvironment();
+        eval("let add = fn(a, b) { a + b }; add(1, 2); add(3, 4);", env);
+        assertTrue(Jit.isCompiled((object.Function) env.get("add")));
+        assertEquals("ab", eval("add(\"a\", \"b\")", env).inspect());
+        assertEquals("ERROR: type mismatch: INTEGER + BOOLEAN", eval("add(1, true)", env).inspect());
+
+        eval("let count = fn(n) { if (n == 0) { 0 } else { 1 + count(n - 1) } }; count(3); count(3);", env);
+        var count = eval("count", env);
+        assertTrue(Jit.isCompiled((object.Function) count));
+        // Once the name points elsewhere the compiled recursion would be wrong, so it is not used.
+        eval("let old = count; let count = fn(n) { 100 };", env);
+        assertEquals("101", eval("old(3)", env).inspect());
+    }
+
+    @Test
+    void testStableSelfBindingIsInvalidated() {
+        var env = Environment.newEnvironment();
+        eval("let count = fn(n) { if (n == 0) { 0 } else { 1 + count(n - 1) } }; count(3); count(3);", env);
+        assertTrue(Jit.isCompiled((object.Function) env.get("count")));
+        assertEquals("3", eval("count(3)", env).inspect());
+        assertTrue(env.global("count").stable());
+        eval("let old = count; count = fn(n) { 100 };", env);
+        assertFalse(env.global("count").stable());
+        assertEquals("101", eval("old(3)", env).inspect());
+    }
+
+    @Test
+    void testRecursiveCallsCountAsBackEdges() {
+        Jit.setThreshold(1000);
+        var env = Environment.newEnvironment();
+        eval("let sum = fn(n) { if (n == 0) { 0 } else { n + sum(n - 1) } }; sum(1);", env);
+        assertFalse(Jit.isCompiled((object.Function) env.get("sum")));
+        // One call from outside, the recursion alone makes it hot.
+        assertEquals("5050", eval("sum(100)", env).inspect());
+        assertTrue(Jit.isCompiled((object.Function) env.get("sum")));
+    }
+
+    @Test
+    void testBackgroundCompilation() throws InterruptedException {
+        Jit.setBackground(true);
+        var env = Environment.newEnvironment();
+        eval("let mul = fn(a, b) { a * b }; mul(2, 3); mul(4, 5);", env);
+        Jit.awaitCompilation();
+        assertTrue(Jit.isCompiled((object.Function) env.get("mul")));
+        assertEquals("42", eval("mul(6, 7)", env).inspect());
+    }
+
+    private static object.Object eval(String input) {
+        return eval(input, Environment.newEnvironment());
+    }
+
+    private static object.Object eval(String input, Environment env) {
+        var program = new Parser(new Lexer(input)).parseProgram();
+        return Evaluator.eval(program, env);
+    }
+}
@@ -0,0 +1,83 @@
+import engine.EngineKind;
+import evaluator.Evaluator;
+import lexer.Lexer;
+import object.Environment;
+import org.junit.jupiter.api.Test;
+import parser.Parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodesTest {
+    @Test
+    void testSameResultsAsEvaluator() {
+        String[] inputs = {
+                "(5 + 10 * 2 + 15 / 3) * 2 + -10",
+                "1 < 2 == true",
+                "\"Hello\" + \" \" + \"World!\"",
+                "5 + true; 5;",
+                "let f = fn(x) { if (x > 1) { return x * f(x - 1); } 1 }; f(10);",
+                "let newAdder = fn(x) { fn(y) { x + y } }; newAdder(2)(3);",
+                "[1, 2, 3][1] + {\"a\": 4}[\"a\"]",
+                "len(\"four\") + first([5])",
+                "5(1)",
+                "if (1 > 2) { 10 }",
+                "let i = 0; let s = 0; while (i < 10) { s = s + i; i = i + 1; } s",
+                "let f = fn(n) { let acc = 0; for (let i = 0; i < n; i = i + 1) { acc = acc + i; } acc }; f(100)",
+                "let f = fn(n) { while (true) { if (n > 5) { return n; } n = n + 1; } }; f(0)",
+                "let f = fn() { let c = 0; let inc = fn() { c = c + 1; c }; inc(); inc(); c + inc() }; f()",
+                "let a = 0; while (a < 3) { a = a + \"x\"; }",
+                "x = 5",
+                "let s = 0; for (x in [1, 2, 3]) { s = s + x; } s",
+                "let h = {\"a\": 1, \"b\": 2}; let s = 0; for (k in h) { s = s + h[k]; } s",
+                "let f = fn(xs) { for (x in xs) { if (x > 2) { return x; } } 0 }; f(range(10))",
+                "let f = fn(xs) { let x = 7; for (x in xs) { } x }; f(\"ab\")",
+                "for (x in 5) { x }",
+        };
+        for (var input : inputs) {
+            var program = new Parser(new Lexer(input)).parseProgram();
+            var expected = Evaluator.eval(program, Environment.newEnvironment());
+            var actual = EngineKind.NODES.create().run(program);
+            assertEquals(expected.inspect(), actual.inspect(), input);
+        }
+    }
+
+    @Test
+    void testInfixDeoptimizesWhenGuardFails() {
+        var result = run("""
+                let add = fn(a, b) { a + b };
+                let warm = add(1, 2) + add(3, 4);
+                add("mon", "key") + add("", "!");
+                """);
+        assertEquals("monkey!", result.inspect());
+        assertEquals("ERROR: type mismatch: INTEGER + STRING", run("""
+                let add = fn(a, b) { a + b };
+                add(1, 2);
+                add(1, "2");
+                """).inspect());
+    }
+
+    @Test
+    void testIndexAndCallDeoptimize() {
+        assertEquals("7", run("""
+                let get = fn(c, i) { c[i] };
+                get([1, 2], 1) + get({"x": 5}, "x");
+                """).inspect());
+        assertEquals("9", run("""
+                let apply = fn(f, x) { f(x) };
+                apply(fn(x) { x * 2 }, 3) + apply(len, "abc");
+                """).inspect());
+    }
+
+    @Test
+    void testRecursionWhileSpecializing() {
+        var result = run("""
+                let fib = fn(n) { if (n < 2) { n } else { fib(n - 1) + fib(n - 2) } };
+                fib(15);
+                """);
+        assertEquals("610", result.inspect());
+    }
+
+    private object.Object run(String input) {
+        return EngineKind.NODES.create().run(new Parser(new Lexer(input)).parseProgram());
+    }
+}
@@ -2,7 +2,12 @@ import org.junit.jupiter.api.Test;
 import object.String;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import object.Boolean;
 import object.Integer;
 
@@ -37,4 +42,52 @@ public class ObjectTest {
         assertEquals(two1.hashKey(), two2.hashKey());
         assertNotEquals(one1.hashCode(), two1.hashCode());
     }
+    @Test
+    void testIntegerCache(){
+        assertSame(Integer.valueOf(0), Integer.valueOf(0));
+        assertSame(Integer.valueOf(-128), Integer.valueOf(-128));
+        assertSame(Integer.valueOf(1023), Integer.valueOf(1023));
+        assertNotSame(Integer.valueOf(1024), Integer.valueOf(1024));
+        assertEquals(new Integer(5000), Integer.valueOf(5000));
+    }
+    @Test
+    void testGlobals(){
+        var env = object.Environment.newEnvironment();
+        var a = env.global("a");
+        assertNull(a.value());
+        env.set("a", new Integer(1));
+        assertEquals(new Integer(1), a.value());
+        assertTrue(a.stable());
+        // Every environment under the global one hands out the same binding.
+        assertSame(a, object.Environment.newEnclosedEnvironment(env).global("a"));
+        object.Environment.newEnclosedEnvironment(env).set("a", new Integer(2));
+        assertTrue(a.stable());
+        env.set("a", new Integer(3));
+        assertFalse(a.stable());
+        var b = env.global("b");
+        env.set("b", new Integer(1));
+        assertTrue(env.assign("b", new Integer(2)));
+        assertFalse(b.stable());
+        assertEquals(new Integer(2), env.get("b"));
+    }
+    @Test
+    void testCursors(){
+        var array = new object.Array(java.util.List.of(new Integer(1), new String("a")));
+        assertEquals("1 a", elements(array));
+        assertEquals("h i", elements(new String("hi")));
+        assertEquals("3 4 5", elements(new object.Range(3, 6)));
+        assertEquals("", elements(new object.Range(6, 3)));
+        // Every loop gets its own cursor.
+        var cursor = array.cursor();
+        cursor.next();
+        assertEquals("1 a", elements(array));
+    }
+
+    private static java.lang.String elements(object.Iterable iterable) {
+        var elements = new java.util.ArrayList<java.lang.String>();
+        for (var cursor = iterable.cursor(); cursor.hasNext(); ) {
+            elements.add(cursor.next().inspect());
+        }
+        return java.lang.String.join(" ", elements);
+    }
 }
\ No newline at end of file
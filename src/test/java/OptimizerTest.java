@@ -0,0 +1,287 @@
+import engine.EngineKind;
+import evaluator.Evaluator;
+import lexer.Lexer;
+import object.Environment;
+import optimizer.Optimizer;
+import org.junit.jupiter.api.Test;
+import parser.Parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimizerTest {
+    @Test
+    void testOptimizedPrograms() {
+        record Temp(String input, String expected) {
+        }
+
+        Temp[] tests = new Temp[]{
+                new Temp("1 + 2 * 3", "7"),
+                new Temp("-5 + 3", "-2"),
+                new Temp("(5 + 10 * 2 + 15 / 3) * 2 + -10", "50"),
+                new Temp("1 < 2 == true", "true"),
+                new Temp("!!5", "true"),
+                new Temp("!\"a\"", "false"),
+                new Temp("true != false", "true"),
+                new Temp("1 == true", "false"),
+                new Temp("\"Hello\" + \" \" + \"World!\"", "Hello World!"),
+                new Temp("len(\"four\") * 2", "8"),
+                new Temp("x + 2 * 3", "(x + 6)"),
+                // Errors stay in place.
+                new Temp("1 / 0", "(1 / 0)"),
+                new Temp("\"a\" - \"b\"", "(a - b)"),
+                new Temp("-true", "(-true)"),
+                new Temp("true + false", "(true + false)"),
+                new Temp("len(\"a\", \"b\")", "len(a, b)"),
+                // Branches.
+                new Temp("if (1 < 2) { 10 } else { 20 }", "10"),
+                new Temp("let x = if (false) { 10 } else { y };", "let x = y;"),
+                new Temp("if (true) { let a = 1; a }; a", "let a = 1;aa"),
+                new Temp("if (false) { 10 }; 5", "5"),
+                new Temp("if (false) { 10 }", "iffalse "),
+                new Temp("let x = if (true) { }; x", "let x = iftrue ;x"),
+                new Temp("if (x) { 1 + 1 }", "ifx 2"),
+                // Dead code.
+                new Temp("fn() { return 1; 2; 3 }", "fn()return 1;"),
+                new Temp("fn() { if (true) { return 1; } 2 }", "fn()return 1;"),
+                new Temp("return 1; puts(2)", "return 1;"),
+        };
+        for (var tt : tests) {
+            var program = new Parser(new Lexer(tt.input())).parseProgram();
+            assertEquals(tt.expected(), new Optimizer().optimize(program).toString(), tt.input());
+        }
+    }
+
+    @Test
+    void testSameResultsAsUnoptimized() {
+        String[] inputs = {
+                "(5 + 10 * 2 + 15 / 3) * 2 + -10",
+                "\"a\" - \"b\"",
+                "5 + true; 5;",
+                "1 / 0 == 0",
+                "let f = fn(x) { if (true) { return x * 2; } x }; f(10);",
+                "if (true) { let a = 1; a + 1 }",
+                "if (false) { 1 }",
+                "let a = if (false) { 1 }; a",
+                "{1 + 1: 2, \"a\" + \"b\": 3, true: 4}[2]",
+                "let len = fn(x) { 42 }; len(\"four\")",
+                "fn() { if (false) { 1 } }()",
+                "let i = 0; while (i < 10) { i = i + 1; } i",
+                "let i = 0; while (false) { i = i + 1; } i",
+                "let s = 0; for (let i = 0; i < 3; i = i + 1) { if (true) { s = s + i; } } s",
+        };
+        for (var input : inputs) {
+            var program = new Parser(new Lexer(input)).parseProgram();
+            var expected = evaluate(program);
+            var actual = evaluate(new Optimizer().optimize(program));
+            assertEquals(expected, actual, input);
+        }
+    }
+
+    @Test
+    void testShadowedLenIsNotFolded() {
+        var optimizer = new Optimizer();
+        optimizer.optimize(new Parser(new Lexer("let len = fn(x) { 42 };")).parseProgram());
+        var program = optimizer.optimize(new Parser(new Lexer("len(\"four\")")).parseProgram());
+        assertEquals("len(four)", program.toString());
+        program = new Optimizer(true).optimize(new Parser(new Lexer("fn(len) { len(\"four\") }")).parseProgram());
+        assertEquals("fn(len)len(four)", program.toString());
+        program = new Optimizer(true).optimize(new Parser(new Lexer("fn() { len(\"four\") }")).parseProgram());
+        assertEquals("fn()4", program.toString());
+        // A later line may bind len before the function runs.
+        assertEquals("0", session("let f = fn() { len(\"abc\") };", "let len = fn(x) { 0 };", "f()"));
+    }
+
+    @Test
+    void testInlining() {
+        record Temp(String input, String expected) {
+        }
+
+        Temp[] tests = new Temp[]{
+                new Temp("let add = fn(a, b) { a + b }; add(1, 2)", "let add = fn(a, b)(a + b);3"),
+                new Temp("let sq = fn(x) { return x * x; }; fn(n) { sq(n) }",
+                        "let sq = fn(x)return (x * x);;fn(n)(n * n)"),
+                new Temp("let sq = fn(x) { x * x }; fn() { sq(f()) }",
+                        "let sq = fn(x)(x * x);fn()let x$1 = f();(x$1 * x$1)"),
+                new Temp("let k = fn(x) { 1 }; fn() { k(puts(2)) + 1 }",
+                        "let k = fn(x)1;fn()(iftrue let x$1 = puts(2);1 + 1)"),
+                new Temp("let sq = fn(x) { x * x }; let quad = fn(x) { sq(sq(x)) }; fn() { quad(3) }",
+                        "let sq = fn(x)(x * x);let quad = fn(x)let x$1 = (x * x);(x$1 * x$1);fn()let x$1 = 9;(x$1 * x$1)"),
+                // Not inlined.
+                new Temp("add(1, 2); let add = fn(a, b) { a + b };", "add(1, 2)let add = fn(a, b)(a + b);"),
+                new Temp("let add = fn(a, b) { a + b }; add(1)", "let add = fn(a, b)(a + b);add(1)"),
+                new Temp("let f = fn(n) { f(n) }; f(1)", "let f = fn(n)f(n);f(1)"),
+                new Temp("let f = fn(a) { a }; let f = fn(a) { 2 }; f(1)", "let f = fn(a)a;let f = fn(a)2;f(1)"),
+                new Temp("let f = fn() { k }; fn(k) { f() }", "let f = fn()k;fn(k)f()"),
+                new Temp("let f = fn() { fn() { 1 } }; f()", "let f = fn()fn()1;f()"),
+                new Temp("let f = fn() { 1; 2 }; f()", "let f = fn()12;f()"),
+                new Temp("let f = fn(a) { a }; f = fn(a) { 2 }; f(1)", "let f = fn(a)a;f = fn(a)2;f(1)"),
+                new Temp("let f = fn(a) { a = a + 1; a }; f(1)", "let f = fn(a)a = (a + 1);a;f(1)"),
+                // A temporary at the top level would be a global.
+                new Temp("let sq = fn(x) { x * x }; sq(f())", "let sq = fn(x)(x * x);sq(f())"),
+                new Temp("let sq = fn(x) { x * x }; let quad = fn(x) { sq(sq(x)) }; quad(3)",
+                        "let sq = fn(x)(x * x);let quad = fn(x)let x$1 = (x * x);(x$1 * x$1);"
+                                + "let quad$s1 = fn()let x$1 = 9;(x$1 * x$1);quad$s1()"),
+                // An assigned parameter is read into a temporary, like any other argument.
+                new Temp("let sq = fn(x) { x * x }; fn(n) { n = n + 1; sq(n) }",
+                        "let sq = fn(x)(x * x);fn(n)n = (n + 1);let x$1 = n;(x$1 * x$1)"),
+        };
+        for (var tt : tests) {
+            var program = new Parser(new Lexer(tt.input())).parseProgram();
+            assertEquals(tt.expected(), new Optimizer(true).optimize(program).toString(), tt.input());
+        }
+    }
+
+    @Test
+    void testInliningReport() {
+        var optimizer = new Optimizer();
+        optimizer.optimize(new Parser(new Lexer("let add = fn(a, b) { a + b }; let f = fn(n) { f(n) }; add(1, 2)"))
+                .parseProgram());
+        assertEquals(java.util.List.of("not inlining f: recursive", "inlined add(1, 2) as (1 + 2)"),
+                optimizer.report());
+    }
+
+    @Test
+    void testInliningInASession() {
+        var optimizer = new Optimizer();
+        var program = optimizer.optimize(new Parser(new Lexer(
+                "let add = fn(a, b) { a + b }; let g = fn(x) { add(x, 1) }; add(2, 3)")).parseProgram());
+        assertEquals("let add = fn(a, b)(a + b);let g = fn(x)add(x, 1);5", program.toString());
+        // A later line may rebind the callee before a function body calls it.
+        assertEquals("5", session("let add = fn(a, b) { a + b }; let g = fn(x) { add(x, 1) };",
+                "let add = fn(a, b) { a * b };", "g(5)"));
+        // A function of an earlier line may rebind it before the call.
+        assertEquals("5", session("let r = fn() { add = fn(a, b) { a * b } };",
+                "let add = fn(a, b) { a + b }; let five = 5; r(); add(five, 1)"));
+    }
+
+    @Test
+    void testInlinedProgramsOnEveryEngine() {
+        String[] inputs = {
+                "let add = fn(a, b) { a + b }; let f = fn(n) { add(n, add(n, 1)) * 2 }; f(5) + add(1, 2)",
+                "let sq = fn(x) { x * x }; let fib = fn(n) { if (n < 2) { n } else { fib(n - 1) + fib(n - 2) } };"
+                        + " sq(fib(10))",
+                "let k = fn(a, b) { b }; let f = fn(n) { k(n, first([n])) }; f(7)",
+                "let id = fn(x) { x }; id(foobar)",
+                "let pick = fn(c, a, b) { if (c) { a } else { b } }; pick(1 > 2, 10, len(\"ab\"))",
+                "let get = fn(a, i) { a[i] }; let f = fn(xs) { get(xs, 0) + get(xs, 1) }; f([3, 4])",
+                "let inc = fn(x) { x + 1 }; let f = fn(n) { let i = 0; while (i < n) { i = inc(i); } i }; f(5)",
+                "let sq = fn(x) { x * x }; let f = fn(n) { let a = sq(n); n = n + 1; a + sq(n) }; f(2)",
+                "let inc = fn(x) { x + 1 }; let f = fn(xs) { let s = 0; for (x in xs) { s = s + inc(x); } s }; f(range(4))",
+        };
+        for (var input : inputs) {
+            var program = new Parser(new Lexer(input)).parseProgram();
+            var expected = evaluate(program);
+            var optimized = new Optimizer(true).optimize(program);
+            for (EngineKind kind : EngineKind.values()) {
+                var actual = kind.create().run(optimized);
+                assertEquals(expected, actual == null ? "null" : actual.inspect(), kind + ": " + input);
+            }
+        }
+    }
+
+    @Test
+    void testSpecialization() {
+        record Temp(String input, String expected) {
+        }
+
+        Temp[] tests = new Temp[]{
+                new Temp("let g = fn(x, c) { let y = x * 2; if (c) { y } else { 0 } }; g(a, false); g(a, false); g(a, 7)",
+                        "let g = fn(x, c)let y = (x * 2);ifc yelse 0;let g$s1 = fn(x)let y = (x * 2);0;"
+                                + "let g$s2 = fn(x)let y = (x * 2);y;g$s1(a)g$s1(a)g$s2(a)"),
+                new Temp("let get = fn(cfg, k) { let v = cfg[k]; v }; get({\"a\": 1, \"b\": 2}, \"b\")",
+                        "let get = fn(cfg, k)let v = (cfg[k]);v;let get$s1 = fn()let v = 2;v;get$s1()"),
+                new Temp("let pow = fn(x, n) { if (n == 0) { 1 } else { x * pow(x, n - 1) } }; pow(a, 1)",
+                        "let pow = fn(x, n)if(n == 0) 1else (x * pow(x, (n - 1)));"
+                                + "let pow$s1 = fn(x)(x * pow$s2(x));let pow$s2 = fn(x)1;pow$s1(a)"),
+                // Not specialized.
+                new Temp("let f = fn(n) { f(n) }; f(1)", "let f = fn(n)f(n);f(1)"),
+                new Temp("let f = fn(c) { c = !c; if (c) { 1 } else { 2 } }; f(true)",
+                        "let f = fn(c)c = (!c);ifc 1else 2;f(true)"),
+                new Temp("let f = fn(h, k) { puts(h); h[k] }; f({1: 2}, 1)",
+                        "let f = fn(h, k)puts(h)(h[k]);f({1:2}, 1)"),
+                new Temp("f(true); let f = fn(c) { let a = 1; if (c) { a } else { 2 } };",
+                        "f(true)let f = fn(c)let a = 1;ifc aelse 2;"),
+                new Temp("let f = fn(c) { let a = 1; if (c) { a } else { 2 } }; fn(f) { f(true) }",
+                        "let f = fn(c)let a = 1;ifc aelse 2;fn(f)f(true)"),
+        };
+        for (var tt : tests) {
+            var program = new Parser(new Lexer(tt.input())).parseProgram();
+            assertEquals(tt.expected(), new Optimizer().optimize(program).toString(), tt.input());
+        }
+    }
+
+    @Test
+    void testSpecializationLimit() {
+        var optimizer = new Optimizer();
+        optimizer.optimize(new Parser(new Lexer(
+                "let pow = fn(x, n) { if (n == 0) { 1 } else { x * pow(x, n - 1) } }; pow(2, 10)")).parseProgram());
+        var report = optimizer.report();
+        assertEquals("specialized pow(2, 10) as pow$s1", report.get(1));
+        assertEquals("not specializing pow(2, 2): pow has 8 copies", report.get(report.size() - 1));
+        // Copies of a later program get new names.
+        var program = optimizer.optimize(new Parser(new Lexer("pow(3, 0)")).parseProgram());
+        assertEquals("pow(3, 0)", program.toString());
+        program = optimizer.optimize(new Parser(new Lexer(
+                "let k = fn(c) { let a = 1; if (c) { a } else { 2 } }; k(true)")).parseProgram());
+        assertEquals("let k = fn(c)let a = 1;ifc aelse 2;let k$s9 = fn()let a = 1;a;k$s9()", program.toString());
+    }
+
+    @Test
+    void testSpecializationInASession() {
+        var optimizer = new Optimizer();
+        var program = optimizer.optimize(new Parser(new Lexer(
+                "let f = fn(x, m) { if (m == 2) { x * 2 } else { x } }; let h = fn(x) { f(x, 2) };")).parseProgram());
+        assertEquals("let f = fn(x, m)if(m == 2) (x * 2)else x;let h = fn(x)f(x, 2);", program.toString());
+        // A later line may rebind the function before a function body calls it.
+        assertEquals("0", session("let f = fn(x, m) { if (m == 2) { x * 2 } else { x } }; let h = fn(x) { f(x, 2) };",
+                "let f = fn(x, m) { 0 };", "h(5)"));
+        // A function of an earlier line may rebind it before the call.
+        assertEquals("0", session("let r = fn() { f = fn(x, m) { 0 } };",
+                "let f = fn(x, m) { if (m == 2) { x * 2 } else { x } }; let five = 5; r(); f(five, 2)"));
+        // Copies for calls outside functions are only called before the line is done.
+        assertEquals("10", session("let f = fn(x, m) { if (m == 2) { x * 2 } else { x } }; let five = 5; f(five, 2)"));
+    }
+
+    @Test
+    void testSpecializedProgramsOnEveryEngine() {
+        String[] inputs = {
+                "let score = fn(x, w, mode) { let s = x * w; if (mode == 1) { s + 1 } else { if (mode == 2) { s * 2 } else { s } } };"
+                        + " let f = fn(n) { let t = 0; for (i in range(n)) { t = t + score(i, 3, 2) + score(i, 1, 1); } t }; f(10)",
+                "let pow = fn(x, n) { if (n == 0) { 1 } else { x * pow(x, n - 1) } }; pow(2, 10) + pow(3, 3)",
+                "let get = fn(cfg, k, x) { let v = cfg[k]; v * x }; get({\"a\": 1, \"b\": 2}, \"b\", 5) + get({1: 3}, 1, 2)",
+                "let get = fn(cfg, k) { let v = cfg[k]; v }; get({\"a\": 1}, \"z\")",
+                "let f = fn(c, s) { let a = s + \"!\"; if (c) { a } else { s } }; f(true, \"x\") + f(false, \"y\")",
+                "let f = fn(x, d) { let a = x; a / d }; f(4, 2) + f(6, 3)",
+                "let f = fn(x, y) { let a = x - y; a }; f(true, 1)",
+        };
+        for (var input : inputs) {
+            var program = new Parser(new Lexer(input)).parseProgram();
+            var expected = evaluate(program);
+            var optimized = new Optimizer(true).optimize(program);
+            for (EngineKind kind : EngineKind.values()) {
+                var actual = kind.create().run(optimized);
+                assertEquals(expected, actual == null ? "null" : actual.inspect(), kind + ": " + input);
+            }
+        }
+    }
+
+    // Runs the lines one after another in one environment, like the REPL with --optimize does.
+    private static String session(String... lines) {
+        var optimizer = new Optimizer();
+        var engine = EngineKind.EVALUATOR.create();
+        object.Object result = null;
+        for (var line : lines) {
+            result = engine.run(optimizer.optimize(new Parser(new Lexer(line)).parseProgram()));
+        }
+        return result == null ? "null" : result.inspect();
+    }
+
+    private static String evaluate(ast.Program program) {
+        try {
+            var result = Evaluator.eval(program, Environment.newEnvironment());
+            return result == null ? "null" : result.inspect();
+        } catch (ArithmeticException e) {
+            return e.toString();
+        }
+    }
+}
@@ -260,6 +260,70 @@ class ParserTest {
         testIdentifier(alternative.expression(), "y");
     }
 
+    @Test
+    void testWhileStatement() {
+        var input = "while (x < y) { x }";
+        var program = getProgram(input);
+        assertTrue(program.statements().get(0) instanceof WhileStatement);
+        var statement = (WhileStatement) program.statements().get(0);
+        assertEquals("while", statement.tokenLiteral());
+        testInfixExpression(statement.condition(), "x", "<", "y");
+        assertEquals(1, statement.body().statements().size());
+        var body = (ExpressionStatement) statement.body().statements().get(0);
+        testIdentifier(body.expression(), "x");
+        assertTrue(getProgram("while (x < y) { x };").statements().get(0) instanceof WhileStatement);
+    }
+
+    @Test
+    void testAssignStatements() {
+        record Temp(String input, String expectedIdentifier, Object expectedValue) {
+        }
+        Temp[] tests = {
+                new Temp("x = 5;", "x", 5),
+                new Temp("y = true", "y", true),
+                new Temp("foobar = y;", "foobar", "y"),
+        };
+        for (Temp test : tests) {
+            Program program = getProgram(test.input);
+            assertTrue(program.statements().get(0) instanceof AssignStatement);
+            var statement = (AssignStatement) program.statements().get(0);
+            testIdentifier(statement.name(), test.expectedIdentifier);
+            testLiteralExpression(statement.value(), test.expectedValue);
+        }
+    }
+
+    @Test
+    void testForStatement() {
+        var input = "for (let i = 0; i < 10; i = i + 1) { puts(i); }";
+        var program = getProgram(input);
+        assertTrue(program.statements().get(0) instanceof BlockStatement);
+        var block = (BlockStatement) program.statements().get(0);
+        assertEquals(2, block.statements().size());
+        testLetStatement(block.statements().get(0), "i");
+        assertTrue(block.statements().get(1) instanceof WhileStatement);
+        var loop = (WhileStatement) block.statements().get(1);
+        testInfixExpression(loop.condition(), "i", "<", 10);
+        assertEquals(2, loop.body().statements().size());
+        assertTrue(loop.body().statements().get(1) instanceof AssignStatement);
+        assertEquals("let i = 0;while(i < 10) puts(i)i = (i + 1);", program.toString());
+        assertEquals("let i = 0;while(i < 10) puts(i)i = (i + 1);",
+                getProgram("for (let i = 0; i < 10; i = i + 1) { puts(i); };").toString());
+    }
+
+    @Test
+    void testForInStatement() {
+        var input = "for (x in [1, 2]) { puts(x); }";
+        var program = getProgram(input);
+        assertTrue(program.statements().get(0) instanceof ForInStatement);
+        var statement = (ForInStatement) program.statements().get(0);
+        assertEquals("for", statement.tokenLiteral());
+        testIdentifier(statement.name(), "x");
+        assertTrue(statement.iterable() instanceof ArrayLiteral);
+        assertEquals(1, statement.body().statements().size());
+        assertEquals("for(x in [1, 2]) puts(x)", program.toString());
+        assertEquals("for(x in [1, 2]) puts(x)", getProgram("for (x in [1, 2]) { puts(x); };").toString());
+    }
+
     @Test
     void testFunctionLiteralParsing() {
         var input = "fn(x, y) { x + y; }";
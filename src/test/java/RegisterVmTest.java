@@ -0,0 +1,128 @@
+import engine.EngineKind;
+import evaluator.Evaluator;
+import lexer.Lexer;
+import object.Environment;
+import org.junit.jupiter.api.Test;
+import parser.Parser;
+import regvm.Lowering;
+import regvm.Prototype;
+import resolver.Resolver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegisterVmTest {
+    @Test
+    void testSameResultsAsEvaluator() {
+        String[] inputs = {
+                "(5 + 10 * 2 + 15 / 3) * 2 + -10",
+                "1 < 2 == true",
+                "!!5 != false",
+                "\"Hello\" + \" \" + \"World!\"",
+                "5 + true; 5;",
+                "-true",
+                "let f = fn(x) { if (x > 1) { return x * f(x - 1); } 1 }; f(10);",
+                "let newAdder = fn(x) { fn(y) { x + y } }; newAdder(2)(3);",
+                "let f = fn(x) { if (x > 0) { let y = x; } y }; let y = 7; f(1) + f(0);",
+                "let x = 1; let f = fn() { let x = x + 1; x }; f() + x;",
+                "let f = fn(a) { a + if (true) { let a = 10; a } }; f(1);",
+                "[1, 2 * 3, 3][1] + {\"a\": 4}[\"a\"]",
+                "{fn(x) { x }: 1}",
+                "{\"a\": 1, \"b\": 2}[\"b\"]",
+                "len(\"four\") + first([5])",
+                "let len = fn(x) { 42 }; len(\"four\")",
+                "foobar",
+                "5(1)",
+                "if (1 > 2) { 10 }",
+                "if (1 < 2) { 10 } else { 20 } + 1",
+                "let a = 1; return a + 1; a",
+                "fn(x) { x + 1 }",
+                "let i = 0; let s = 0; while (i < 10) { s = s + i; i = i + 1; } s",
+                "let f = fn(n) { let acc = 0; for (let i = 0; i < n; i = i + 1) { acc = acc + i; } acc }; f(100)",
+                "let f = fn(n) { while (true) { if (n > 5) { return n; } n = n + 1; } }; f(0)",
+                "let f = fn() { let c = 0; let inc = fn() { c = c + 1; c }; inc(); inc(); c + inc() }; f()",
+                "let a = 0; while (a < 3) { a = a + \"x\"; }",
+                "x = 5",
+                "let s = 0; for (x in [1, 2, 3]) { s = s + x; } s",
+                "let h = {\"a\": 1, \"b\": 2}; let s = 0; for (k in h) { s = s + h[k]; } s",
+                "let f = fn(xs) { for (x in xs) { if (x > 2) { return x; } } 0 }; f(range(10))",
+                "let f = fn(xs) { let x = 7; for (x in xs) { } x }; f(\"ab\")",
+                "for (x in 5) { x }",
+                "let f = fn(xs) { let x = 7; for (x in xs) { } x }; f([])",
+                "let f = fn(xs) { for (x in xs) { } x }; f([])",
+                "let s = 0; for (i in range(3)) { for (j in range(3)) { s = s + i * j; } } s",
+                "let f = fn(g) { g(1) + if (true) { let s = 0; for (x in range(3)) { s = s + g(x); } s } }; f(fn(x) { x + 100 })",
+                "let e = fn() { }; let f = fn(xs) { let r = 0; for (x in xs) { r = r + x; let x = e(); } r }; f([1, 2])",
+                "let f = fn(n) { let r = 0; let i = 0; while (i < n) { let j = 0; while (j < i) { r = r + j; j = j + 1; } i = i + 1; } r }; f(6)",
+                "let x = 1; let f = fn() { x = x + 1; 0 }; let g = fn(a, b) { a + b }; g(x, f()) + x",
+                "let f = fn(p) { let t = fn() { p = p + 1 }; t(); p }; f(1)",
+                "let f = fn(a) { let i = 0; while (i < 3) { let b = [a, i][1] + g(i); a = a + b; i = i + 1; } a }; let g = fn(x) { x }; f(1)",
+                "let f = fn(g) { g(1) + if (true) { let i = 0; while (i < 2) { let t = g(i) * 2; i = i + 1; } i } }; f(fn(x) { x + 100 })",
+                "let e = fn() { }; let x = 1; let i = 0; while (i < 2) { i = i + 1; if (i == 2) { x } else { x = e(); 0 } }",
+                "let f = fn() { let x = if (true) { return 5; }; 10 }; f()",
+                "let f = fn() { let x = if (true) { return 5; }; x; 10 }; f()",
+                "let f = fn() { let x = if (true) { return 5; }; x + 1 }; f()",
+                "let f = fn(xs) { let x = if (true) { for (y in xs) { if (y > 1) { return y; } } 0 }; [x, 9] }; f([1, 2, 3])",
+        };
+        for (var input : inputs) {
+            var program = new Parser(new Lexer(input)).parseProgram();
+            var expected = Evaluator.eval(program, Environment.newEnvironment());
+            var actual = EngineKind.REGISTER.create().run(program);
+            assertEquals(expected.inspect(), actual.inspect(), input);
+        }
+    }
+
+    @Test
+    void testLowering() {
+        var program = new Parser(new Lexer("fn(a, b) { let c = a + b; let d = c * 2; d - a }")).parseProgram();
+        var resolver = new Resolver();
+        resolver.resolve(program);
+        Prototype function = Lowering.lower(resolver, program).prototypes()[0];
+        // The sums go straight into c and d; the result needs one temporary after the four slots.
+        assertEquals("""
+                0000 ADD r2 r0 r1
+                0001 MUL r3 r2 k1
+                0002 SUB r4 r3 r0
+                0003 RETURN_LAST r4
+                """, function.toString());
+        assertEquals(5, function.numRegisters());
+    }
+
+    @Test
+    void testLoweringLoop() {
+        var program = new Parser(new Lexer("fn(n) { let s = 0; for (let i = 0; i < n; i = i + 1) { s = s + i; } s }"))
+                .parseProgram();
+        var resolver = new Resolver();
+        resolver.resolve(program);
+        Prototype function = Lowering.lower(resolver, program).prototypes()[0];
+        // The loop variables are updated in their own registers.
+        assertEquals("""
+                0000 MOVE r1 k1
+                0001 MOVE r2 k2
+                0002 LESS_THAN r3 r2 r0
+                0003 JUMP_NOT_TRUTHY r3 7
+                0004 ADD r1 r1 r2
+                0005 ADD r2 r2 k3
+                0006 JUMP 2
+                0007 RETURN_LAST r1
+                """, function.toString());
+    }
+
+    @Test
+    void testTemporariesShareRegisters() {
+        var program = new Parser(new Lexer("fn(a) { (a + 1) * (a + 2) + (a + 3) * (a + 4) }")).parseProgram();
+        var resolver = new Resolver();
+        resolver.resolve(program);
+        Prototype function = Lowering.lower(resolver, program).prototypes()[0];
+        // Nine temporaries, at most three live at once.
+        assertEquals(4, function.numRegisters());
+    }
+
+    @Test
+    void testEngineKeepsGlobalsAcrossRuns() {
+        var engine = EngineKind.REGISTER.create();
+        engine.run(new Parser(new Lexer("let double = fn(x) { x * 2 }; let four = 4;")).parseProgram());
+        assertEquals("8", engine.run(new Parser(new Lexer("double(four)")).parseProgram()).inspect());
+        assertEquals("ERROR: identifier not found: late",
+                engine.run(new Parser(new Lexer("let tmp = double(1) + 1; late")).parseProgram()).inspect());
+    }
+}
@@ -0,0 +1,94 @@
+import ast.ExpressionStatement;
+import ast.FunctionLiteral;
+import ast.Identifier;
+import ast.InfixExpression;
+import ast.LetStatement;
+import engine.EngineKind;
+import evaluator.Evaluator;
+import lexer.Lexer;
+import object.Environment;
+import org.junit.jupiter.api.Test;
+import parser.Parser;
+import resolver.Resolver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResolverTest {
+    @Test
+    void testLocalAndGlobalSlots() {
+        var program = new Parser(new Lexer("let a = 1; let f = fn(x, y) { let z = x; z + a };")).parseProgram();
+        var resolver = new Resolver();
+        resolver.resolve(program);
+        // x and z also get global fallback slots, a let in an untaken branch leaves the local empty.
+        assertEquals(4, resolver.globalSize());
+
+        var let = (LetStatement) program.statements().get(1);
+        var literal = (FunctionLiteral) let.value();
+        assertEquals(3, resolver.frameSize(literal));
+        var body = (ExpressionStatement) literal.body().statements().get(1);
+        var sum = (InfixExpression) body.expression();
+
+        var z = resolver.binding((Identifier) sum.left());
+        assertArrayEquals(new int[]{0, 1}, z.depths());
+        assertArrayEquals(new int[]{2, 3}, z.slots());
+        var a = resolver.binding((Identifier) sum.right());
+        assertArrayEquals(new int[]{1}, a.depths());
+        assertArrayEquals(new int[]{0}, a.slots());
+        assertNull(a.builtin());
+    }
+
+    @Test
+    void testBuiltinsResolveAheadOfTime() {
+        var program = new Parser(new Lexer("len")).parseProgram();
+        var resolver = new Resolver();
+        resolver.resolve(program);
+        var len = resolver.binding((Identifier) ((ExpressionStatement) program.statements().get(0)).expression());
+        assertNotNull(len.builtin());
+    }
+
+    @Test
+    void testSameResultsAsEvaluator() {
+        String[] inputs = {
+                "let a = 5; let b = a; let c = a + b + 5; c;",
+                "let x = 1; let f = fn() { let y = x; let x = 2; y + x }; f();",
+                "let f = fn(c) { if (c) { let x = 10; } x }; let x = 1; f(true) + f(false);",
+                "let f = fn() { let g = fn() { h() }; let h = fn() { 3 }; g() }; f();",
+                "let f = fn() { g() }; let g = fn() { 4 }; f();",
+                "let newAdder = fn(x) { fn(y) { x + y } }; newAdder(2)(3);",
+                "let len = fn(x) { 1 }; len(\"four\");",
+                "let f = fn(a, a) { a }; f(1, 2);",
+                "let f = fn(x) { return x; x + 10; }; f(10);",
+                "foobar",
+                "let x = if (true) { }; x",
+                "[1, 2, 3][1] + {\"a\": 4}[\"a\"]",
+                "let i = 0; let s = 0; while (i < 10) { s = s + i; i = i + 1; } s",
+                "let f = fn(n) { let acc = 0; for (let i = 0; i < n; i = i + 1) { acc = acc + i; } acc }; f(100)",
+                "let f = fn(n) { while (true) { if (n > 5) { return n; } n = n + 1; } }; f(0)",
+                "let f = fn() { let c = 0; let inc = fn() { c = c + 1; c }; inc(); inc(); c + inc() }; f()",
+                "let a = 0; while (a < 3) { a = a + \"x\"; }",
+                "x = 5",
+                "let s = 0; for (x in [1, 2, 3]) { s = s + x; } s",
+                "let h = {\"a\": 1, \"b\": 2}; let s = 0; for (k in h) { s = s + h[k]; } s",
+                "let f = fn(xs) { for (x in xs) { if (x > 2) { return x; } } 0 }; f(range(10))",
+                "let f = fn(xs) { let x = 7; for (x in xs) { } x }; f(\"ab\")",
+                "for (x in 5) { x }",
+                "let f = fn(xs) { let x = 7; for (x in xs) { } x }; f([])",
+                "let x = 1; let f = fn() { let x = 10; x = x + 1; x }; f() + x;",
+        };
+        for (var input : inputs) {
+            var program = new Parser(new Lexer(input)).parseProgram();
+            var expected = Evaluator.eval(program, Environment.newEnvironment());
+            var actual = EngineKind.FRAME.create().run(program);
+            assertEquals(expected.inspect(), actual.inspect(), input);
+        }
+    }
+
+    @Test
+    void testGlobalsPersistAcrossRuns() {
+        var engine = EngineKind.FRAME.create();
+        engine.run(new Parser(new Lexer("let f = fn() { g() };")).parseProgram());
+        engine.run(new Parser(new Lexer("let g = fn() { 7 };")).parseProgram());
+        var result = engine.run(new Parser(new Lexer("f()")).parseProgram());
+        assertEquals("7", result.inspect());
+    }
+}
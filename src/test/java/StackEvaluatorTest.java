@@ -0,0 +1,102 @@
+import engine.EngineKind;
+import evaluator.Evaluator;
+import evaluator.StackEvaluator;
+import lexer.Lexer;
+import object.Environment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import parser.Parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StackEvaluatorTest {
+    @AfterEach
+    void restoreDefaults() {
+        StackEvaluator.setMaxDepth(1_000_000);
+    }
+
+    @Test
+    void testSameResultsAsEvaluator() {
+        String[] inputs = {
+                "(5 + 10 * 2 + 15 / 3) * 2 + -10",
+                "1 < 2 == true",
+                "!!5 != false",
+                "\"Hello\" + \" \" + \"World!\"",
+                "\"a\" - \"b\"",
+                "5 + true; 5;",
+                "-true",
+                "let f = fn(x) { if (x > 1) { return x * f(x - 1); } 1 }; f(10);",
+                "let newAdder = fn(x) { fn(y) { x + y } }; newAdder(2)(3);",
+                "[1, 2, 3][1] + {\"a\": 4}[\"a\"]",
+                "[1, foobar, 3]",
+                "{\"a\": 1, fn(x) { x }: 1}",
+                "{\"a\": 1, \"b\": 2, true: 3, 4: 5}",
+                "len(\"four\") + first([5])",
+                "let len = fn(x) { 42 }; len(\"four\")",
+                "foobar",
+                "5(1)",
+                "if (1 > 2) { 10 }",
+                "if (10 > 1) { if (10 > 1) { return 10; } return 1; }",
+                "let f = fn() { let x = if (true) { return 1; }; 2 }; f()",
+                "let x = 5; let y = x * 2; y",
+                "fn(x) { x + 1 }",
+                "let sum = fn(n, acc) { if (n == 0) { acc } else { sum(n - 1, acc + n) } }; sum(1000, 0);",
+                "let f = fn(x) { if (x) { f(false); 7 } else { 3 } }; f(true)",
+                "let f = fn(x) { len(x) }; f(1)",
+                "let i = 0; let s = 0; while (i < 10) { s = s + i; i = i + 1; } s",
+                "let f = fn(n) { let acc = 0; for (let i = 0; i < n; i = i + 1) { acc = acc + i; } acc }; f(100)",
+                "let f = fn(n) { while (true) { if (n > 5) { return n; } n = n + 1; } }; f(0)",
+                "let f = fn() { let c = 0; let inc = fn() { c = c + 1; c }; inc(); inc(); c + inc() }; f()",
+                "let a = 0; while (a < 3) { a = a + \"x\"; }",
+                "x = 5",
+                "let s = 0; for (x in [1, 2, 3]) { s = s + x; } s",
+                "let h = {\"a\": 1, \"b\": 2}; let s = 0; for (k in h) { s = s + h[k]; } s",
+                "let f = fn(xs) { for (x in xs) { if (x > 2) { return x; } } 0 }; f(range(10))",
+                "let f = fn(xs) { let x = 7; for (x in xs) { } x }; f(\"ab\")",
+                "for (x in 5) { x }",
+                "",
+        };
+        for (var input : inputs) {
+            var program = new Parser(new Lexer(input)).parseProgram();
+            var expected = Evaluator.eval(program, Environment.newEnvironment());
+            var actual = EngineKind.STACK.create().run(program);
+            assertEquals(expected == null ? null : expected.inspect(), actual == null ? null : actual.inspect(), input);
+        }
+    }
+
+    @Test
+    void testDeepRecursion() {
+        assertEquals("200000", eval("""
+                let count = fn(n) { if (n == 0) { 0 } else { 1 + count(n - 1) } };
+                count(200000);
+                """).inspect());
+        // push copies the array, so this one stays smaller.
+        assertEquals("5000", eval("""
+                let build = fn(n) { if (n == 0) { [] } else { push(build(n - 1), n) } };
+                len(build(5000));
+                """).inspect());
+        // Tail calls do not count against the depth.
+        StackEvaluator.setMaxDepth(100);
+        assertEquals("0", eval("let down = fn(n) { if (n == 0) { return 0; } down(n - 1) }; down(100000);")
+                .inspect());
+    }
+
+    @Test
+    void testMaxDepth() {
+        StackEvaluator.setMaxDepth(1000);
+        var input = "let count = fn(n) { if (n == 0) { 0 } else { 1 + count(n - 1) } }; count(%d);";
+        assertEquals("999", eval(input.formatted(999)).inspect());
+        assertEquals("ERROR: stack overflow: more than 1000 nested calls", eval(input.formatted(1000)).inspect());
+    }
+
+    @Test
+    void testEngineKeepsGlobalsAcrossRuns() {
+        var engine = EngineKind.STACK.create();
+        engine.run(new Parser(new Lexer("let double = fn(x) { x * 2 };")).parseProgram());
+        assertEquals("8", engine.run(new Parser(new Lexer("double(4)")).parseProgram()).inspect());
+    }
+
+    private static object.Object eval(String input) {
+        return StackEvaluator.eval(new Parser(new Lexer(input)).parseProgram(), Environment.newEnvironment());
+    }
+}
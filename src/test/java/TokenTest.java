@@ -15,6 +15,9 @@ class TokenTest {
     @Test
     void lookupIdent() {
         assertEquals(Token.lookupIdent("fn"), FUNCTION);
+        assertEquals(Token.lookupIdent("while"), WHILE);
+        assertEquals(Token.lookupIdent("for"), FOR);
+        assertEquals(Token.lookupIdent("in"), IN);
         assertEquals(Token.lookupIdent("var"), IDENT);
     }
 
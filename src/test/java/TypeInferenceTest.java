@@ -0,0 +1,109 @@
+import ast.FunctionLiteral;
+import ast.InfixExpression;
+import engine.EngineKind;
+import evaluator.Evaluator;
+import inference.Operands;
+import inference.Type;
+import inference.TypeInference;
+import lexer.Lexer;
+import object.Environment;
+import org.junit.jupiter.api.Test;
+import parser.Parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypeInferenceTest {
+    @Test
+    void testProvenOperands() {
+        record Temp(String input, Type left, Type right) {
+        }
+        // The last infix expression of each input.
+        Temp[] tests = {
+                new Temp("let f = fn() { let a = 1; a + 2 };", Type.INTEGER, Type.INTEGER),
+                new Temp("let f = fn(n) { let a = 1; a < n };", Type.INTEGER, Type.ANY),
+                new Temp("let f = fn() { let a = 1; while (a < 10) { a = a + 1; } a * 2 };", Type.INTEGER, Type.INTEGER),
+                new Temp("let f = fn() { let a = 1; let b = -a; !a == b };", Type.BOOLEAN, Type.INTEGER),
+                new Temp("let f = fn() { let s = \"a\"; s + \"b\" };", Type.STRING, Type.STRING),
+                new Temp("let f = fn() { let a = [1]; let h = {}; a == h };", Type.ARRAY, Type.HASH),
+                new Temp("let f = fn() { let a = if (true) { 1 } else { 2 }; a + 1 };", Type.INTEGER, Type.INTEGER),
+                // The name can be rebound to something else, or read before it is bound.
+                new Temp("let f = fn() { let a = 1; a = \"x\"; a + 1 };", Type.ANY, Type.INTEGER),
+                new Temp("let f = fn() { let a = 1; let g = fn() { a = \"x\" }; g(); a + 1 };", Type.ANY, Type.INTEGER),
+                new Temp("let f = fn(c) { if (c) { let a = 1; } a + 1 };", Type.ANY, Type.INTEGER),
+                new Temp("let f = fn() { let a = if (true) { 1 }; a + 1 };", Type.ANY, Type.INTEGER),
+                new Temp("let f = fn() { let a = if (true) { return 1; 2 } else { 3 }; a + 1 };", Type.ANY, Type.INTEGER),
+                new Temp("let f = fn() { let a = 1; fn() { a + 1 } };", Type.ANY, Type.INTEGER),
+                new Temp("let f = fn(xs) { for (x in xs) { x + 1 } };", Type.ANY, Type.INTEGER),
+                // Globals and builtins can be rebound by a later program.
+                new Temp("let a = 1; a + 1", Type.ANY, Type.INTEGER),
+                new Temp("let f = fn() { let n = len(\"ab\"); n + 1 };", Type.ANY, Type.INTEGER),
+        };
+        for (Temp tt : tests) {
+            var program = new Parser(new Lexer(tt.input)).parseProgram();
+            TypeInference.infer(program);
+            var infix = lastInfix(program);
+            assertEquals(tt.left, Operands.of(infix).left(), tt.input);
+            assertEquals(tt.right, Operands.of(infix).right(), tt.input);
+        }
+    }
+
+    @Test
+    void testSameResultsWithProofs() {
+        String[] inputs = {
+                "let f = fn(n) { let i = 0; let s = 0; while (i < n) { s = s + i * 2 - 1; i = i + 1; } s / 3 }; f(100)",
+                "let f = fn() { let s = \"a\"; let t = s + \"b\"; t + s }; f()",
+                "let f = fn() { let a = 1; let g = fn() { a = \"x\" }; g(); a + \"y\" }; f()",
+                "let f = fn() { let a = 5; let b = -a; a == -b }; f()",
+                "let f = fn(c) { if (c) { let a = 1; } a + 1 }; let a = 10; f(true) + f(false)",
+                "let f = fn() { let a = 2; let b = a * a; (a + b) * (b - a) / a }; f()",
+        };
+        for (var input : inputs) {
+            var expected = Evaluator.eval(new Parser(new Lexer(input)).parseProgram(), Environment.newEnvironment());
+            for (var kind : List.of(EngineKind.EVALUATOR, EngineKind.CLOSURES)) {
+                var program = new Parser(new Lexer(input)).parseProgram();
+                var actual = kind.create().run(program);
+                assertEquals(expected.inspect(), actual.inspect(), kind + ": " + input);
+            }
+        }
+    }
+
+    private static InfixExpression lastInfix(ast.Node node) {
+        List<InfixExpression> found = new ArrayList<>();
+        collect(node, found);
+        return found.get(found.size() - 1);
+    }
+
+    private static void collect(ast.Node node, List<InfixExpression> found) {
+        switch (node) {
+            case null -> {
+            }
+            case ast.Program actual -> actual.statements().forEach(s -> collect(s, found));
+            case ast.BlockStatement actual -> actual.statements().forEach(s -> collect(s, found));
+            case ast.LetStatement actual -> collect(actual.value(), found);
+            case ast.AssignStatement actual -> collect(actual.value(), found);
+            case ast.ReturnStatement actual -> collect(actual.returnValue(), found);
+            case ast.ExpressionStatement actual -> collect(actual.expression(), found);
+            case ast.WhileStatement actual -> {
+                collect(actual.condition(), found);
+                collect(actual.body(), found);
+            }
+            case ast.ForInStatement actual -> collect(actual.body(), found);
+            case ast.IfExpression actual -> {
+                collect(actual.consequence(), found);
+                collect(actual.alternative(), found);
+            }
+            case FunctionLiteral actual -> collect(actual.body(), found);
+            case ast.PrefixExpression actual -> collect(actual.right(), found);
+            case InfixExpression actual -> {
+                collect(actual.left(), found);
+                collect(actual.right(), found);
+                found.add(actual);
+            }
+            default -> {
+            }
+        }
+    }
+}
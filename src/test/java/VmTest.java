@@ -0,0 +1,235 @@
+import engine.EngineKind;
+import lexer.Lexer;
+import object.Array;
+import object.Error;
+import object.Hash;
+import object.Integer;
+import object.Null;
+import object.Object;
+import org.junit.jupiter.api.Test;
+import parser.Parser;
+
+import java.lang.String;
+
+import static evaluator.Evaluator.FALSE;
+import static evaluator.Evaluator.TRUE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class VmTest {
+    record Temp(String input, java.lang.Object expected) {
+    }
+
+    @Test
+    void testIntegerArithmetic() {
+        runVmTests(new Temp[]{
+                new Temp("1", 1),
+                new Temp("1 + 2", 3),
+                new Temp("1 - 2", -1),
+                new Temp("4 / 2", 2),
+                new Temp("50 / 2 * 2 + 10 - 5", 55),
+                new Temp("5 * (2 + 10)", 60),
+                new Temp("-50 + 100 + -50", 0),
+                new Temp("(5 + 10 * 2 + 15 / 3) * 2 + -10", 50),
+        });
+    }
+
+    @Test
+    void testBooleanExpressions() {
+        runVmTests(new Temp[]{
+                new Temp("true", true),
+                new Temp("1 < 2", true),
+                new Temp("1 > 2", false),
+                new Temp("1 == 2", false),
+                new Temp("1 != 2", true),
+                new Temp("true != false", true),
+                new Temp("(1 < 2) == true", true),
+                new Temp("!5", false),
+                new Temp("!!true", true),
+                new Temp("!(if (false) { 5; })", true),
+        });
+    }
+
+    @Test
+    void testConditionals() {
+        runVmTests(new Temp[]{
+                new Temp("if (true) { 10 }", 10),
+                new Temp("if (1 < 2) { 10 } else { 20 }", 10),
+                new Temp("if (1 > 2) { 10 } else { 20 }", 20),
+                new Temp("if (1 > 2) { 10 }", null),
+                new Temp("if ((if (false) { 10 })) { 10 } else { 20 }", 20),
+        });
+    }
+
+    @Test
+    void testGlobalLetStatements() {
+        runVmTests(new Temp[]{
+                new Temp("let one = 1; one", 1),
+                new Temp("let one = 1; let two = one + one; one + two", 3),
+                new Temp("let a = 1; let a = a + 1; a", 2),
+        });
+    }
+
+    @Test
+    void testStringsArraysAndHashes() {
+        runVmTests(new Temp[]{
+                new Temp("\"mon\" + \"key\"", "monkey"),
+                new Temp("[1 + 2, 3 * 4, 5 + 6]", new int[]{3, 12, 11}),
+                new Temp("[1, 2, 3][1]", 2),
+                new Temp("[[1, 1, 1]][0][0]", 1),
+                new Temp("[1, 2, 3][99]", null),
+                new Temp("{1: 1, 2: 2}[1]", 1),
+                new Temp("{1: 1}[0]", null),
+                new Temp("len({1: 2, 3: 4}[1] + \"\")", "type mismatch: INTEGER + STRING"),
+        });
+        var hash = run("{1 + 1: 2 * 2, 3 + 3: 4 * 4}");
+        assertTrue(hash instanceof Hash);
+        assertEquals(2, ((Hash) hash).pairs().size());
+    }
+
+    @Test
+    void testCallingFunctions() {
+        runVmTests(new Temp[]{
+                new Temp("let fivePlusTen = fn() { 5 + 10; }; fivePlusTen();", 15),
+                new Temp("let early = fn() { return 99; 100; }; early();", 99),
+                new Temp("let noReturn = fn() { }; noReturn();", null),
+                new Temp("let identity = fn(a) { a; }; identity(4);", 4),
+                new Temp("let sum = fn(a, b) { let c = a + b; c; }; sum(1, 2) + sum(3, 4);", 10),
+                new Temp("let globalNum = 10; let f = fn() { let num = 1; globalNum - num; }; f();", 9),
+                new Temp("fn() { 1; }(1);", 1),
+                new Temp("let f = fn() { g(); }; let g = fn() { 7 }; f();", 7),
+                new Temp("5();", "not a function: INTEGER_OBJ"),
+                new Temp("let f = fn() { let x = if (true) { return 5; }; 10 }; f()", 10),
+                new Temp("let f = fn() { let x = if (true) { return 5; }; x }; f()", 5),
+                new Temp("let f = fn() { let x = if (true) { return 5; }; x + 1 }; f()", "type mismatch: RETURN_VALUE + INTEGER"),
+        });
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> run("let f = fn(a, b) { a }; f(1)"));
+    }
+
+    @Test
+    void testClosures() {
+        runVmTests(new Temp[]{
+                new Temp("let newAdder = fn(a, b) { fn(c) { a + b + c }; }; newAdder(1, 2)(8);", 11),
+                new Temp("""
+                        let newAdderOuter = fn(a, b) {
+                          let c = a + b;
+                          fn(d) {
+                            let e = d + c;
+                            fn(f) { e + f; };
+                          };
+                        };
+                        let newAdderInner = newAdderOuter(1, 2);
+                        let adder = newAdderInner(3);
+                        adder(8);
+                        """, 14),
+                new Temp("""
+                        let wrapper = fn() {
+                          let countDown = fn(x) {
+                            if (x == 0) { return 0; } else { countDown(x - 1); }
+                          };
+                          countDown(1);
+                        };
+                        wrapper();
+                        """, 0),
+                new Temp("""
+                        let fibonacci = fn(x) {
+                          if (x == 0) { return 0; }
+                          if (x == 1) { return 1; }
+                          fibonacci(x - 1) + fibonacci(x - 2);
+                        };
+                        fibonacci(15);
+                        """, 610),
+                new Temp("let f = fn() { let x = 1; let g = fn() { x }; let x = 2; g() }; f()", 2),
+                new Temp("let f = fn() { let fs = []; for (i in [1, 2, 3]) { let fs = push(fs, fn() { i }); } fs[0]() }; f()", 3),
+                new Temp("let x = 10; let f = fn() { let g = fn() { x }; let r = g(); let x = 1; [r, g()] }; f()", new int[]{10, 1}),
+        });
+    }
+
+    @Test
+    void testBuiltinFunctions() {
+        runVmTests(new Temp[]{
+                new Temp("len(\"four\")", 4),
+                new Temp("len([1, 2, 3])", 3),
+                new Temp("len(1)", "argument to `len` not supported, got INTEGER"),
+                new Temp("len(\"one\", \"two\")", "wrong number of arguments. got=2, want=1"),
+                new Temp("puts(\"hello\", \"world!\")", null),
+                new Temp("first([1, 2, 3])", 1),
+                new Temp("last([])", null),
+                new Temp("rest([1, 2, 3])", new int[]{2, 3}),
+                new Temp("push([], 1)", new int[]{1}),
+                new Temp("let len = fn(x) { 42 }; len([]);", 42),
+        });
+    }
+
+    @Test
+    void testErrors() {
+        runVmTests(new Temp[]{
+                new Temp("5 + true; 5;", "type mismatch: INTEGER + BOOLEAN"),
+                new Temp("-true", "unknown operator: -BOOLEAN"),
+                new Temp("\"Hello\" - \"World\"", "unknown operator: STRING - STRING"),
+                new Temp("foobar", "identifier not found: foobar"),
+                new Temp("{fn(x) { x }: 1}", "unusable as hash key: CLOSURE"),
+        });
+    }
+
+    @Test
+    void testLoops() {
+        runVmTests(new Temp[]{
+                new Temp("let i = 0; let s = 0; while (i < 10) { s = s + i; i = i + 1; } s", 45),
+                new Temp("let f = fn(n) { let acc = 0; for (let i = 0; i < n; i = i + 1) { acc = acc + i; } acc }; f(100)", 4950),
+                new Temp("let f = fn(n) { while (true) { if (n > 5) { return n; } n = n + 1; } }; f(0)", 6),
+                new Temp("x = 5", "identifier not found: x"),
+                new Temp("let s = 0; for (x in [1, 2, 3]) { s = s + x; } s", 6),
+                new Temp("let f = fn(xs) { let s = \"\"; for (c in xs) { let s = c + s; } s }; f(\"abc\")", "cba"),
+                new Temp("let f = fn(n) { for (x in range(n)) { if (x > 2) { return x; } } 0 }; f(10)", 3),
+                new Temp("for (x in 5) { x }", "not iterable: INTEGER"),
+                new Temp("let f = fn(c) { let g = fn() { c = c + 1; }; g(); c }; f(1)", 2),
+                new Temp("let counter = fn() { let n = 0; fn() { n = n + 1; n } }; let c = counter(); c(); c()", 2),
+                new Temp("let f = fn() { let g = fn() { x = 5 }; let x = 1; g(); x }; f()", 5),
+                new Temp("let f = fn() { let g = fn() { y = 5 }; g() }; f()", "identifier not found: y"),
+        });
+    }
+
+    @Test
+    void testReplStatePersists() {
+        var engine = EngineKind.VM.create();
+        assertNull(engine.run(new Parser(new Lexer("let a = 1; let f = fn(x) { x + a };")).parseProgram()));
+        var result = engine.run(new Parser(new Lexer("f(41)")).parseProgram());
+        assertEquals(42, ((Integer) result).value());
+    }
+
+    private Object run(String input) {
+        var program = new Parser(new Lexer(input)).parseProgram();
+        return EngineKind.VM.create().run(program);
+    }
+
+    private void runVmTests(Temp[] tests) {
+        for (var test : tests) {
+            var actual = run(test.input);
+            switch (test.expected) {
+                case java.lang.Integer expected -> {
+                    assertTrue(actual instanceof Integer, test.input);
+                    assertEquals(expected, ((Integer) actual).value(), test.input);
+                }
+                case java.lang.Boolean expected -> assertSame(expected ? TRUE : FALSE, actual, test.input);
+                case null -> assertTrue(actual instanceof Null, test.input);
+                case int[] expected -> {
+                    assertTrue(actual instanceof Array, test.input);
+                    var elements = ((Array) actual).elements();
+                    assertEquals(expected.length, elements.size());
+                    for (int i = 0; i < expected.length; i++) {
+                        assertEquals(expected[i], ((Integer) elements.get(i)).value());
+                    }
+                }
+                case String expected -> {
+                    if (actual instanceof Error error) {
+                        assertEquals(expected, error.message(), test.input);
+                    } else {
+                        assertTrue(actual instanceof object.String, test.input);
+                        assertEquals(expected, ((object.String) actual).value(), test.input);
+                    }
+                }
+                default -> throw new IllegalStateException("Unexpected value: " + test.expected);
+            }
+        }
+    }
+}